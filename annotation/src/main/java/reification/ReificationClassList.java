@@ -0,0 +1,60 @@
+package reification;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Merges the class list fragments that the '@Reify'-annotation processor has generated (with the option
+ * `reification.classList`) into a single class list for the JVM option `-XX:SharedClassListFile`, from which an AppCDS
+ * archive is dumped. Each line of a fragment names a generated class or one of its supertypes by its internal name (like
+ * `x/X$String`), such that classes are pre-parsed from the archive rather than loaded and verified at startup.
+ * <p>
+ * Fragments are found on the class path, such that the class list of an application is merged by running
+ * <pre>
+ *     java -cp &lt;class path of the application&gt; reification.ReificationClassList [&lt;file&gt;]
+ * </pre>
+ * which writes the merged list to the given file (or to standard output). The classes are listed once each and in order.
+ */
+public final class ReificationClassList {
+	public static final String RESOURCE = "META-INF/reification/classlist";
+	
+	private ReificationClassList() {
+	}
+	
+	/**
+	 * Returns the classes listed in any of the fragments that the given class loader finds.
+	 */
+	public static SortedSet<String> merge(ClassLoader classLoader) throws IOException {
+		SortedSet<String> classNames = new TreeSet<>();
+		Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+		while (resources.hasMoreElements()) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(resources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (!line.isEmpty()) {
+						classNames.add(line);
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableSortedSet(classNames);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length > 1) {
+			System.err.println("Usage: java -cp <class path> reification.ReificationClassList [<file>]");
+			System.exit(2);
+		}
+		
+		StringBuilder stringBuilder = new StringBuilder();
+		merge(ReificationClassList.class.getClassLoader()).forEach(n -> stringBuilder.append(n).append('\n'));
+		if (args.length == 0) {
+			System.out.print(stringBuilder);
+		} else {
+			Files.write(Paths.get(args[0]), stringBuilder.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
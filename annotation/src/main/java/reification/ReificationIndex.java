@@ -0,0 +1,106 @@
+package reification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable lookup table of the types that the '@Reify'-annotation processor has generated (with the option
+ * `reification.index`), as listed by the index resources on the class path. Each line of an index lists a reifying type,
+ * the types that it's reified with (separated by ',') and the generated type, separated by tabs. All types are named by
+ * their binary names (as by {@link Class#getName()}), such that the generated types can be discovered without scanning
+ * the class path or loading any classes.
+ */
+public final class ReificationIndex {
+	public static final String RESOURCE = "META-INF/reification/index";
+	
+	private final Map<String, Map<List<String>, String>> generatedTypes;
+	
+	private ReificationIndex(Map<String, Map<List<String>, String>> generatedTypes) {
+		Map<String, Map<List<String>, String>> types = new LinkedHashMap<>();
+		generatedTypes.forEach((name, generated) -> types.put(name, Collections.unmodifiableMap(generated)));
+		this.generatedTypes = Collections.unmodifiableMap(types);
+	}
+	
+	/**
+	 * Reads all the indexes that the given class loader finds.
+	 */
+	public static ReificationIndex load(ClassLoader classLoader) throws IOException {
+		Map<String, Map<List<String>, String>> generatedTypes = new LinkedHashMap<>();
+		Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+		while (resources.hasMoreElements()) {
+			try (InputStream inputStream = resources.nextElement().openStream()) {
+				read(inputStream, generatedTypes);
+			}
+		}
+		return new ReificationIndex(generatedTypes);
+	}
+	
+	/**
+	 * Reads a single index from the given stream, which is left open.
+	 */
+	public static ReificationIndex read(InputStream inputStream) throws IOException {
+		Map<String, Map<List<String>, String>> generatedTypes = new LinkedHashMap<>();
+		read(inputStream, generatedTypes);
+		return new ReificationIndex(generatedTypes);
+	}
+	
+	private static void read(InputStream inputStream, Map<String, Map<List<String>, String>> generatedTypes) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int n = inputStream.read(buffer); n != -1; n = inputStream.read(buffer)) {
+			outputStream.write(buffer, 0, n);
+		}
+		
+		for (String line : new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t");
+			if (fields.length != 3) {
+				throw new IOException(String.format("Malformed line '%s' in index", line));
+			}
+			List<String> typeArguments = Collections.unmodifiableList(Arrays.asList(fields[1].split(",")));
+			generatedTypes.computeIfAbsent(fields[0], t -> new LinkedHashMap<>()).put(typeArguments, fields[2]);
+		}
+	}
+	
+	/**
+	 * Returns the names of the reifying types.
+	 */
+	public Set<String> getReifyingTypes() {
+		return generatedTypes.keySet();
+	}
+	
+	/**
+	 * Returns the names of the types generated from the reifying type with the given name, by the names of the types
+	 * that it's reified with.
+	 */
+	public Map<List<String>, String> getGeneratedTypes(String reifyingType) {
+		return generatedTypes.getOrDefault(reifyingType, Collections.emptyMap());
+	}
+	
+	/**
+	 * Returns the name of the type generated from the reifying type with the given name for the types with the given
+	 * names, or null if no such type has been generated.
+	 */
+	public String getGeneratedType(String reifyingType, String... typeArguments) {
+		return getGeneratedTypes(reifyingType).get(Arrays.asList(typeArguments));
+	}
+	
+	/**
+	 * Returns the type generated from the given reifying type for the given types, loaded by the class loader of the
+	 * reifying type, or null if no such type has been generated.
+	 */
+	public Class<?> getGeneratedClass(Class<?> reifyingType, Class<?>... typeArguments) throws ClassNotFoundException {
+		String[] names = new String[typeArguments.length];
+		for (int i = 0; i < typeArguments.length; i++) {
+			names[i] = typeArguments[i].getName();
+		}
+		String name = getGeneratedType(reifyingType.getName(), names);
+		return name == null ? null : Class.forName(name, false, reifyingType.getClassLoader());
+	}
+}
@@ -9,5 +9,5 @@ import java.lang.annotation.Target;
 @Target({ElementType.TYPE_PARAMETER})
 public @interface Reify {
 	
-	Class<?> value();
+	Class<?>[] value();
 }
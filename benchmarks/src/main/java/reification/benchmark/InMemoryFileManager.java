@@ -0,0 +1,71 @@
+package reification.benchmark;
+
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File manager keeping all output in memory, such that benchmarks measure the compiler and not the file system.
+ */
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+	private final List<OutputFile> outputFiles = new ArrayList<>();
+	
+	public InMemoryFileManager(StandardJavaFileManager fileManager) {
+		super(fileManager);
+	}
+	
+	public List<OutputFile> getOutputFiles() {
+		return outputFiles;
+	}
+	
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+		String path = className.replace('.', '/') + kind.extension;
+		OutputFile outputFile = new OutputFile(URI.create("mem:///" + location.getName() + '/' + path), kind);
+		outputFiles.add(outputFile);
+		return outputFile;
+	}
+	
+	@Override
+	public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+		String path = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + '/' + relativeName;
+		OutputFile outputFile = new OutputFile(URI.create("mem:///" + location.getName() + '/' + path), JavaFileObject.Kind.OTHER);
+		outputFiles.add(outputFile);
+		return outputFile;
+	}
+	
+	@Override
+	public boolean isSameFile(FileObject a, FileObject b) {
+		return a.toUri().equals(b.toUri());
+	}
+	
+	public static class OutputFile extends SimpleJavaFileObject {
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		
+		OutputFile(URI uri, Kind kind) {
+			super(uri, kind);
+		}
+		
+		@Override
+		public OutputStream openOutputStream() {
+			content.reset();
+			return content;
+		}
+		
+		@Override
+		public InputStream openInputStream() {
+			return new ByteArrayInputStream(content.toByteArray());
+		}
+		
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return new String(content.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
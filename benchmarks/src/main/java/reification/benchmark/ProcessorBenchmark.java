@@ -0,0 +1,70 @@
+package reification.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import reification.ReificationProcessor;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compilations of a synthetic corpus processed (only) by the reification processor. Each invocation runs a
+ * fresh in-process compilation task, as a build would.
+ * <p>
+ * Run with e.g. `java -jar target/benchmarks.jar -prof gc -p types=10,100` to also report allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+	
+	@Param({"10", "100"})
+	public int types;
+	
+	@Param({"1"})
+	public int reifiedParameters;
+	
+	@Param({"0", "5"})
+	public int inheritanceDepth;
+	
+	@Param({"0", "6"})
+	public int autoImplementedMethods;
+	
+	private JavaCompiler compiler;
+	private List<JavaFileObject> sources;
+	private List<String> options;
+	
+	@Setup
+	public void setUp() {
+		compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("Benchmarks must be run on a JDK");
+		}
+		
+		sources = new SyntheticCorpus(types, reifiedParameters, inheritanceDepth, autoImplementedMethods).sources();
+		options = Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"));
+	}
+	
+	@Benchmark
+	public List<InMemoryFileManager.OutputFile> process() throws IOException {
+		StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, Locale.ROOT, null);
+		try (InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager)) {
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+			
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+			task.setProcessors(Collections.singletonList(new ReificationProcessor()));
+			if (!task.call()) {
+				throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+			}
+			
+			return fileManager.getOutputFiles();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package reification.benchmark;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generator of synthetic source trees for the reification processor to process.
+ * <p>
+ * The corpus consists of a chain of abstract base classes of the given inheritance depth, which is shared by the given
+ * number of reifying types. Each reifying type has the given number of reified type parameters and declares the given
+ * number of auto-implemented abstract methods.
+ */
+public class SyntheticCorpus {
+	private static final String PACKAGE = "corpus";
+	
+	private static final String[] REIFIED_TYPES = {"String", "Integer", "Long", "StringBuilder"};
+	
+	// Distinct signatures of auto-implemented methods of the first reified type parameter (reified with `String`).
+	private static final String[] AUTO_IMPLEMENTED_METHODS = {
+			"abstract Class<T0> classT0();",
+			"abstract T0 newT0();",
+			"abstract T0 newT0(String s);",
+			"abstract T0 newT0(char[] value);",
+			"abstract T0 newT0(StringBuilder builder);",
+			"abstract T0 newT0(char[] value, int offset, int count);",
+	};
+	
+	public static final int MAX_AUTO_IMPLEMENTED_METHODS = AUTO_IMPLEMENTED_METHODS.length;
+	
+	private final int types;
+	private final int reifiedParameters;
+	private final int inheritanceDepth;
+	private final int autoImplementedMethods;
+	
+	public SyntheticCorpus(int types, int reifiedParameters, int inheritanceDepth, int autoImplementedMethods) {
+		if (types < 1 || reifiedParameters < 1 || inheritanceDepth < 0 || autoImplementedMethods < 0) {
+			throw new IllegalArgumentException("Invalid corpus dimensions");
+		}
+		if (autoImplementedMethods > MAX_AUTO_IMPLEMENTED_METHODS) {
+			throw new IllegalArgumentException(
+					String.format("At most %d auto-implemented methods are supported", MAX_AUTO_IMPLEMENTED_METHODS)
+			);
+		}
+		
+		this.types = types;
+		this.reifiedParameters = reifiedParameters;
+		this.inheritanceDepth = inheritanceDepth;
+		this.autoImplementedMethods = autoImplementedMethods;
+	}
+	
+	public List<JavaFileObject> sources() {
+		List<JavaFileObject> sources = new ArrayList<>();
+		for (int level = 0; level < inheritanceDepth; level++) {
+			sources.add(source(baseName(level), base(level)));
+		}
+		for (int index = 0; index < types; index++) {
+			sources.add(source(typeName(index), type(index)));
+		}
+		return sources;
+	}
+	
+	private String base(int level) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(PACKAGE).append(";\n\n");
+		source.append("public abstract class ").append(baseName(level)).append("<B> ");
+		if (level > 0) {
+			source.append("extends ").append(baseName(level - 1)).append("<B> ");
+		}
+		source.append("{\n");
+		// Implement the abstract method of the previous level and declare a new one.
+		if (level > 0) {
+			source.append("    public int level").append(level - 1).append("() { return ").append(level).append("; }\n");
+		}
+		source.append("    public abstract int level").append(level).append("();\n");
+		source.append("    public B identity(B b) { return b; }\n");
+		source.append("}\n");
+		return source.toString();
+	}
+	
+	private String type(int index) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(PACKAGE).append(";\n\n");
+		source.append("public abstract class ").append(typeName(index)).append('<');
+		for (int parameter = 0; parameter < reifiedParameters; parameter++) {
+			if (parameter > 0) {
+				source.append(", ");
+			}
+			String reifiedType = REIFIED_TYPES[parameter % REIFIED_TYPES.length];
+			source.append("@reification.Reify(").append(reifiedType).append(".class) T").append(parameter);
+		}
+		source.append("> ");
+		if (inheritanceDepth > 0) {
+			source.append("extends ").append(baseName(inheritanceDepth - 1)).append("<T0> ");
+		}
+		source.append("{\n");
+		for (int method = 0; method < autoImplementedMethods; method++) {
+			source.append("    ").append(AUTO_IMPLEMENTED_METHODS[method]).append('\n');
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+	
+	private static String baseName(int level) {
+		return "Base" + level;
+	}
+	
+	private static String typeName(int index) {
+		return "Type" + index;
+	}
+	
+	private static JavaFileObject source(String simpleName, String content) {
+		String path = PACKAGE + '/' + simpleName + JavaFileObject.Kind.SOURCE.extension;
+		return new SimpleJavaFileObject(URI.create("string:///" + path), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return content;
+			}
+		};
+	}
+}
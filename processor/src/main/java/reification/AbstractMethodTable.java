@@ -0,0 +1,293 @@
+package reification;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+import static javax.lang.model.element.ElementKind.METHOD;
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Per-compilation cache of the abstract methods that types declare or inherit. Each type is resolved at most once, so
+ * types sharing the same (deep) supertypes only pay for walking them the first time. The resolution of classpath types
+ * is furthermore shared with later compilations through the {@link WorkerCache}, if enabled.
+ */
+public class AbstractMethodTable {
+	private final Types types;
+	private final Elements elements;
+	private final WorkerCache workerCache;
+	
+	private final Map<TypeElement, Methods> methodsByType = new HashMap<>();
+	
+	private int hits;
+	private int misses;
+	
+	public AbstractMethodTable(Types types, Elements elements) {
+		this(types, elements, WorkerCache.DISABLED);
+	}
+	
+	public AbstractMethodTable(Types types, Elements elements, WorkerCache workerCache) {
+		this.types = Objects.requireNonNull(types, "types");
+		this.elements = Objects.requireNonNull(elements, "elements");
+		this.workerCache = Objects.requireNonNull(workerCache, "workerCache");
+	}
+	
+	/**
+	 * Returns the abstract methods of the given type that aren't implemented by the type itself or any of its
+	 * supertypes. Methods of interfaces are listed before the ones of the superclass, which in turn are listed before
+	 * the ones declared by the type itself. Within each type, the declaration order is kept.
+	 */
+	public List<ExecutableElement> abstractMethods(TypeElement typeElement) {
+		return methods(typeElement).abstractMethods;
+	}
+	
+	public int getHits() {
+		return hits;
+	}
+	
+	public int getMisses() {
+		return misses;
+	}
+	
+	private Methods methods(TypeElement typeElement) {
+		// Not using `computeIfAbsent` as resolution recursively populates the map.
+		Methods methods = methodsByType.get(typeElement);
+		if (methods != null) {
+			hits++;
+			return methods;
+		}
+		
+		misses++;
+		String origin = workerCache.origin(typeElement);
+		if (origin != null) {
+			methods = cached(typeElement);
+		}
+		if (methods == null) {
+			methods = resolve(typeElement, origin);
+		}
+		methodsByType.put(typeElement, methods);
+		return methods;
+	}
+	
+	private Methods cached(TypeElement typeElement) {
+		WorkerCache.TypeMethods typeMethods = workerCache.getMethods(typeElement.getQualifiedName().toString());
+		if (typeMethods == null) {
+			return null;
+		}
+		
+		List<ExecutableElement> abstractMethods = new ArrayList<>();
+		for (WorkerCache.MethodReference reference : typeMethods.abstractMethods) {
+			ExecutableElement methodElement = method(reference);
+			if (methodElement == null) {
+				return null;
+			}
+			abstractMethods.add(methodElement);
+		}
+		Map<Name, List<ExecutableElement>> concreteMethods = new LinkedHashMap<>();
+		for (Map.Entry<String, List<WorkerCache.MethodReference>> entry : typeMethods.concreteMethods.entrySet()) {
+			List<ExecutableElement> methodElements = new ArrayList<>();
+			for (WorkerCache.MethodReference reference : entry.getValue()) {
+				ExecutableElement methodElement = method(reference);
+				if (methodElement == null) {
+					return null;
+				}
+				methodElements.add(methodElement);
+			}
+			concreteMethods.put(elements.getName(entry.getKey()), methodElements);
+		}
+		return new Methods(Collections.unmodifiableList(abstractMethods), concreteMethods, typeMethods.origins);
+	}
+	
+	private Methods resolve(TypeElement typeElement, String origin) {
+		MethodsBuilder builder = new MethodsBuilder(typeElement, origin);
+		
+		// Order of resolution prevents non-abstract methods from being "re-registered" as abstract ones. I.e.,
+		// processing order reflects the "override" order of elements.
+		for (TypeMirror interfaceType : typeElement.getInterfaces()) {
+			Element interfaceElement = types.asElement(interfaceType);
+			ElementKind kind = interfaceElement.getKind();
+			if (!kind.isInterface()) {
+				throw new IllegalStateException(
+						String.format("Expected type '%s' of kind '%s' to have kind 'INTERFACE'", interfaceElement, kind)
+				);
+			}
+			Methods interfaceMethods = methods((TypeElement) interfaceElement);
+			builder.addOrigins(interfaceMethods.origins);
+			builder.addAbstractMethods(interfaceMethods.abstractMethods);
+		}
+		Element superclassElement = types.asElement(typeElement.getSuperclass());
+		if (superclassElement != null) {
+			ElementKind kind = superclassElement.getKind();
+			if (!kind.isClass()) {
+				throw new IllegalStateException(
+						String.format("Expected type '%s' of kind '%s' to have kind 'CLASS'", superclassElement, kind)
+				);
+			}
+			Methods superclassMethods = methods((TypeElement) superclassElement);
+			builder.addOrigins(superclassMethods.origins);
+			// Inherited implementations may implement abstract methods of interfaces.
+			superclassMethods.concreteMethods.values().forEach(ms -> ms.forEach(builder::addConcreteMethod));
+			builder.addAbstractMethods(superclassMethods.abstractMethods);
+		}
+		
+		for (Element memberElement : typeElement.getEnclosedElements()) {
+			if (memberElement.getKind() != METHOD) {
+				continue;
+			}
+			
+			ExecutableElement methodElement = (ExecutableElement) memberElement;
+			Set<Modifier> modifiers = methodElement.getModifiers();
+			if (modifiers.contains(STATIC) || modifiers.contains(PRIVATE)) {
+				// Cannot override nor be overridden.
+				continue;
+			}
+			
+			if (modifiers.contains(ABSTRACT)) {
+				builder.addAbstractMethod(methodElement);
+			} else {
+				builder.addConcreteMethod(methodElement);
+			}
+		}
+		
+		Methods methods = builder.build();
+		if (methods.origins != null) {
+			workerCache.putMethods(typeElement.getQualifiedName().toString(), typeMethods(methods));
+		}
+		return methods;
+	}
+	
+	private WorkerCache.TypeMethods typeMethods(Methods methods) {
+		List<WorkerCache.MethodReference> abstractMethods = new ArrayList<>();
+		methods.abstractMethods.forEach(m -> abstractMethods.add(reference(m)));
+		Map<String, List<WorkerCache.MethodReference>> concreteMethods = new LinkedHashMap<>();
+		methods.concreteMethods.forEach((name, ms) -> {
+			List<WorkerCache.MethodReference> references = new ArrayList<>();
+			ms.forEach(m -> references.add(reference(m)));
+			concreteMethods.put(name.toString(), references);
+		});
+		return new WorkerCache.TypeMethods(methods.origins, abstractMethods, concreteMethods);
+	}
+	
+	private WorkerCache.MethodReference reference(ExecutableElement methodElement) {
+		TypeElement declaringType = (TypeElement) methodElement.getEnclosingElement();
+		return new WorkerCache.MethodReference(
+				declaringType.getQualifiedName().toString(),
+				methodElement.getSimpleName().toString(),
+				parameterTypes(methodElement)
+		);
+	}
+	
+	private ExecutableElement method(WorkerCache.MethodReference reference) {
+		TypeElement declaringType = elements.getTypeElement(reference.declaringType);
+		if (declaringType == null) {
+			return null;
+		}
+		for (Element memberElement : declaringType.getEnclosedElements()) {
+			if (memberElement.getKind() == METHOD && memberElement.getSimpleName().contentEquals(reference.name)) {
+				ExecutableElement methodElement = (ExecutableElement) memberElement;
+				if (parameterTypes(methodElement).equals(reference.parameterTypes)) {
+					return methodElement;
+				}
+			}
+		}
+		return null;
+	}
+	
+	private List<String> parameterTypes(ExecutableElement methodElement) {
+		List<String> parameterTypes = new ArrayList<>();
+		methodElement.getParameters().forEach(p -> parameterTypes.add(types.erasure(p.asType()).toString()));
+		return parameterTypes;
+	}
+	
+	private static class Methods {
+		final List<ExecutableElement> abstractMethods;
+		final Map<Name, List<ExecutableElement>> concreteMethods;
+		
+		// Origins of the type and its supertypes, or null if any of them has none.
+		final Map<String, String> origins;
+		
+		Methods(List<ExecutableElement> abstractMethods, Map<Name, List<ExecutableElement>> concreteMethods, Map<String, String> origins) {
+			this.abstractMethods = abstractMethods;
+			this.concreteMethods = concreteMethods;
+			this.origins = origins;
+		}
+	}
+	
+	private class MethodsBuilder {
+		private final TypeElement typeElement;
+		
+		// Insertion order is the order in which abstract methods are reported.
+		private final Set<ExecutableElement> abstractMethods = new LinkedHashSet<>();
+		
+		// Methods indexed by name, such that overridden methods may be looked up by signature.
+		private final Map<Name, List<ExecutableElement>> abstractMethodsByName = new HashMap<>();
+		private final Map<Name, List<ExecutableElement>> concreteMethodsByName = new LinkedHashMap<>();
+		
+		private Map<String, String> origins;
+		
+		MethodsBuilder(TypeElement typeElement, String origin) {
+			this.typeElement = typeElement;
+			if (origin != null) {
+				origins = new HashMap<>();
+				origins.put(typeElement.getQualifiedName().toString(), origin);
+			}
+		}
+		
+		void addOrigins(Map<String, String> supertypeOrigins) {
+			if (origins == null) {
+				return;
+			}
+			if (supertypeOrigins == null) {
+				origins = null;
+				return;
+			}
+			origins.putAll(supertypeOrigins);
+		}
+		
+		void addAbstractMethods(List<ExecutableElement> methodElements) {
+			for (ExecutableElement methodElement : methodElements) {
+				if (!abstractMethods.contains(methodElement)) {
+					addAbstractMethod(methodElement);
+				}
+			}
+		}
+		
+		void addAbstractMethod(ExecutableElement methodElement) {
+			// A redeclaration replaces the abstract method(s) that it overrides.
+			removeOverridden(methodElement);
+			abstractMethods.add(methodElement);
+			abstractMethodsByName.computeIfAbsent(methodElement.getSimpleName(), n -> new ArrayList<>()).add(methodElement);
+		}
+		
+		void addConcreteMethod(ExecutableElement methodElement) {
+			removeOverridden(methodElement);
+			concreteMethodsByName.computeIfAbsent(methodElement.getSimpleName(), n -> new ArrayList<>()).add(methodElement);
+		}
+		
+		private void removeOverridden(ExecutableElement methodElement) {
+			List<ExecutableElement> candidates = abstractMethodsByName.get(methodElement.getSimpleName());
+			if (candidates == null) {
+				return;
+			}
+			
+			Iterator<ExecutableElement> iterator = candidates.iterator();
+			while (iterator.hasNext()) {
+				ExecutableElement candidate = iterator.next();
+				if (elements.overrides(methodElement, candidate, typeElement)) {
+					iterator.remove();
+					abstractMethods.remove(candidate);
+				}
+			}
+		}
+		
+		Methods build() {
+			return new Methods(
+					Collections.unmodifiableList(new ArrayList<>(abstractMethods)),
+					concreteMethodsByName,
+					origins == null ? null : Collections.unmodifiableMap(origins)
+			);
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package reification;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static javax.tools.StandardLocation.*;
+
+/**
+ * Runs the processor over the sources of many modules in a single JVM. Each module is processed (only) by an isolated
+ * compilation task of its own, and the tasks run in parallel on a fixed number of threads. As all tasks share the JVM,
+ * they also share the JIT-compiled compiler and processor as well as the worker cache (which is enabled by default).
+ * <p>
+ * Usage: `java -cp <processor class path> reification.BatchReification [<option>...] <module>...`, where each module is
+ * given as `<source root>[<path separator><source root>...]=<output directory>`. The options are:
+ * <ul>
+ * <li>`-classpath <path>`: Class path shared by all modules (which should include the annotation).
+ * <li>`-threads <n>`: Number of modules processed at once. Defaults to the number of available processors.
+ * <li>`-A<key>[=<value>]`: Option passed to the processor of every module. The cache option is given a directory, in
+ * which each module gets a cache file of its own.
+ * </ul>
+ */
+public class BatchReification {
+	private static final int DEFAULT_WORKER_CACHE_SIZE = 10_000;
+	
+	private final JavaCompiler compiler;
+	private final List<File> classPath;
+	private final Map<String, String> processorOptions;
+	private final int threads;
+	
+	public BatchReification(List<File> classPath, Map<String, String> processorOptions, int threads) {
+		this.compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("Batch reification must be run on a JDK");
+		}
+		this.classPath = Objects.requireNonNull(classPath, "classPath");
+		this.processorOptions = Objects.requireNonNull(processorOptions, "processorOptions");
+		this.threads = threads;
+	}
+	
+	public static void main(String[] args) {
+		System.exit(run(Arrays.asList(args), System.err));
+	}
+	
+	/**
+	 * Runs the tool with the given command line arguments and returns its exit status: 0 if all modules were processed
+	 * successfully, 1 if any of them failed and 2 if the arguments are invalid.
+	 */
+	public static int run(List<String> args, PrintStream out) {
+		List<File> classPath = new ArrayList<>();
+		Map<String, String> processorOptions = new LinkedHashMap<>();
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Module> modules = new ArrayList<>();
+		
+		Iterator<String> iterator = args.iterator();
+		while (iterator.hasNext()) {
+			String arg = iterator.next();
+			if (arg.equals("-classpath") || arg.equals("-cp")) {
+				if (!iterator.hasNext()) {
+					return usage(out, "Missing value of '" + arg + "'");
+				}
+				classPath.addAll(files(iterator.next()));
+			} else if (arg.equals("-threads")) {
+				if (!iterator.hasNext()) {
+					return usage(out, "Missing value of '" + arg + "'");
+				}
+				String value = iterator.next();
+				try {
+					threads = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					threads = 0;
+				}
+				if (threads < 1) {
+					return usage(out, "Number of threads must be a positive integer but was '" + value + "'");
+				}
+			} else if (arg.startsWith("-A")) {
+				int index = arg.indexOf('=');
+				if (index < 0) {
+					processorOptions.put(arg.substring(2), null);
+				} else {
+					processorOptions.put(arg.substring(2, index), arg.substring(index + 1));
+				}
+			} else if (arg.startsWith("-")) {
+				return usage(out, "Unknown option '" + arg + "'");
+			} else {
+				int index = arg.lastIndexOf('=');
+				if (index <= 0 || index == arg.length() - 1) {
+					return usage(out, "Module '" + arg + "' must be given as '<source roots>=<output directory>'");
+				}
+				modules.add(new Module(files(arg.substring(0, index)), new File(arg.substring(index + 1))));
+			}
+		}
+		if (modules.isEmpty()) {
+			return usage(out, "No modules given");
+		}
+		
+		return new BatchReification(classPath, processorOptions, threads).reify(modules, out) ? 0 : 1;
+	}
+	
+	/**
+	 * Processes the given modules and reports their errors and warnings (in the order of the modules) to the given
+	 * stream. Returns true if all modules were processed successfully.
+	 */
+	public boolean reify(List<Module> modules, PrintStream out) {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, modules.size()));
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (Module module : modules) {
+				futures.add(executor.submit(() -> reify(module)));
+			}
+			
+			int failed = 0;
+			for (int i = 0; i < modules.size(); i++) {
+				Result result;
+				try {
+					result = futures.get(i).get();
+				} catch (ExecutionException e) {
+					result = new Result(false, Collections.singletonList(String.valueOf(e.getCause())));
+				}
+				for (String message : result.messages) {
+					out.println(String.format("[%s] %s", modules.get(i).outputDirectory, message));
+				}
+				if (!result.success) {
+					failed++;
+				}
+			}
+			
+			out.println(
+					String.format(
+							"Processed %d modules (%d failed) in %d ms",
+							modules.size(),
+							failed,
+							(System.nanoTime() - start) / 1_000_000
+					)
+			);
+			return failed == 0;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private Result reify(Module module) throws IOException {
+		List<File> sources = new ArrayList<>();
+		for (File sourceRoot : module.sourceRoots) {
+			sources.addAll(sources(sourceRoot.toPath()));
+		}
+		if (sources.isEmpty()) {
+			return new Result(true, Collections.emptyList());
+		}
+		Files.createDirectories(module.outputDirectory.toPath());
+		
+		List<String> options = options(module);
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		boolean success;
+		// File managers aren't thread-safe, so each task gets one of its own.
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+			fileManager.setLocation(CLASS_PATH, classPath);
+			fileManager.setLocation(SOURCE_PATH, module.sourceRoots);
+			fileManager.setLocation(SOURCE_OUTPUT, Collections.singletonList(module.outputDirectory));
+			fileManager.setLocation(CLASS_OUTPUT, Collections.singletonList(module.outputDirectory));
+			
+			JavaCompiler.CompilationTask task = compiler.getTask(
+					null,
+					fileManager,
+					diagnostics,
+					options,
+					null,
+					fileManager.getJavaFileObjectsFromFiles(sources)
+			);
+			task.setProcessors(Collections.singletonList(new ReificationProcessor()));
+			success = task.call();
+		}
+		
+		List<String> messages = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() != Diagnostic.Kind.NOTE) {
+				messages.add(diagnostic.toString());
+			}
+		}
+		return new Result(success, messages);
+	}
+	
+	private List<String> options(Module module) throws IOException {
+		Map<String, String> options = new LinkedHashMap<>(processorOptions);
+		// Modules are already processed in parallel.
+		options.putIfAbsent(ReificationProcessor.PARALLELISM_OPTION, "1");
+		options.putIfAbsent(ReificationProcessor.WORKER_CACHE_OPTION, String.valueOf(DEFAULT_WORKER_CACHE_SIZE));
+		String cacheDirectory = options.get(ReificationProcessor.CACHE_OPTION);
+		if (cacheDirectory != null && !cacheDirectory.isEmpty()) {
+			Files.createDirectories(new File(cacheDirectory).toPath());
+			options.put(ReificationProcessor.CACHE_OPTION, new File(cacheDirectory, cacheName(module)).getPath());
+		}
+		
+		List<String> compilerOptions = new ArrayList<>();
+		compilerOptions.add("-proc:only");
+		options.forEach((key, value) -> compilerOptions.add(value == null ? "-A" + key : "-A" + key + '=' + value));
+		return compilerOptions;
+	}
+	
+	// Distinct modules have distinct output directories, and thus distinct cache files.
+	private static String cacheName(Module module) {
+		return module.outputDirectory.getAbsolutePath().replaceAll("[^A-Za-z0-9.-]", "_");
+	}
+	
+	private static List<File> sources(Path sourceRoot) throws IOException {
+		if (!Files.isDirectory(sourceRoot)) {
+			return Collections.emptyList();
+		}
+		try (Stream<Path> paths = Files.walk(sourceRoot)) {
+			return paths
+					.filter(p -> p.getFileName().toString().endsWith(".java") && Files.isRegularFile(p))
+					.sorted()
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private static List<File> files(String path) {
+		return Arrays.stream(path.split(File.pathSeparator))
+				.filter(s -> !s.isEmpty())
+				.map(File::new)
+				.collect(Collectors.toList());
+	}
+	
+	private static int usage(PrintStream out, String message) {
+		out.println(message);
+		out.println(
+				"Usage: reification.BatchReification [-classpath <path>] [-threads <n>] [-A<key>[=<value>]...] "
+						+ "<source roots>=<output directory>..."
+		);
+		return 2;
+	}
+	
+	/**
+	 * Sources of a single module and the directory that the types generated from them are written to.
+	 */
+	public static class Module {
+		private final List<File> sourceRoots;
+		private final File outputDirectory;
+		
+		public Module(List<File> sourceRoots, File outputDirectory) {
+			this.sourceRoots = Objects.requireNonNull(sourceRoots, "sourceRoots");
+			this.outputDirectory = Objects.requireNonNull(outputDirectory, "outputDirectory");
+		}
+	}
+	
+	private static class Result {
+		final boolean success;
+		final List<String> messages;
+		
+		Result(boolean success, List<String> messages) {
+			this.success = success;
+			this.messages = messages;
+		}
+	}
+}
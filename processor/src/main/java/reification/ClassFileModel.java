@@ -0,0 +1,351 @@
+package reification;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+import static javax.lang.model.element.ElementKind.METHOD;
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Per-compilation access to the parts of the model that generated class files are derived from: Descriptors and
+ * signatures of types, the methods that an auto-implemented method overrides, and the conversions of method arguments.
+ * Like the model itself, it's only to be used on the compiler's thread. The method nodes that it builds are free of the
+ * model, such that they may be rendered off that thread.
+ */
+public class ClassFileModel {
+	private final Types types;
+	private final Elements elements;
+	
+	private final Map<TypeElement, String> internalNames = new HashMap<>();
+	private final Map<TypeElement, List<TypeElement>> supertypes = new HashMap<>();
+	
+	public ClassFileModel(Types types, Elements elements) {
+		this.types = Objects.requireNonNull(types, "types");
+		this.elements = Objects.requireNonNull(elements, "elements");
+	}
+	
+	public String internalName(TypeElement typeElement) {
+		return internalNames.computeIfAbsent(typeElement, e -> elements.getBinaryName(e).toString().replace('.', '/'));
+	}
+	
+	/**
+	 * Returns the descriptor of the erasure of the given type.
+	 */
+	public String descriptor(TypeMirror type) {
+		switch (type.getKind()) {
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case SHORT:
+				return "S";
+			case CHAR:
+				return "C";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case VOID:
+				return "V";
+			case ARRAY:
+				return "[" + descriptor(((ArrayType) type).getComponentType());
+			case DECLARED:
+				return "L" + internalName((TypeElement) ((DeclaredType) type).asElement()) + ";";
+			case TYPEVAR:
+			case INTERSECTION:
+				return descriptor(types.erasure(type));
+			default:
+				throw new IllegalStateException(
+						String.format("Expected type '%s' of kind '%s' to have a descriptor", type, type.getKind())
+				);
+		}
+	}
+	
+	/**
+	 * Returns the generic signature of the given type, which equals its descriptor unless it's (or contains) a
+	 * parameterized type or a type variable.
+	 */
+	public String signature(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY:
+				return "[" + signature(((ArrayType) type).getComponentType());
+			case DECLARED:
+				DeclaredType declaredType = (DeclaredType) type;
+				TypeElement typeElement = (TypeElement) declaredType.asElement();
+				
+				// Members of parameterized types are qualified by the signature of their enclosing type.
+				StringBuilder stringBuilder = new StringBuilder();
+				String enclosingSignature = declaredType.getEnclosingType().getKind() == TypeKind.DECLARED
+						? signature(declaredType.getEnclosingType())
+						: "";
+				if (enclosingSignature.indexOf('<') >= 0) {
+					stringBuilder.append(enclosingSignature, 0, enclosingSignature.length() - 1)
+							.append('.')
+							.append(typeElement.getSimpleName());
+				} else {
+					stringBuilder.append('L').append(internalName(typeElement));
+				}
+				
+				List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+				if (!typeArguments.isEmpty()) {
+					stringBuilder.append('<');
+					typeArguments.forEach(t -> stringBuilder.append(typeArgumentSignature(t)));
+					stringBuilder.append('>');
+				}
+				return stringBuilder.append(';').toString();
+			case TYPEVAR:
+				return "T" + ((TypeVariable) type).asElement().getSimpleName() + ";";
+			default:
+				return descriptor(type);
+		}
+	}
+	
+	private String typeArgumentSignature(TypeMirror typeArgument) {
+		if (typeArgument.getKind() != TypeKind.WILDCARD) {
+			return signature(typeArgument);
+		}
+		
+		WildcardType wildcardType = (WildcardType) typeArgument;
+		if (wildcardType.getExtendsBound() != null) {
+			return "+" + signature(wildcardType.getExtendsBound());
+		}
+		if (wildcardType.getSuperBound() != null) {
+			return "-" + signature(wildcardType.getSuperBound());
+		}
+		return "*";
+	}
+	
+	/**
+	 * Returns the type `Class<T>` of class literals of the given type.
+	 */
+	public DeclaredType classType(DeclaredType type) {
+		return types.getDeclaredType(elements.getTypeElement(Class.class.getCanonicalName()), types.erasure(type));
+	}
+	
+	/**
+	 * Returns an empty node of a method that overrides the given one with the given return type, declaring the given
+	 * exceptions. As in the generated source, the node has the parameters of the overridden method, but no type
+	 * parameters.
+	 */
+	public MethodNode methodNode(ExecutableElement methodElement, TypeMirror returnType, List<? extends TypeMirror> thrownTypes) {
+		StringBuilder descriptor = new StringBuilder("(");
+		StringBuilder signature = new StringBuilder("(");
+		for (VariableElement parameter : methodElement.getParameters()) {
+			descriptor.append(descriptor(parameter.asType()));
+			signature.append(signature(parameter.asType()));
+		}
+		descriptor.append(')').append(descriptor(returnType));
+		signature.append(')').append(signature(returnType));
+		
+		return new MethodNode(
+				access(methodElement.getModifiers()) | (methodElement.isVarArgs() ? Opcodes.ACC_VARARGS : 0),
+				methodElement.getSimpleName().toString(),
+				descriptor.toString(),
+				signature.toString().equals(descriptor.toString()) ? null : signature.toString(),
+				exceptions(thrownTypes).toArray(new String[0])
+		);
+	}
+	
+	/**
+	 * Returns the erased descriptors of the given method of the given type and of all the methods that it overrides in
+	 * the supertypes of the type, in the order in which these are found, along with the exceptions that they declare.
+	 * An implementation of the method needs a bridge method for each of them that differs from its own descriptor.
+	 */
+	public Map<String, List<String>> overriddenMethods(TypeElement typeElement, ExecutableElement methodElement) {
+		Map<String, List<String>> overriddenMethods = new LinkedHashMap<>();
+		for (TypeElement supertypeElement : supertypes(typeElement)) {
+			for (Element memberElement : supertypeElement.getEnclosedElements()) {
+				if (memberElement.getKind() != METHOD || !memberElement.getSimpleName().equals(methodElement.getSimpleName())) {
+					continue;
+				}
+				
+				ExecutableElement overriddenElement = (ExecutableElement) memberElement;
+				Set<Modifier> modifiers = overriddenElement.getModifiers();
+				if (modifiers.contains(STATIC) || modifiers.contains(PRIVATE)) {
+					continue;
+				}
+				if (overriddenElement.equals(methodElement) || elements.overrides(methodElement, overriddenElement, typeElement)) {
+					StringBuilder descriptor = new StringBuilder("(");
+					overriddenElement.getParameters().forEach(p -> descriptor.append(descriptor(p.asType())));
+					descriptor.append(')').append(descriptor(overriddenElement.getReturnType()));
+					overriddenMethods.putIfAbsent(descriptor.toString(), exceptions(overriddenElement.getThrownTypes()));
+				}
+			}
+		}
+		return overriddenMethods;
+	}
+	
+	private List<String> exceptions(List<? extends TypeMirror> thrownTypes) {
+		List<String> exceptions = new ArrayList<>(thrownTypes.size());
+		for (TypeMirror thrownType : thrownTypes) {
+			exceptions.add(internalName((TypeElement) types.asElement(types.erasure(thrownType))));
+		}
+		return exceptions;
+	}
+	
+	/**
+	 * Appends the instructions converting a value of one type into another one in an assignment context: Primitive
+	 * widening, boxing, unboxing and casts where the erasure of the source type isn't a subtype of the one of the
+	 * target type.
+	 */
+	public void convert(InsnList instructions, TypeMirror from, TypeMirror to) {
+		if (from.getKind().isPrimitive()) {
+			if (to.getKind().isPrimitive()) {
+				widen(instructions, from.getKind(), to.getKind());
+				return;
+			}
+			
+			TypeElement boxedElement = types.boxedClass((PrimitiveType) from);
+			String owner = internalName(boxedElement);
+			instructions.add(
+					new MethodInsnNode(
+							Opcodes.INVOKESTATIC,
+							owner,
+							"valueOf",
+							"(" + descriptor(from) + ")L" + owner + ";",
+							false
+					)
+			);
+			return;
+		}
+		
+		if (to.getKind().isPrimitive()) {
+			TypeMirror erasure = types.erasure(from);
+			PrimitiveType unboxedType = types.unboxedType(erasure);
+			instructions.add(
+					new MethodInsnNode(
+							Opcodes.INVOKEVIRTUAL,
+							internalName((TypeElement) types.asElement(erasure)),
+							unboxedType.getKind().name().toLowerCase(Locale.ROOT) + "Value",
+							"()" + descriptor(unboxedType),
+							false
+					)
+			);
+			widen(instructions, unboxedType.getKind(), to.getKind());
+			return;
+		}
+		
+		TypeMirror erasure = types.erasure(to);
+		if (!types.isSubtype(types.erasure(from), erasure)) {
+			instructions.add(new TypeInsnNode(Opcodes.CHECKCAST, Type.getType(descriptor(erasure)).getInternalName()));
+		}
+	}
+	
+	private static void widen(InsnList instructions, TypeKind from, TypeKind to) {
+		int opcode;
+		switch (to) {
+			case LONG:
+				opcode = from == TypeKind.LONG ? Opcodes.NOP : Opcodes.I2L;
+				break;
+			case FLOAT:
+				opcode = from == TypeKind.FLOAT ? Opcodes.NOP : from == TypeKind.LONG ? Opcodes.L2F : Opcodes.I2F;
+				break;
+			case DOUBLE:
+				opcode = from == TypeKind.DOUBLE
+						? Opcodes.NOP
+						: from == TypeKind.FLOAT ? Opcodes.F2D : from == TypeKind.LONG ? Opcodes.L2D : Opcodes.I2D;
+				break;
+			default:
+				// Widening between `byte`, `short`, `char` and `int` is implicit on the stack.
+				opcode = Opcodes.NOP;
+		}
+		if (opcode != Opcodes.NOP) {
+			instructions.add(new InsnNode(opcode));
+		}
+	}
+	
+	/**
+	 * Returns whether an argument of the given type is passed to a variable arity parameter of the given type by
+	 * variable arity invocation, i.e. whether it doesn't pass the array itself.
+	 */
+	public boolean variableArityArgument(TypeMirror argumentType, TypeMirror parameterType) {
+		return !types.isAssignable(argumentType, parameterType)
+				&& !types.isAssignable(types.erasure(argumentType), types.erasure(parameterType));
+	}
+	
+	private List<TypeElement> supertypes(TypeElement typeElement) {
+		List<TypeElement> result = supertypes.get(typeElement);
+		if (result != null) {
+			return result;
+		}
+		
+		// Breadth-first, such that the order is the one of the declarations.
+		Set<TypeElement> visited = new LinkedHashSet<>();
+		Deque<TypeElement> queue = new ArrayDeque<>();
+		queue.add(typeElement);
+		while (!queue.isEmpty()) {
+			TypeElement element = queue.remove();
+			if (!visited.add(element)) {
+				continue;
+			}
+			for (TypeMirror supertype : types.directSupertypes(element.asType())) {
+				Element supertypeElement = types.asElement(supertype);
+				if (supertypeElement instanceof TypeElement) {
+					queue.add((TypeElement) supertypeElement);
+				}
+			}
+		}
+		result = new ArrayList<>(visited);
+		supertypes.put(typeElement, result);
+		return result;
+	}
+	
+	/**
+	 * Returns a bridge method with the given descriptor and exceptions, which delegates to the given method of the given
+	 * (generated) type. Arguments are cast to the parameter types of the method where these differ.
+	 */
+	public static MethodNode bridge(String owner, boolean interfaceType, MethodNode method, String descriptor, List<String> exceptions) {
+		MethodNode bridge = new MethodNode(
+				(method.access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC,
+				method.name,
+				descriptor,
+				null,
+				exceptions.toArray(new String[0])
+		);
+		
+		Type[] parameterTypes = Type.getArgumentTypes(descriptor);
+		Type[] methodParameterTypes = Type.getArgumentTypes(method.desc);
+		bridge.instructions.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		int slot = 1;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			bridge.instructions.add(new VarInsnNode(parameterTypes[i].getOpcode(Opcodes.ILOAD), slot));
+			if (!parameterTypes[i].equals(methodParameterTypes[i])) {
+				bridge.instructions.add(new TypeInsnNode(Opcodes.CHECKCAST, methodParameterTypes[i].getInternalName()));
+			}
+			slot += parameterTypes[i].getSize();
+		}
+		bridge.instructions.add(
+				new MethodInsnNode(
+						interfaceType ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+						owner,
+						method.name,
+						method.desc,
+						interfaceType
+				)
+		);
+		bridge.instructions.add(new InsnNode(Type.getReturnType(descriptor).getOpcode(Opcodes.IRETURN)));
+		return bridge;
+	}
+	
+	private static int access(Set<Modifier> modifiers) {
+		int access = 0;
+		if (modifiers.contains(PUBLIC)) {
+			access |= Opcodes.ACC_PUBLIC;
+		}
+		if (modifiers.contains(PROTECTED)) {
+			access |= Opcodes.ACC_PROTECTED;
+		}
+		return access;
+	}
+}
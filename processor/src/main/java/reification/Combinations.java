@@ -0,0 +1,76 @@
+package reification;
+
+import javax.lang.model.type.TypeMirror;
+import java.util.*;
+
+/**
+ * The combinations of the types that the type parameters of a reifying type are reified with, by the names of the type
+ * parameters (in order). Combinations are enumerated lazily, like the digits of an odometer with the last type parameter
+ * changing fastest, such that only a single combination is built at a time regardless of the size of the product.
+ */
+public class Combinations implements Iterable<LinkedHashMap<String, TypeMirror>> {
+	private final List<String> typeParameterNames;
+	private final List<List<TypeMirror>> reifiedTypes;
+	
+	/**
+	 * Creates the combinations of the given types of each type parameter. Type parameters that aren't reified are given a
+	 * single null type.
+	 */
+	public Combinations(LinkedHashMap<String, List<TypeMirror>> reifiedTypes) {
+		Objects.requireNonNull(reifiedTypes, "reifiedTypes");
+		this.typeParameterNames = new ArrayList<>(reifiedTypes.keySet());
+		this.reifiedTypes = new ArrayList<>(reifiedTypes.values());
+	}
+	
+	/**
+	 * Returns the number of combinations, or `Long.MAX_VALUE` if it's larger than that.
+	 */
+	public long size() {
+		long size = 1;
+		for (List<TypeMirror> types : reifiedTypes) {
+			if (types.isEmpty()) {
+				return 0;
+			}
+			if (size > Long.MAX_VALUE / types.size()) {
+				return Long.MAX_VALUE;
+			}
+			size *= types.size();
+		}
+		return size;
+	}
+	
+	@Override
+	public Iterator<LinkedHashMap<String, TypeMirror>> iterator() {
+		int[] indices = new int[reifiedTypes.size()];
+		return new Iterator<LinkedHashMap<String, TypeMirror>>() {
+			private boolean hasNext = size() > 0;
+			
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+			
+			@Override
+			public LinkedHashMap<String, TypeMirror> next() {
+				if (!hasNext) {
+					throw new NoSuchElementException();
+				}
+				LinkedHashMap<String, TypeMirror> combination = new LinkedHashMap<>();
+				for (int i = 0; i < indices.length; i++) {
+					combination.put(typeParameterNames.get(i), reifiedTypes.get(i).get(indices[i]));
+				}
+				
+				hasNext = false;
+				for (int i = indices.length - 1; i >= 0 && !hasNext; i--) {
+					indices[i]++;
+					if (indices[i] < reifiedTypes.get(i).size()) {
+						hasNext = true;
+					} else {
+						indices[i] = 0;
+					}
+				}
+				return combination;
+			}
+		};
+	}
+}
@@ -0,0 +1,262 @@
+package reification;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+import static javax.lang.model.element.ElementKind.CONSTRUCTOR;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+/**
+ * Index of the constructors of instantiated types. Each type is only scanned once, no matter how many auto-implemented
+ * methods instantiate it.
+ * <p>
+ * Resolution follows the phases of JLS 15.12.2: Constructors applicable by strict invocation (subtyping) are preferred
+ * over the ones applicable by loose invocation (boxing), which in turn are preferred over the ones applicable by
+ * variable arity invocation. Among the applicable constructors of a phase, the most specific one is selected. Only
+ * constructors that are accessible from the package of the generated type are considered.
+ * <p>
+ * Parameterized types must match exactly, except where javac converts or infers them: Raw types are compared by their
+ * erasure (unchecked conversion), as are types mentioning type variables of the constructor or, if the type is
+ * instantiated raw, of the type (inference).
+ */
+public class ConstructorIndex {
+	private final Types types;
+	
+	private final Map<TypeElement, Constructors> constructorsByType = new HashMap<>();
+	
+	public ConstructorIndex(Types types) {
+		this.types = Objects.requireNonNull(types, "types");
+	}
+	
+	/**
+	 * Returns the most specific constructors of the given type that are applicable to arguments of the given types and
+	 * accessible from the package of the given reifying type (where the generated type resides). The result is empty if
+	 * no constructor is applicable and contains more than one element if the resolution is ambiguous.
+	 */
+	public List<ExecutableElement> resolve(DeclaredType type, List<? extends TypeMirror> argumentTypes, TypeElement reifyingType) {
+		TypeElement typeElement = (TypeElement) type.asElement();
+		Constructors constructors = constructorsByType.computeIfAbsent(typeElement, this::index);
+		int arity = argumentTypes.size();
+		
+		// Constructors that aren't public are only accessible from the package of the type (protected ones included, as
+		// the generated type doesn't extend it).
+		boolean samePackage = packageOf(typeElement).equals(packageOf(reifyingType));
+		List<Constructor> candidates = accessible(constructors.fixedArity.getOrDefault(arity, Collections.emptyList()), samePackage);
+		boolean raw = raw(type);
+		
+		// Phase 1: Strict invocation.
+		List<Constructor> applicable = applicable(candidates, argumentTypes, false, raw);
+		if (applicable.isEmpty()) {
+			// Phase 2: Loose invocation.
+			applicable = applicable(candidates, argumentTypes, true, raw);
+		}
+		if (!applicable.isEmpty()) {
+			return mostSpecific(applicable, arity, false, raw);
+		}
+		
+		// Phase 3: Variable arity invocation.
+		applicable = variableArityApplicable(accessible(constructors.variableArity, samePackage), argumentTypes, raw);
+		return mostSpecific(applicable, arity, true, raw);
+	}
+	
+	private Constructors index(TypeElement typeElement) {
+		Constructors constructors = new Constructors();
+		for (Element element : typeElement.getEnclosedElements()) {
+			if (element.getKind() != CONSTRUCTOR || element.getModifiers().contains(PRIVATE)) {
+				continue;
+			}
+			
+			Constructor constructor = new Constructor((ExecutableElement) element);
+			constructors.fixedArity
+					.computeIfAbsent(constructor.parameterTypes.size(), n -> new ArrayList<>())
+					.add(constructor);
+			if (constructor.element.isVarArgs()) {
+				constructors.variableArity.add(constructor);
+			}
+		}
+		return constructors;
+	}
+	
+	private static List<Constructor> accessible(List<Constructor> constructors, boolean samePackage) {
+		if (samePackage) {
+			return constructors;
+		}
+		List<Constructor> accessible = new ArrayList<>();
+		for (Constructor constructor : constructors) {
+			if (constructor.element.getModifiers().contains(PUBLIC)) {
+				accessible.add(constructor);
+			}
+		}
+		return accessible;
+	}
+	
+	private static PackageElement packageOf(Element element) {
+		while (!(element instanceof PackageElement)) {
+			element = element.getEnclosingElement();
+		}
+		return (PackageElement) element;
+	}
+	
+	private List<Constructor> applicable(List<Constructor> candidates, List<? extends TypeMirror> argumentTypes, boolean loose, boolean raw) {
+		List<Constructor> applicable = new ArrayList<>();
+		for (Constructor candidate : candidates) {
+			if (convertible(argumentTypes, candidate.parameterTypes, loose, raw)) {
+				applicable.add(candidate);
+			}
+		}
+		return applicable;
+	}
+	
+	private boolean convertible(List<? extends TypeMirror> argumentTypes, List<? extends TypeMirror> parameterTypes, boolean loose, boolean raw) {
+		for (int i = 0; i < argumentTypes.size(); i++) {
+			if (!convertible(argumentTypes.get(i), parameterTypes.get(i), loose, raw)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private List<Constructor> variableArityApplicable(List<Constructor> candidates, List<? extends TypeMirror> argumentTypes, boolean raw) {
+		List<Constructor> applicable = new ArrayList<>();
+		for (Constructor candidate : candidates) {
+			if (argumentTypes.size() < candidate.parameterTypes.size() - 1) {
+				continue;
+			}
+			if (convertible(argumentTypes, candidate.expandedParameterTypes(argumentTypes.size()), true, raw)) {
+				applicable.add(candidate);
+			}
+		}
+		return applicable;
+	}
+	
+	private List<ExecutableElement> mostSpecific(List<Constructor> applicable, int arity, boolean variableArity, boolean raw) {
+		if (applicable.size() <= 1) {
+			return toElements(applicable);
+		}
+		
+		List<Constructor> maximallySpecific = new ArrayList<>();
+		for (Constructor candidate : applicable) {
+			boolean mostSpecific = true;
+			for (Constructor other : applicable) {
+				if (candidate != other && !moreSpecific(candidate, other, arity, variableArity, raw)) {
+					mostSpecific = false;
+					break;
+				}
+			}
+			if (mostSpecific) {
+				maximallySpecific.add(candidate);
+			}
+		}
+		
+		if (maximallySpecific.isEmpty()) {
+			// Ambiguous: Report all applicable constructors.
+			return toElements(applicable);
+		}
+		return toElements(maximallySpecific);
+	}
+	
+	private boolean moreSpecific(Constructor constructor, Constructor other, int arity, boolean variableArity, boolean raw) {
+		List<TypeMirror> parameterTypes = variableArity ? constructor.expandedParameterTypes(arity) : constructor.parameterTypes;
+		List<TypeMirror> otherParameterTypes = variableArity ? other.expandedParameterTypes(arity) : other.parameterTypes;
+		for (int i = 0; i < arity; i++) {
+			if (!convertible(parameterTypes.get(i), otherParameterTypes.get(i), false, raw)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private boolean convertible(TypeMirror from, TypeMirror to, boolean loose, boolean raw) {
+		if (loose ? types.isAssignable(from, to) : types.isSubtype(from, to)) {
+			return true;
+		}
+		// Erasure approximates unchecked conversion and inference of type variables of the constructor (or of its type,
+		// if that is instantiated raw).
+		if (!raw(from) && !raw(to) && !inferred(to, raw)) {
+			return false;
+		}
+		return loose
+				? types.isAssignable(types.erasure(from), types.erasure(to))
+				: types.isSubtype(types.erasure(from), types.erasure(to));
+	}
+	
+	private static boolean raw(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY:
+				return raw(((ArrayType) type).getComponentType());
+			case DECLARED:
+				return ((DeclaredType) type).getTypeArguments().isEmpty()
+						&& !((TypeElement) ((DeclaredType) type).asElement()).getTypeParameters().isEmpty();
+			default:
+				return false;
+		}
+	}
+	
+	// Whether the given parameter type mentions a type variable that is inferred when the constructor is invoked.
+	private static boolean inferred(TypeMirror type, boolean raw) {
+		switch (type.getKind()) {
+			case TYPEVAR:
+				Element genericElement = ((TypeVariable) type).asElement().getEnclosingElement();
+				return genericElement.getKind() == CONSTRUCTOR || raw && genericElement instanceof TypeElement;
+			case ARRAY:
+				return inferred(((ArrayType) type).getComponentType(), raw);
+			case WILDCARD:
+				WildcardType wildcardType = (WildcardType) type;
+				return wildcardType.getExtendsBound() != null && inferred(wildcardType.getExtendsBound(), raw)
+						|| wildcardType.getSuperBound() != null && inferred(wildcardType.getSuperBound(), raw);
+			case DECLARED:
+				for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+					if (inferred(typeArgument, raw)) {
+						return true;
+					}
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+	
+	private static List<ExecutableElement> toElements(List<Constructor> constructors) {
+		List<ExecutableElement> elements = new ArrayList<>(constructors.size());
+		for (Constructor constructor : constructors) {
+			elements.add(constructor.element);
+		}
+		return elements;
+	}
+	
+	private static class Constructors {
+		final Map<Integer, List<Constructor>> fixedArity = new HashMap<>();
+		final List<Constructor> variableArity = new ArrayList<>();
+	}
+	
+	private static class Constructor {
+		final ExecutableElement element;
+		final List<TypeMirror> parameterTypes = new ArrayList<>();
+		
+		Constructor(ExecutableElement element) {
+			this.element = element;
+			element.getParameters().forEach(p -> parameterTypes.add(p.asType()));
+		}
+		
+		List<TypeMirror> expandedParameterTypes(int arity) {
+			// Expand variable arity parameter into its components.
+			int fixedArity = parameterTypes.size() - 1;
+			TypeMirror componentType = ((ArrayType) parameterTypes.get(fixedArity)).getComponentType();
+			List<TypeMirror> expanded = new ArrayList<>(parameterTypes.subList(0, fixedArity));
+			while (expanded.size() < arity) {
+				expanded.add(componentType);
+			}
+			return expanded;
+		}
+	}
+}
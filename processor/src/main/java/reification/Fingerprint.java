@@ -0,0 +1,143 @@
+package reification;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.List;
+import java.util.Map;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+
+/**
+ * Fingerprint of everything that the source of a generated type is derived from: The reifying type itself, its type
+ * parameters and the types they're reified with, the signatures of its abstract methods and the constructors that
+ * auto-implemented methods may resolve to. Types with equal fingerprints generate equal sources.
+ * <p>
+ * Class files additionally depend on the constructors of the reifying type (as the generated default constructor calls
+ * one of them) and on the erasures of the methods that auto-implemented methods override (as these get bridge methods),
+ * so these are included when generating class files.
+ * <p>
+ * Specializations (of final types and of types reified with primitive types) are derived from the source of the
+ * reifying type instead, so their fingerprints include the full source text, as well as the supertypes of its
+ * superclasses (which a superclass that depends on the type parameter is replaced by).
+ */
+public class Fingerprint {
+	// Must be bumped whenever the generated source changes for the same input.
+	private static final int VERSION = 10;
+	
+	private final StringBuilder fingerprint = new StringBuilder();
+	
+	public static String of(
+			TypeElement typeElement,
+			String generatedQualifiedName,
+			ClassFileModel classFileModel,
+			Map<String, DeclaredType> reifiedTypeArguments,
+			List<ExecutableElement> abstractMethods
+	) {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.line("version", VERSION);
+		fingerprint.line("generated", generatedQualifiedName, classFileModel == null ? "source" : "class");
+		fingerprint.line("type", typeElement.getKind(), typeElement.getQualifiedName(), typeElement.getModifiers());
+		for (TypeParameterElement typeParameter : typeElement.getTypeParameters()) {
+			fingerprint.line("parameter", typeParameter, typeParameter.getBounds());
+		}
+		for (Map.Entry<String, DeclaredType> entry : reifiedTypeArguments.entrySet()) {
+			DeclaredType reifiedType = entry.getValue();
+			fingerprint.line("reified", entry.getKey(), reifiedType);
+			if (reifiedType != null) {
+				for (ExecutableElement constructor : ElementFilter.constructorsIn(reifiedType.asElement().getEnclosedElements())) {
+					if (!constructor.getModifiers().contains(PRIVATE)) {
+						fingerprint.executable("constructor", constructor);
+					}
+				}
+			}
+		}
+		for (ExecutableElement abstractMethod : abstractMethods) {
+			fingerprint.executable("method", abstractMethod);
+			if (classFileModel != null) {
+				fingerprint.line("  overridden", classFileModel.overriddenMethods(typeElement, abstractMethod));
+			}
+		}
+		if (classFileModel != null) {
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+				fingerprint.executable("superConstructor", constructor);
+			}
+		}
+		return fingerprint.fingerprint.toString();
+	}
+	
+	public static String ofSpecialization(
+			TypeElement typeElement,
+			String generatedQualifiedName,
+			TypeMirror reifiedType,
+			SourceText source,
+			List<ExecutableElement> abstractMethods
+	) {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.line("version", VERSION);
+		fingerprint.line("generated", generatedQualifiedName, "specialization");
+		fingerprint.line("type", typeElement.getKind(), typeElement.getQualifiedName(), typeElement.getModifiers());
+		fingerprint.line("reified", reifiedType);
+		if (reifiedType.getKind() == TypeKind.DECLARED) {
+			Element reifiedElement = ((DeclaredType) reifiedType).asElement();
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(reifiedElement.getEnclosedElements())) {
+				fingerprint.executable("constructor", constructor);
+			}
+		}
+		for (ExecutableElement abstractMethod : abstractMethods) {
+			fingerprint.executable("method", abstractMethod);
+		}
+		for (TypeMirror superclass = typeElement.getSuperclass(); superclass.getKind() == TypeKind.DECLARED; ) {
+			TypeElement superclassElement = (TypeElement) ((DeclaredType) superclass).asElement();
+			fingerprint.line("superclass", superclass, superclassElement.getSuperclass(), superclassElement.getInterfaces());
+			superclass = superclassElement.getSuperclass();
+		}
+		fingerprint.line("source", source.getSource().length());
+		fingerprint.fingerprint.append(source.getSource());
+		return fingerprint.fingerprint.toString();
+	}
+	
+	/**
+	 * Returns the fingerprint of a companion from the fingerprint of the types it's generated from and its entries,
+	 * whose names depend on whether holders are generated.
+	 */
+	public static String ofCompanion(String typesFingerprint, List<GeneratedCompanion.Entry> entries) {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.line("version", VERSION);
+		for (GeneratedCompanion.Entry entry : entries) {
+			fingerprint.line("entry", entry.getReifiedTypes(), entry.getGeneratedType(), entry.isInstantiable());
+		}
+		fingerprint.fingerprint.append(typesFingerprint);
+		return fingerprint.fingerprint.toString();
+	}
+	
+	private void executable(String kind, ExecutableElement executable) {
+		line(
+				kind,
+				executable.getEnclosingElement(),
+				executable.getModifiers(),
+				executable.getTypeParameters(),
+				executable.getReturnType(),
+				executable.getSimpleName(),
+				executable.isVarArgs(),
+				executable.getThrownTypes()
+		);
+		for (VariableElement parameter : executable.getParameters()) {
+			line("  parameter", parameter.getModifiers(), parameter.asType(), parameter.getSimpleName());
+		}
+	}
+	
+	private void line(String kind, Object... values) {
+		fingerprint.append(kind);
+		for (Object value : values) {
+			fingerprint.append(' ').append(value);
+		}
+		fingerprint.append('\n');
+	}
+}
@@ -0,0 +1,33 @@
+package reification;
+
+import javax.lang.model.element.TypeElement;
+import java.util.*;
+
+/**
+ * The AppCDS class list fragment of all the types generated in a compilation and their supertypes, which is written to
+ * the resource {@value ReificationClassList#RESOURCE} once processing is over (see {@link ReificationClassList} for
+ * merging fragments). Classes are named by their internal names and sorted, such that the fragment is the same in every
+ * build regardless of the order in which types are generated.
+ */
+public final class GeneratedClassList {
+	private final Set<TypeElement> originatingElements = new LinkedHashSet<>();
+	private final SortedSet<String> classNames = new TreeSet<>();
+	
+	/**
+	 * Adds the classes (by their binary names) generated from or needed by the given reifying type.
+	 */
+	public void add(TypeElement originatingElement, Collection<String> binaryNames) {
+		originatingElements.add(Objects.requireNonNull(originatingElement, "originatingElement"));
+		binaryNames.forEach(n -> classNames.add(n.replace('.', '/')));
+	}
+	
+	public TypeElement[] getOriginatingElements() {
+		return originatingElements.toArray(new TypeElement[0]);
+	}
+	
+	public String render() {
+		StringBuilder stringBuilder = new StringBuilder();
+		classNames.forEach(n -> stringBuilder.append(n).append('\n'));
+		return stringBuilder.toString();
+	}
+}
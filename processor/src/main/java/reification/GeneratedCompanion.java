@@ -0,0 +1,121 @@
+package reification;
+
+import com.squareup.javapoet.*;
+
+import javax.lang.model.element.TypeElement;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Immutable description of a companion: A non-instantiable class that looks up the types generated from a single
+ * reifying type by the classes that they're reified with, such that code only holding `Class`-objects at runtime can
+ * instantiate them without reflection. The companion of `X` is named `X$Specializations`, and its method
+ * `forType(Class<?>)` (with a parameter per type parameter of `X`) returns a factory of the type generated for the given
+ * classes, or null if no such type has been generated or it can't be instantiated through a constructor without
+ * parameters.
+ * <p>
+ * The classes are compared by identity in the order in which the types were generated. Each factory is held by a
+ * member class of its own, such that a generated type is only loaded once it's first looked up, and its factory is then
+ * published by class initialization rather than by locking.
+ */
+public final class GeneratedCompanion {
+	public static final String SUFFIX = "$Specializations";
+	
+	private final TypeElement originatingElement;
+	private final String originatingName;
+	private final String packageName;
+	private final String name;
+	private final TypeName factoryType;
+	private final List<String> parameterNames;
+	private final List<Entry> entries;
+	
+	public GeneratedCompanion(
+			TypeElement originatingElement,
+			String packageName,
+			String name,
+			TypeName factoryType,
+			List<String> parameterNames,
+			List<Entry> entries
+	) {
+		this.originatingElement = Objects.requireNonNull(originatingElement, "originatingElement");
+		this.originatingName = originatingElement.getQualifiedName().toString();
+		this.packageName = Objects.requireNonNull(packageName, "packageName");
+		this.name = Objects.requireNonNull(name, "name");
+		this.factoryType = Objects.requireNonNull(factoryType, "factoryType");
+		this.parameterNames = Collections.unmodifiableList(parameterNames);
+		this.entries = Collections.unmodifiableList(entries);
+	}
+	
+	public TypeElement getOriginatingElement() {
+		return originatingElement;
+	}
+	
+	public String getQualifiedName() {
+		return packageName.isEmpty() ? name : packageName + '.' + name;
+	}
+	
+	public JavaFile toJavaFile() {
+		TypeName classType = ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class));
+		MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder("forType")
+				.addModifiers(PUBLIC, STATIC)
+				.returns(ParameterizedTypeName.get(ClassName.get(Supplier.class), factoryType));
+		parameterNames.forEach(n -> methodBuilder.addParameter(classType, n));
+		
+		TypeSpec.Builder typeBuilder = TypeSpec.classBuilder(name)
+				.addModifiers(PUBLIC, FINAL)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build())
+				.addOriginatingElement(originatingElement);
+		for (Entry entry : entries) {
+			if (!entry.instantiable) {
+				continue;
+			}
+			
+			CodeBlock.Builder condition = CodeBlock.builder();
+			for (int i = 0; i < parameterNames.size(); i++) {
+				condition.add(i == 0 ? "$N == $T.class" : " && $N == $T.class", parameterNames.get(i), entry.reifiedTypes.get(i));
+			}
+			String factoryName = entry.generatedType.simpleName() + "$Factory";
+			methodBuilder
+					.beginControlFlow("if ($L)", condition.build())
+					.addStatement("return $N.FACTORY", factoryName)
+					.endControlFlow();
+			
+			FieldSpec factory = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(Supplier.class), entry.generatedType), "FACTORY", STATIC, FINAL)
+					.initializer("$T::new", entry.generatedType)
+					.build();
+			typeBuilder.addType(TypeSpec.classBuilder(factoryName).addModifiers(PRIVATE, STATIC, FINAL).addField(factory).build());
+		}
+		methodBuilder.addStatement("return null");
+		
+		return GeneratedType.javaFile(packageName, typeBuilder.addMethod(methodBuilder.build()).build(), originatingName, Collections.emptyMap());
+	}
+	
+	/**
+	 * A type generated for the (erased) types that the type parameters of the reifying type are reified with.
+	 */
+	public static final class Entry {
+		private final List<TypeName> reifiedTypes;
+		private final ClassName generatedType;
+		private final boolean instantiable;
+		
+		public Entry(List<TypeName> reifiedTypes, ClassName generatedType, boolean instantiable) {
+			this.reifiedTypes = Collections.unmodifiableList(reifiedTypes);
+			this.generatedType = Objects.requireNonNull(generatedType, "generatedType");
+			this.instantiable = instantiable;
+		}
+		
+		public List<TypeName> getReifiedTypes() {
+			return reifiedTypes;
+		}
+		
+		public ClassName getGeneratedType() {
+			return generatedType;
+		}
+		
+		public boolean isInstantiable() {
+			return instantiable;
+		}
+	}
+}
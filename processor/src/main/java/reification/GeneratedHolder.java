@@ -0,0 +1,60 @@
+package reification;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.lang.model.element.TypeElement;
+import java.util.*;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+/**
+ * Immutable description of a holder: A non-instantiable class that has all the types generated from a single reifying
+ * type as static member types, such that they're written into a single compilation unit. The holder of `X` is named
+ * `X$Reified`, and the type that would otherwise be generated as `X$String` is its member `X$Reified.X$String` (with the
+ * binary name `X$Reified$X$String`).
+ */
+public final class GeneratedHolder {
+	public static final String SUFFIX = "$Reified";
+	
+	private final TypeElement originatingElement;
+	private final String originatingName;
+	private final String packageName;
+	private final String name;
+	private final List<GeneratedType> memberTypes;
+	
+	public GeneratedHolder(TypeElement originatingElement, String packageName, String name, List<GeneratedType> memberTypes) {
+		this.originatingElement = Objects.requireNonNull(originatingElement, "originatingElement");
+		this.originatingName = originatingElement.getQualifiedName().toString();
+		this.packageName = Objects.requireNonNull(packageName, "packageName");
+		this.name = Objects.requireNonNull(name, "name");
+		this.memberTypes = Collections.unmodifiableList(memberTypes);
+	}
+	
+	public TypeElement getOriginatingElement() {
+		return originatingElement;
+	}
+	
+	public String getQualifiedName() {
+		return packageName.isEmpty() ? name : packageName + '.' + name;
+	}
+	
+	public JavaFile toJavaFile() {
+		TypeSpec.Builder typeBuilder = TypeSpec.classBuilder(name)
+				.addModifiers(PUBLIC, FINAL)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build())
+				.addOriginatingElement(originatingElement);
+		Map<ClassName, Set<String>> staticImports = new LinkedHashMap<>();
+		for (GeneratedType memberType : memberTypes) {
+			typeBuilder.addType(memberType.toTypeSpec(true));
+			memberType.getStaticImports().forEach(
+					(className, names) -> staticImports.computeIfAbsent(className, c -> new LinkedHashSet<>()).addAll(names)
+			);
+		}
+		return GeneratedType.javaFile(packageName, typeBuilder.build(), originatingName, staticImports);
+	}
+}
@@ -0,0 +1,35 @@
+package reification;
+
+import javax.lang.model.element.TypeElement;
+import java.util.*;
+
+/**
+ * The index of all the types generated in a compilation, which is written to the resource {@value ReificationIndex#RESOURCE}
+ * once processing is over (see {@link ReificationIndex} for the format). Lines are sorted, such that the index is the
+ * same in every build regardless of the order in which types are generated.
+ */
+public final class GeneratedIndex {
+	private static final String HEADER = "# Generated by the '@reification.Reify'-annotation processor.\n";
+	
+	private final Set<TypeElement> originatingElements = new LinkedHashSet<>();
+	private final SortedSet<String> lines = new TreeSet<>();
+	
+	/**
+	 * Adds the type (by its binary name) generated from the given reifying type for the types (by their binary names)
+	 * that it's reified with.
+	 */
+	public void add(TypeElement originatingElement, String reifyingType, List<String> typeArguments, String generatedType) {
+		originatingElements.add(Objects.requireNonNull(originatingElement, "originatingElement"));
+		lines.add(reifyingType + '\t' + String.join(",", typeArguments) + '\t' + generatedType);
+	}
+	
+	public TypeElement[] getOriginatingElements() {
+		return originatingElements.toArray(new TypeElement[0]);
+	}
+	
+	public String render() {
+		StringBuilder stringBuilder = new StringBuilder(HEADER);
+		lines.forEach(l -> stringBuilder.append(l).append('\n'));
+		return stringBuilder.toString();
+	}
+}
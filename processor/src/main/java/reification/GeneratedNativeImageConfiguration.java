@@ -0,0 +1,65 @@
+package reification;
+
+import javax.lang.model.element.TypeElement;
+import java.util.*;
+
+/**
+ * The GraalVM native image configuration of all the types generated in a compilation, which is written to
+ * `META-INF/native-image/<group>/<artifact>/` once processing is over, such that `native-image` picks it up from the
+ * class path. The reflection configuration registers each generated type such that it can be loaded by name (as from the
+ * index), along with its constructor without parameters if it has one. No other members are registered, as the methods
+ * of generated types are called directly. The resource configuration includes the index if it's generated. Entries are
+ * sorted, such that the configuration is the same in every build regardless of the order in which types are generated.
+ */
+public final class GeneratedNativeImageConfiguration {
+	private final String directory;
+	private final boolean index;
+	
+	private final Set<TypeElement> originatingElements = new LinkedHashSet<>();
+	private final SortedMap<String, Boolean> types = new TreeMap<>();
+	
+	/**
+	 * Creates the configuration of the artifact with the given coordinates (`<group>/<artifact>`), which includes the
+	 * index if it's generated.
+	 */
+	public GeneratedNativeImageConfiguration(String coordinates, boolean index) {
+		this.directory = "META-INF/native-image/" + Objects.requireNonNull(coordinates, "coordinates") + '/';
+		this.index = index;
+	}
+	
+	/**
+	 * Adds the type (by its binary name) generated from the given reifying type, and whether it has a constructor without
+	 * parameters.
+	 */
+	public void add(TypeElement originatingElement, String generatedType, boolean constructor) {
+		originatingElements.add(Objects.requireNonNull(originatingElement, "originatingElement"));
+		types.put(generatedType, constructor);
+	}
+	
+	public TypeElement[] getOriginatingElements() {
+		return originatingElements.toArray(new TypeElement[0]);
+	}
+	
+	public String getReflectionConfigurationName() {
+		return directory + "reflect-config.json";
+	}
+	
+	public String getResourceConfigurationName() {
+		return directory + "resource-config.json";
+	}
+	
+	public String renderReflectionConfiguration() {
+		List<String> entries = new ArrayList<>();
+		types.forEach((name, constructor) -> entries.add(
+				constructor
+						? String.format("  {\n    \"name\": \"%s\",\n    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]\n  }", name)
+						: String.format("  {\n    \"name\": \"%s\"\n  }", name)
+		));
+		return entries.isEmpty() ? "[]\n" : "[\n" + String.join(",\n", entries) + "\n]\n";
+	}
+	
+	public String renderResourceConfiguration() {
+		String includes = index ? String.format("\n      {\"pattern\": \"\\\\Q%s\\\\E\"}\n    ", ReificationIndex.RESOURCE) : "";
+		return "{\n  \"resources\": {\n    \"includes\": [" + includes + "]\n  }\n}\n";
+	}
+}
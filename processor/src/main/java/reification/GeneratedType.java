@@ -0,0 +1,269 @@
+package reification;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Immutable description of a type to be generated. All facts needed from the model have been extracted into it, so it
+ * may be built and rendered into source without access to the model, and thus off the compiler's thread. Types that
+ * are generated for class file output also carry the nodes of their methods (including bridge methods), from which
+ * they're rendered into the class file that the compiler would have compiled the source into.
+ * <p>
+ * Types that specialize the reifying type (rather than extend it) have supertypes, fields, initializers and static
+ * imports of their own, and can only be rendered into source.
+ * <p>
+ * The originating element is only to be handed (back) to the `Filer`.
+ */
+public final class GeneratedType {
+	private final TypeElement originatingElement;
+	private final String originatingName;
+	private final String packageName;
+	private final String name;
+	private final boolean interfaceType;
+	private final boolean abstractType;
+	private final TypeName superclass;
+	private final List<TypeName> superinterfaces;
+	private final List<AnnotationSpec> annotations;
+	private final List<FieldSpec> fields;
+	private final List<CodeBlock> initializerBlocks;
+	private final List<MethodSpec> methods;
+	private final List<MethodNode> methodNodes;
+	private final Map<ClassName, Set<String>> staticImports;
+	
+	public GeneratedType(
+			TypeElement originatingElement,
+			String packageName,
+			String name,
+			boolean interfaceType,
+			boolean abstractType,
+			TypeName superType,
+			List<AnnotationSpec> annotations,
+			List<MethodSpec> methods,
+			List<MethodNode> methodNodes
+	) {
+		this(
+				originatingElement,
+				packageName,
+				name,
+				interfaceType,
+				abstractType,
+				interfaceType ? null : superType,
+				interfaceType ? Collections.singletonList(superType) : Collections.emptyList(),
+				annotations,
+				Collections.emptyList(),
+				Collections.emptyList(),
+				methods,
+				methodNodes,
+				Collections.emptyMap()
+		);
+	}
+	
+	/**
+	 * Creates a type that may declare fields and initializer blocks as well as methods. The superclass is null for
+	 * interfaces and (implicitly) `Object`.
+	 */
+	public GeneratedType(
+			TypeElement originatingElement,
+			String packageName,
+			String name,
+			boolean interfaceType,
+			boolean abstractType,
+			TypeName superclass,
+			List<TypeName> superinterfaces,
+			List<AnnotationSpec> annotations,
+			List<FieldSpec> fields,
+			List<CodeBlock> initializerBlocks,
+			List<MethodSpec> methods,
+			List<MethodNode> methodNodes,
+			Map<ClassName, Set<String>> staticImports
+	) {
+		this.originatingElement = Objects.requireNonNull(originatingElement, "originatingElement");
+		this.originatingName = originatingElement.getQualifiedName().toString();
+		this.packageName = Objects.requireNonNull(packageName, "packageName");
+		this.name = Objects.requireNonNull(name, "name");
+		this.interfaceType = interfaceType;
+		this.abstractType = abstractType;
+		this.superclass = superclass;
+		this.superinterfaces = Collections.unmodifiableList(superinterfaces);
+		this.annotations = Collections.unmodifiableList(annotations);
+		this.fields = Collections.unmodifiableList(fields);
+		this.initializerBlocks = Collections.unmodifiableList(initializerBlocks);
+		this.methods = Collections.unmodifiableList(methods);
+		this.methodNodes = Collections.unmodifiableList(methodNodes);
+		this.staticImports = Collections.unmodifiableMap(staticImports);
+	}
+	
+	public TypeElement getOriginatingElement() {
+		return originatingElement;
+	}
+	
+	public String getQualifiedName() {
+		return packageName.isEmpty() ? name : packageName + '.' + name;
+	}
+	
+	/**
+	 * Returns whether instances of the type can be created from within its package through a constructor without
+	 * parameters.
+	 */
+	public boolean isInstantiable() {
+		if (interfaceType || abstractType) {
+			return false;
+		}
+		List<MethodSpec> constructors = methods.stream().filter(MethodSpec::isConstructor).collect(Collectors.toList());
+		return constructors.isEmpty()
+				|| constructors.stream().anyMatch(c -> c.parameters.isEmpty() && !c.modifiers.contains(PRIVATE));
+	}
+	
+	/**
+	 * Returns whether types generated from the given reifying type get a constructor without parameters that isn't
+	 * private, which {@link #isInstantiable()} requires: Subtypes only have the default constructor (which invokes the
+	 * one of the reifying type), and specializations copy the constructors of the reifying type (an implicit one as
+	 * well).
+	 */
+	static boolean hasConstructorWithoutParameters(TypeElement reifyingType) {
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(reifyingType.getEnclosedElements());
+		return constructors.isEmpty()
+				|| constructors.stream().anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(PRIVATE));
+	}
+	
+	/**
+	 * Returns the members that the file of the type must import statically, by the type declaring them.
+	 */
+	public Map<ClassName, Set<String>> getStaticImports() {
+		return staticImports;
+	}
+	
+	public JavaFile toJavaFile() {
+		return javaFile(packageName, toTypeSpec(false), originatingName, staticImports);
+	}
+	
+	static JavaFile javaFile(String packageName, TypeSpec typeSpec, String originatingName, Map<ClassName, Set<String>> staticImports) {
+		// The header must not contain anything that varies between builds (like a timestamp).
+		JavaFile.Builder fileBuilder = JavaFile.builder(packageName, typeSpec)
+				.addFileComment("Generated by the '@reification.Reify'-annotation processor from '$L'.\n", originatingName)
+				.addFileComment("Do not edit: Changes are overwritten when the file is regenerated.")
+				.skipJavaLangImports(true);
+		staticImports.forEach((className, names) -> fileBuilder.addStaticImport(className, names.toArray(new String[0])));
+		return fileBuilder.build();
+	}
+	
+	/**
+	 * Returns the spec of the type, which is a static member type of a {@link GeneratedHolder} if nested.
+	 */
+	public TypeSpec toTypeSpec(boolean nested) {
+		TypeSpec.Builder typeBuilder;
+		if (interfaceType) {
+			typeBuilder = TypeSpec.interfaceBuilder(name);
+		} else {
+			typeBuilder = TypeSpec.classBuilder(name);
+			if (superclass != null) {
+				typeBuilder.superclass(superclass);
+			}
+			if (abstractType) {
+				typeBuilder.addModifiers(ABSTRACT);
+			}
+			if (nested) {
+				// Member interfaces are implicitly static.
+				typeBuilder.addModifiers(STATIC);
+			}
+		}
+		
+		initializerBlocks.forEach(typeBuilder::addInitializerBlock);
+		return typeBuilder
+				.addSuperinterfaces(superinterfaces)
+				.addAnnotations(annotations)
+				.addModifiers(PUBLIC)
+				.addFields(fields)
+				.addMethods(methods)
+				.addOriginatingElement(originatingElement)
+				.build();
+	}
+	
+	public byte[] toClassFile() {
+		ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		
+		// The super type is reified with raw types only, so its signature is built from class names.
+		TypeName superType = interfaceType ? superinterfaces.get(0) : superclass;
+		String superTypeName = internalName(superType);
+		String superTypeSignature = signature(superType);
+		String internalName = internalName(ClassName.get(packageName, name));
+		if (interfaceType) {
+			classWriter.visit(
+					Opcodes.V1_8,
+					Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+					internalName,
+					"Ljava/lang/Object;" + superTypeSignature,
+					"java/lang/Object",
+					new String[]{superTypeName}
+			);
+		} else {
+			classWriter.visit(
+					Opcodes.V1_8,
+					Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | (abstractType ? Opcodes.ACC_ABSTRACT : 0),
+					internalName,
+					superTypeSignature,
+					superTypeName,
+					null
+			);
+			
+			// Default constructor.
+			MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+			constructor.visitCode();
+			constructor.visitVarInsn(Opcodes.ALOAD, 0);
+			constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superTypeName, "<init>", "()V", false);
+			constructor.visitInsn(Opcodes.RETURN);
+			constructor.visitMaxs(0, 0);
+			constructor.visitEnd();
+		}
+		
+		for (MethodNode methodNode : methodNodes) {
+			methodNode.accept(classWriter);
+		}
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+	
+	private static String internalName(TypeName typeName) {
+		ClassName className = typeName instanceof ParameterizedTypeName
+				? ((ParameterizedTypeName) typeName).rawType
+				: (ClassName) typeName;
+		String binaryName = String.join("$", className.simpleNames());
+		return className.packageName().isEmpty() ? binaryName : className.packageName().replace('.', '/') + '/' + binaryName;
+	}
+	
+	private static String signature(TypeName typeName) {
+		StringBuilder stringBuilder = new StringBuilder("L").append(internalName(typeName));
+		if (typeName instanceof ParameterizedTypeName) {
+			stringBuilder.append('<');
+			((ParameterizedTypeName) typeName).typeArguments.forEach(t -> stringBuilder.append(signature(t)));
+			stringBuilder.append('>');
+		}
+		return stringBuilder.append(';').toString();
+	}
+}
@@ -0,0 +1,306 @@
+package reification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of generated sources, keyed by the (SHA-256 digest of the) fingerprint of their input. The cache is a
+ * single file consisting of a fixed-size header, an index of fixed-size entries and the data that the entries point
+ * to. The file is read into memory on open (rather than mapped, which would keep it from being replaced on Windows), but
+ * only the sources that are actually hit get decoded.
+ * <p>
+ * At most one entry is kept per generated type; an entry is replaced when its type is regenerated. The file is
+ * replaced atomically on save. Builds sharing a cache file are serialized by a lock on a sibling '.lock' file, and
+ * entries that another build has saved in the meantime are kept.
+ */
+public class GenerationCache {
+	public static final GenerationCache DISABLED = new GenerationCache(null);
+	
+	private static final int MAGIC = 0x52454946;
+	private static final int VERSION = 1;
+	private static final int DIGEST_LENGTH = 32;
+	private static final int HEADER_LENGTH = 12;
+	private static final int ENTRY_LENGTH = DIGEST_LENGTH + 8 + 4;
+	
+	// File locks are held by the JVM, so processors of the same JVM must also be serialized among themselves.
+	private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+	
+	private final Path path;
+	
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+	private final Map<String, String> missedDigests = new HashMap<>();
+	private final Map<String, String> storedSources = new LinkedHashMap<>();
+	private final Map<String, String> storedDigests = new HashMap<>();
+	
+	private ByteBuffer buffer;
+	private int hits;
+	private int misses;
+	
+	private GenerationCache(Path path) {
+		this.path = path;
+	}
+	
+	/**
+	 * Opens the cache stored in the file with the given path. A missing file yields an empty cache.
+	 *
+	 * @throws IOException if the file exists but cannot be read or isn't a valid cache. It will be overwritten on save.
+	 */
+	public static GenerationCache open(Path path) throws IOException {
+		GenerationCache cache = new GenerationCache(Objects.requireNonNull(path, "path"));
+		if (Files.exists(path)) {
+			cache.locked(cache::load);
+		}
+		return cache;
+	}
+	
+	/**
+	 * Returns an empty cache to be stored in the file with the given path, disregarding any existing content.
+	 */
+	public static GenerationCache empty(Path path) {
+		return new GenerationCache(Objects.requireNonNull(path, "path"));
+	}
+	
+	public boolean isEnabled() {
+		return path != null;
+	}
+	
+	public int getHits() {
+		return hits;
+	}
+	
+	public int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the cached source of the generated type with the given qualified name if it was generated from input with
+	 * the given fingerprint, and `null` otherwise. In the latter case, the source is expected to be stored afterwards.
+	 */
+	public String get(String qualifiedName, String fingerprint) {
+		String digest = digest(fingerprint);
+		Entry entry = entries.get(digest);
+		if (entry != null && entry.name.equals(qualifiedName)) {
+			hits++;
+			return entry.source();
+		}
+		misses++;
+		missedDigests.put(qualifiedName, digest);
+		return null;
+	}
+	
+	/**
+	 * Records a miss for the generated type with the given qualified name without looking it up, for types that are
+	 * generated regardless of the cache. The source is expected to be stored afterwards.
+	 */
+	public void miss(String qualifiedName, String fingerprint) {
+		misses++;
+		missedDigests.put(qualifiedName, digest(fingerprint));
+	}
+	
+	/**
+	 * Stores the source of a generated type that was missed in the cache.
+	 */
+	public void put(String qualifiedName, String source) {
+		String digest = missedDigests.remove(qualifiedName);
+		if (digest == null) {
+			throw new IllegalStateException(String.format("No cache miss for type '%s'", qualifiedName));
+		}
+		storedSources.put(qualifiedName, source);
+		storedDigests.put(qualifiedName, digest);
+	}
+	
+	/**
+	 * Writes the cache back to its file if any sources were stored.
+	 */
+	public void save() throws IOException {
+		if (storedSources.isEmpty()) {
+			return;
+		}
+		locked(this::write);
+	}
+	
+	private void write() throws IOException {
+		// Start over from the current file, which another build may have replaced since it was opened.
+		GenerationCache current = new GenerationCache(path);
+		try {
+			if (Files.exists(path)) {
+				current.load();
+			}
+		} catch (IOException e) {
+			current = new GenerationCache(path);
+		}
+		
+		List<String> digests = new ArrayList<>();
+		List<byte[]> data = new ArrayList<>();
+		for (Map.Entry<String, Entry> entry : current.entries.entrySet()) {
+			if (!storedSources.containsKey(entry.getValue().name)) {
+				digests.add(entry.getKey());
+				data.add(entry.getValue().data());
+			}
+		}
+		for (Map.Entry<String, String> entry : storedSources.entrySet()) {
+			digests.add(storedDigests.get(entry.getKey()));
+			data.add((entry.getKey() + '\n' + entry.getValue()).getBytes(StandardCharsets.UTF_8));
+		}
+		
+		long offset = HEADER_LENGTH + (long) ENTRY_LENGTH * digests.size();
+		ByteBuffer index = ByteBuffer.allocate((int) offset);
+		index.putInt(MAGIC).putInt(VERSION).putInt(digests.size());
+		for (int i = 0; i < digests.size(); i++) {
+			index.put(unhex(digests.get(i))).putLong(offset).putInt(data.get(i).length);
+			offset += data.get(i).length;
+		}
+		index.flip();
+		
+		Path parent = path.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				while (index.hasRemaining()) {
+					channel.write(index);
+				}
+				for (byte[] bytes : data) {
+					ByteBuffer buffer = ByteBuffer.wrap(bytes);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+	
+	private void locked(IOAction action) throws IOException {
+		Path absolutePath = path.toAbsolutePath().normalize();
+		Path lockPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".lock");
+		synchronized (MONITORS.computeIfAbsent(absolutePath, p -> new Object())) {
+			Files.createDirectories(absolutePath.getParent());
+			// The lock is released when its channel is closed.
+			try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				channel.lock();
+				action.run();
+			}
+		}
+	}
+	
+	private void load() throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("Invalid generation cache '%s'", path));
+			}
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					throw new IOException(String.format("Invalid generation cache '%s'", path));
+				}
+			}
+		}
+		
+		long size = buffer.capacity();
+		if (size < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException(String.format("Invalid generation cache '%s'", path));
+		}
+		int count = buffer.getInt(8);
+		if (count < 0 || HEADER_LENGTH + (long) ENTRY_LENGTH * count > size) {
+			throw new IOException(String.format("Invalid generation cache '%s'", path));
+		}
+		
+		byte[] digest = new byte[DIGEST_LENGTH];
+		for (int i = 0; i < count; i++) {
+			int position = HEADER_LENGTH + ENTRY_LENGTH * i;
+			buffer.position(position);
+			buffer.get(digest);
+			long offset = buffer.getLong(position + DIGEST_LENGTH);
+			int length = buffer.getInt(position + DIGEST_LENGTH + 8);
+			if (offset < 0 || length < 0 || offset + length > size) {
+				throw new IOException(String.format("Invalid generation cache '%s'", path));
+			}
+			
+			Entry entry = new Entry((int) offset, length);
+			entries.put(hex(digest), entry);
+		}
+	}
+	
+	private interface IOAction {
+		void run() throws IOException;
+	}
+	
+	private class Entry {
+		private final int offset;
+		private final int length;
+		private final String name;
+		
+		private Entry(int offset, int length) throws IOException {
+			this.offset = offset;
+			this.length = length;
+			
+			int nameLength = 0;
+			while (nameLength < length && buffer.get(offset + nameLength) != '\n') {
+				nameLength++;
+			}
+			if (nameLength == length) {
+				throw new IOException(String.format("Invalid generation cache '%s'", path));
+			}
+			this.name = decode(offset, nameLength);
+		}
+		
+		String source() {
+			int nameLength = name.getBytes(StandardCharsets.UTF_8).length + 1;
+			return decode(offset + nameLength, length - nameLength);
+		}
+		
+		byte[] data() {
+			byte[] bytes = new byte[length];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(offset);
+			slice.get(bytes);
+			return bytes;
+		}
+		
+		private String decode(int offset, int length) {
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(offset);
+			slice.limit(offset + length);
+			return StandardCharsets.UTF_8.decode(slice).toString();
+		}
+	}
+	
+	private static String digest(String fingerprint) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return hex(digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+	
+	private static byte[] unhex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
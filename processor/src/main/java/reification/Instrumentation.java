@@ -0,0 +1,142 @@
+package reification;
+
+import java.util.*;
+
+/**
+ * Opt-in recording of where the processor spends its time. Durations are recorded per phase, per round and per
+ * reified type, and may be rendered as a JSON report. The disabled instance records nothing.
+ */
+public class Instrumentation {
+	public static final Instrumentation DISABLED = new Instrumentation(false);
+	
+	public enum Phase {
+		ROUND("round"),
+		GENERATE_TYPE("generateType"),
+		SUPERTYPES("supertypes"),
+		GENERATE_METHOD("generateMethod"),
+		WRITE_FILE("writeFile"),
+		RENDER("render");
+		
+		private final String key;
+		
+		Phase(String key) {
+			this.key = key;
+		}
+	}
+	
+	/**
+	 * A running measurement that is recorded when closed.
+	 */
+	public interface Span extends AutoCloseable {
+		@Override
+		void close();
+	}
+	
+	private static final Span NO_SPAN = () -> {
+	};
+	
+	private final boolean enabled;
+	
+	private final Map<Phase, Statistics> phases = new EnumMap<>(Phase.class);
+	private final Map<String, Map<Phase, Statistics>> types = new TreeMap<>();
+	private final List<Long> rounds = new ArrayList<>();
+	
+	public Instrumentation() {
+		this(true);
+	}
+	
+	private Instrumentation(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts measuring a phase on behalf of the given type, which may be `null` for phases not related to any single
+	 * type (like rounds).
+	 */
+	public Span start(Phase phase, String typeName) {
+		if (!enabled) {
+			return NO_SPAN;
+		}
+		
+		long start = System.nanoTime();
+		return () -> record(phase, typeName, System.nanoTime() - start);
+	}
+	
+	private synchronized void record(Phase phase, String typeName, long nanos) {
+		phases.computeIfAbsent(phase, p -> new Statistics()).add(nanos);
+		if (typeName != null) {
+			types.computeIfAbsent(typeName, n -> new EnumMap<>(Phase.class))
+					.computeIfAbsent(phase, p -> new Statistics())
+					.add(nanos);
+		}
+		if (phase == Phase.ROUND) {
+			rounds.add(nanos);
+		}
+	}
+	
+	public synchronized String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"phases\": ");
+		appendPhases(json, phases, "  ");
+		
+		json.append(",\n  \"rounds\": [");
+		for (int i = 0; i < rounds.size(); i++) {
+			json.append(i == 0 ? "" : ", ").append(rounds.get(i));
+		}
+		
+		json.append("],\n  \"types\": {");
+		boolean first = true;
+		for (Map.Entry<String, Map<Phase, Statistics>> entry : types.entrySet()) {
+			json.append(first ? "\n    " : ",\n    ");
+			appendString(json, entry.getKey());
+			json.append(": ");
+			appendPhases(json, entry.getValue(), "    ");
+			first = false;
+		}
+		json.append(first ? "}\n}\n" : "\n  }\n}\n");
+		return json.toString();
+	}
+	
+	private static void appendPhases(StringBuilder json, Map<Phase, Statistics> phases, String indent) {
+		json.append('{');
+		boolean first = true;
+		for (Map.Entry<Phase, Statistics> entry : phases.entrySet()) {
+			Statistics statistics = entry.getValue();
+			json.append(first ? "\n" : ",\n").append(indent).append("  ");
+			appendString(json, entry.getKey().key);
+			json.append(": {\"count\": ").append(statistics.count)
+					.append(", \"totalNanos\": ").append(statistics.totalNanos)
+					.append(", \"maxNanos\": ").append(statistics.maxNanos)
+					.append('}');
+			first = false;
+		}
+		json.append(first ? "}" : "\n" + indent + "}");
+	}
+	
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				json.append('\\');
+			}
+			json.append(c);
+		}
+		json.append('"');
+	}
+	
+	private static class Statistics {
+		long count;
+		long totalNanos;
+		long maxNanos;
+		
+		void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+	}
+}
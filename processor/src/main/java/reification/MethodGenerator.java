@@ -3,23 +3,41 @@ package reification;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
 
 import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
-import javax.lang.model.util.Types;
+import javax.lang.model.type.TypeMirror;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 import static javax.tools.Diagnostic.Kind.ERROR;
-import static reification.ElementFunctions.resolveConstructor;
 
 public interface MethodGenerator {
 	
 	MethodSpec.Builder generateMethod();
 	
+	/**
+	 * Returns the node of the same method as the one generated by {@link #generateMethod()}, which must have succeeded.
+	 */
+	MethodNode generateMethodNode(ClassFileModel classFileModel);
+	
+	boolean overridesGenericMethod();
+	
+	/**
+	 * Returns the abstract method that the generated method implements.
+	 */
+	ExecutableElement getMethodElement();
+	
 	class Class implements MethodGenerator {
 		private final Messager messager;
 		private final ExecutableElement methodElement;
@@ -31,6 +49,16 @@ public interface MethodGenerator {
 			this.instantiatedType = Objects.requireNonNull(instantiatedType, "instantiatedType");
 		}
 		
+		@Override
+		public boolean overridesGenericMethod() {
+			return !methodElement.getTypeParameters().isEmpty();
+		}
+		
+		@Override
+		public ExecutableElement getMethodElement() {
+			return methodElement;
+		}
+		
 		@Override
 		public MethodSpec.Builder generateMethod() {
 			// TODO Should allow (and just ignore) parameters?
@@ -70,29 +98,56 @@ public interface MethodGenerator {
 			
 			return builder;
 		}
+		
+		@Override
+		public MethodNode generateMethodNode(ClassFileModel classFileModel) {
+			MethodNode methodNode = classFileModel.methodNode(
+					methodElement,
+					classFileModel.classType(instantiatedType),
+					Collections.emptyList()
+			);
+			methodNode.instructions.add(new LdcInsnNode(Type.getType(classFileModel.descriptor(instantiatedType))));
+			methodNode.instructions.add(new InsnNode(Opcodes.ARETURN));
+			return methodNode;
+		}
 	}
 	
 	class NewInstance implements MethodGenerator {
-		private final Types types;
+		private final ConstructorIndex constructorIndex;
 		private final Messager messager;
+		private final TypeElement reifyingType;
 		private final ExecutableElement methodElement;
 		private final DeclaredType instantiatedType;
 		
-		public NewInstance(Types types, Messager messager, ExecutableElement methodElement, DeclaredType instantiatedType) {
-			this.types = Objects.requireNonNull(types, "types");
+		// Resolved by `generateMethod`.
+		private ExecutableElement constructor;
+		
+		public NewInstance(ConstructorIndex constructorIndex, Messager messager, TypeElement reifyingType, ExecutableElement methodElement, DeclaredType instantiatedType) {
+			this.constructorIndex = Objects.requireNonNull(constructorIndex, "constructorIndex");
 			this.messager = Objects.requireNonNull(messager, "messager");
+			this.reifyingType = Objects.requireNonNull(reifyingType, "reifyingType");
 			this.methodElement = Objects.requireNonNull(methodElement, "methodElement");
 			this.instantiatedType = Objects.requireNonNull(instantiatedType, "instantiatedType");
 		}
 		
+		@Override
+		public boolean overridesGenericMethod() {
+			return !methodElement.getTypeParameters().isEmpty();
+		}
+		
+		@Override
+		public ExecutableElement getMethodElement() {
+			return methodElement;
+		}
+		
 		@Override
 		public MethodSpec.Builder generateMethod() {
-			// TODO Validate that method parameters match a constructor.
 			List<? extends VariableElement> parameters = methodElement.getParameters();
 			
-			// Resolve constructor from parameters.
-			ExecutableElement constructor = resolveConstructor(instantiatedType, parameters, types);
-			if (constructor == null) {
+			// Resolve most specific constructor applicable to the parameters.
+			List<TypeMirror> parameterTypes = parameters.stream().map(Element::asType).collect(Collectors.toList());
+			List<ExecutableElement> constructors = constructorIndex.resolve(instantiatedType, parameterTypes, reifyingType);
+			if (constructors.isEmpty()) {
 				messager.printMessage(
 						ERROR,
 						String.format(
@@ -103,6 +158,20 @@ public interface MethodGenerator {
 				);
 				return null;
 			}
+			if (constructors.size() > 1) {
+				messager.printMessage(
+						ERROR,
+						String.format(
+								"Ambiguous constructors %s of type '%s' with parameters %s",
+								constructors,
+								instantiatedType,
+								parameters
+						),
+						methodElement
+				);
+				return null;
+			}
+			constructor = constructors.get(0);
 			
 			// Must copy features manually due to poor builder design (cannot remove).
 			MethodSpec overridingMethod = MethodSpec.overriding(methodElement).build();
@@ -131,5 +200,88 @@ public interface MethodGenerator {
 			
 			return builder;
 		}
+		
+		@Override
+		public MethodNode generateMethodNode(ClassFileModel classFileModel) {
+			MethodNode methodNode = classFileModel.methodNode(methodElement, instantiatedType, constructor.getThrownTypes());
+			InsnList instructions = methodNode.instructions;
+			
+			String owner = Type.getType(classFileModel.descriptor(instantiatedType)).getInternalName();
+			instructions.add(new TypeInsnNode(Opcodes.NEW, owner));
+			instructions.add(new InsnNode(Opcodes.DUP));
+			
+			List<? extends VariableElement> parameters = methodElement.getParameters();
+			List<? extends VariableElement> constructorParameters = constructor.getParameters();
+			int fixedArity = constructorParameters.size();
+			if (constructor.isVarArgs() && (parameters.size() != fixedArity || classFileModel.variableArityArgument(
+					parameters.get(fixedArity - 1).asType(),
+					constructorParameters.get(fixedArity - 1).asType()
+			))) {
+				fixedArity--;
+			}
+			
+			// Variable arity arguments are stored in a new array, which is passed after the fixed arity arguments.
+			TypeMirror componentType = null;
+			if (fixedArity < constructorParameters.size()) {
+				componentType = ((ArrayType) constructorParameters.get(fixedArity).asType()).getComponentType();
+			}
+			
+			// Parameters start at slot 1 (after `this`).
+			int slot = 1;
+			for (int i = 0; i < parameters.size(); i++) {
+				TypeMirror parameterType = parameters.get(i).asType();
+				TypeMirror targetType = i < fixedArity ? constructorParameters.get(i).asType() : componentType;
+				if (i == fixedArity) {
+					instructions.add(new LdcInsnNode(parameters.size() - fixedArity));
+					instructions.add(newArray(Type.getType(classFileModel.descriptor(componentType))));
+				}
+				if (i >= fixedArity) {
+					instructions.add(new InsnNode(Opcodes.DUP));
+					instructions.add(new LdcInsnNode(i - fixedArity));
+				}
+				
+				Type type = Type.getType(classFileModel.descriptor(parameterType));
+				instructions.add(new VarInsnNode(type.getOpcode(Opcodes.ILOAD), slot));
+				classFileModel.convert(instructions, parameterType, targetType);
+				slot += type.getSize();
+				
+				if (i >= fixedArity) {
+					instructions.add(new InsnNode(Type.getType(classFileModel.descriptor(componentType)).getOpcode(Opcodes.IASTORE)));
+				}
+			}
+			if (componentType != null && parameters.size() == fixedArity) {
+				instructions.add(new InsnNode(Opcodes.ICONST_0));
+				instructions.add(newArray(Type.getType(classFileModel.descriptor(componentType))));
+			}
+			
+			StringBuilder descriptor = new StringBuilder("(");
+			constructorParameters.forEach(p -> descriptor.append(classFileModel.descriptor(p.asType())));
+			instructions.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, owner, "<init>", descriptor.append(")V").toString(), false));
+			instructions.add(new InsnNode(Opcodes.ARETURN));
+			return methodNode;
+		}
+		
+		private static AbstractInsnNode newArray(Type componentType) {
+			switch (componentType.getSort()) {
+				case Type.BOOLEAN:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_BOOLEAN);
+				case Type.CHAR:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_CHAR);
+				case Type.BYTE:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_BYTE);
+				case Type.SHORT:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_SHORT);
+				case Type.INT:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_INT);
+				case Type.LONG:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_LONG);
+				case Type.FLOAT:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_FLOAT);
+				case Type.DOUBLE:
+					return new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_DOUBLE);
+				default:
+					return new TypeInsnNode(Opcodes.ANEWARRAY, componentType.getInternalName());
+			}
+		}
 	}
 }
@@ -0,0 +1,93 @@
+package reification;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+/**
+ * Per-compilation access to the parts of the model that the processor reads repeatedly. Values of '@Reify'-annotations
+ * are read directly from their annotation mirrors, as the `Class`-objects that `Reify.value()` would return can't be
+ * accessed at compile time.
+ */
+public class ReificationModel {
+	private static final String VALUE = "value";
+	
+	private final Types types;
+	private final Elements elements;
+	
+	private final Map<TypeParameterElement, List<TypeMirror>> reifiedTypes = new HashMap<>();
+	private final Map<Element, String> simpleNames = new HashMap<>();
+	private final Map<TypeElement, String> packageNames = new HashMap<>();
+	
+	private TypeElement reifyElement;
+	
+	public ReificationModel(Types types, Elements elements) {
+		this.types = Objects.requireNonNull(types, "types");
+		this.elements = Objects.requireNonNull(elements, "elements");
+	}
+	
+	/**
+	 * Returns the distinct types that the given type parameter is reified with (in order), or `null` if the type
+	 * parameter isn't annotated. Values that couldn't be resolved are left out.
+	 */
+	public List<TypeMirror> reifiedTypes(TypeParameterElement typeParameter) {
+		if (reifiedTypes.containsKey(typeParameter)) {
+			return reifiedTypes.get(typeParameter);
+		}
+		
+		List<TypeMirror> reifiedTypes = null;
+		AnnotationMirror annotation = reifyAnnotation(typeParameter);
+		if (annotation != null) {
+			Map<String, TypeMirror> typesByName = new LinkedHashMap<>();
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+				if (entry.getKey().getSimpleName().contentEquals(VALUE)) {
+					Object value = entry.getValue().getValue();
+					// A single class may be given without braces, which some compilers don't wrap in a list.
+					List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(entry.getValue());
+					for (Object element : values) {
+						Object type = ((AnnotationValue) element).getValue();
+						if (type instanceof TypeMirror) {
+							typesByName.putIfAbsent(type.toString(), (TypeMirror) type);
+						}
+					}
+				}
+			}
+			reifiedTypes = new ArrayList<>(typesByName.values());
+		}
+		
+		this.reifiedTypes.put(typeParameter, reifiedTypes);
+		return reifiedTypes;
+	}
+	
+	public String simpleName(Element element) {
+		return simpleNames.computeIfAbsent(element, e -> e.getSimpleName().toString());
+	}
+	
+	/**
+	 * Returns the name of the package of the given type, which is empty for the unnamed package.
+	 */
+	public String packageName(TypeElement typeElement) {
+		return packageNames.computeIfAbsent(typeElement, e -> {
+			PackageElement packageElement = elements.getPackageOf(e);
+			if (packageElement.isUnnamed()) {
+				return "";
+			}
+			return packageElement.getQualifiedName().toString();
+		});
+	}
+	
+	private AnnotationMirror reifyAnnotation(TypeParameterElement typeParameter) {
+		if (reifyElement == null) {
+			reifyElement = elements.getTypeElement(Reify.class.getCanonicalName());
+		}
+		
+		for (AnnotationMirror annotation : typeParameter.getAnnotationMirrors()) {
+			if (types.isSameType(annotation.getAnnotationType(), reifyElement.asType())) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+}
@@ -1,32 +1,140 @@
 package reification;
 
-import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.TypeSpec;
-import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
 import javax.lang.model.type.DeclaredType;
-import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
 
+import static javax.lang.model.element.ElementKind.TYPE_PARAMETER;
 import static javax.lang.model.element.Modifier.*;
 import static javax.lang.model.type.TypeKind.DECLARED;
 import static javax.tools.Diagnostic.Kind.ERROR;
 import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
+import static reification.Instrumentation.Phase.*;
 
 public class ReificationProcessor extends AbstractProcessor {
+	/**
+	 * Option enabling instrumentation of the processor. If given a value, the report is written as JSON to the file
+	 * with that path. Otherwise, it's reported as a note.
+	 */
+	public static final String INSTRUMENTATION_OPTION = "reification.instrumentation";
+	
+	/**
+	 * Option setting the number of threads used for building and rendering generated sources. Defaults to the number
+	 * of available processors.
+	 */
+	public static final String PARALLELISM_OPTION = "reification.parallelism";
+	
+	/**
+	 * Option enabling the on-disk cache of generated sources, which is stored in the file with the given path.
+	 */
+	public static final String CACHE_OPTION = "reification.cache";
+	
+	/**
+	 * Option enabling the cache of resolved classpath types that is kept across compilations in the same JVM, bounded
+	 * to the given number of types.
+	 */
+	public static final String WORKER_CACHE_OPTION = "reification.workerCache";
+	
+	/**
+	 * Option enabling generation of class files instead of sources, such that the compiler doesn't need to parse and
+	 * compile the generated types in another round.
+	 */
+	public static final String CLASS_FILES_OPTION = "reification.classFiles";
+	
+	/**
+	 * Option enabling generation of a single holder per reifying type, which has all the types generated from it as
+	 * static member types. See {@link GeneratedHolder} for the naming scheme.
+	 */
+	public static final String HOLDERS_OPTION = "reification.holders";
+	
+	/**
+	 * Option enabling generation of specializations (see {@link SpecializedTypeGenerator}) instead of subtypes for all
+	 * reifying types, rather than only for final ones and the ones reified with primitive types.
+	 */
+	public static final String SPECIALIZATIONS_OPTION = "reification.specializations";
+	
+	/**
+	 * Option enabling generation of a companion per reifying type, which looks up the types generated from it by the
+	 * classes that they're reified with. See {@link GeneratedCompanion} for the naming scheme.
+	 */
+	public static final String COMPANIONS_OPTION = "reification.companions";
+	
+	/**
+	 * Option enabling the index of all generated types, which is written to the resource
+	 * {@value ReificationIndex#RESOURCE} once processing is over. As the index is aggregated from all reifying types, the
+	 * processor is an aggregating rather than an isolating processor in incremental Gradle builds when it's enabled.
+	 */
+	public static final String INDEX_OPTION = "reification.index";
+	
+	/**
+	 * Option enabling the GraalVM native image configuration of all generated types, which is written to
+	 * `META-INF/native-image/<value>/` once processing is over. The value is the coordinates `<group>/<artifact>` of the
+	 * artifact being compiled. Like the index, the configuration makes the processor aggregating.
+	 */
+	public static final String NATIVE_IMAGE_OPTION = "reification.nativeImage";
+	
+	/**
+	 * Option enabling the AppCDS class list fragment of all generated types and their supertypes, which is written to
+	 * the resource {@value ReificationClassList#RESOURCE} once processing is over. Like the index, the fragment makes the
+	 * processor aggregating.
+	 */
+	public static final String CLASS_LIST_OPTION = "reification.classList";
+	
+	/**
+	 * Option setting the maximum number of combinations of reified types that a single type may be reified with.
+	 * Defaults to {@value #DEFAULT_MAX_COMBINATIONS}.
+	 */
+	public static final String MAX_COMBINATIONS_OPTION = "reification.maxCombinations";
+	
+	private static final int DEFAULT_MAX_COMBINATIONS = 256;
+	
+	private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+	private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+	
 	private Types types;
 	private Elements elements;
 	private Filer filer;
 	private Messager messager;
 	
+	private ReificationModel model;
+	private AbstractMethodTable abstractMethodTable;
+	private Instrumentation instrumentation;
+	private SourceRenderer sourceRenderer;
+	private GenerationCache generationCache;
+	private WorkerCache workerCache;
+	private ClassFileModel classFileModel;
+	private SourceModel sourceModel;
+	private boolean holders;
+	private boolean specializations;
+	private boolean companions;
+	private GeneratedIndex index;
+	private GeneratedNativeImageConfiguration nativeImageConfiguration;
+	private GeneratedClassList classList;
+	private int maxCombinations;
+	
 	@Override
 	public synchronized void init(ProcessingEnvironment environment) {
 		super.init(environment);
@@ -36,69 +144,242 @@ public class ReificationProcessor extends AbstractProcessor {
 		filer = environment.getFiler();
 		messager = environment.getMessager();
 		
+		model = new ReificationModel(types, elements);
+		workerCache = workerCache(environment.getOptions());
+		abstractMethodTable = new AbstractMethodTable(types, elements, workerCache);
+		
+		instrumentation = Instrumentation.DISABLED;
+		if (environment.getOptions().containsKey(INSTRUMENTATION_OPTION)) {
+			instrumentation = new Instrumentation();
+		}
+		
+		sourceModel = new SourceModel(environment, model);
+		sourceRenderer = new SourceRenderer(parallelism(environment.getOptions()), instrumentation);
+		generationCache = generationCache(environment.getOptions());
+		if (environment.getOptions().containsKey(CLASS_FILES_OPTION)) {
+			classFileModel = new ClassFileModel(types, elements);
+		}
+		if (environment.getOptions().containsKey(HOLDERS_OPTION)) {
+			if (classFileModel != null) {
+				messager.printMessage(
+						ERROR,
+						String.format("Option '%s' cannot be combined with option '%s'", HOLDERS_OPTION, CLASS_FILES_OPTION)
+				);
+			} else {
+				holders = true;
+			}
+		}
+		if (environment.getOptions().containsKey(SPECIALIZATIONS_OPTION)) {
+			if (classFileModel != null) {
+				messager.printMessage(
+						ERROR,
+						String.format("Option '%s' cannot be combined with option '%s'", SPECIALIZATIONS_OPTION, CLASS_FILES_OPTION)
+				);
+			} else {
+				specializations = true;
+			}
+		}
+		
+		companions = environment.getOptions().containsKey(COMPANIONS_OPTION);
+		if (environment.getOptions().containsKey(INDEX_OPTION)) {
+			index = new GeneratedIndex();
+		}
+		nativeImageConfiguration = nativeImageConfiguration(environment.getOptions());
+		if (environment.getOptions().containsKey(CLASS_LIST_OPTION)) {
+			classList = new GeneratedClassList();
+		}
+		maxCombinations = maxCombinations(environment.getOptions());
+		
 		messager.printMessage(NOTE, "Initializing '@reification.Reify'-annotation processor");
 	}
 	
-	// TODO Refactor into sensible abstractions.
 	@Override
 	public boolean process(Set<? extends TypeElement> annotationElements, RoundEnvironment environment) {
+		if (environment.processingOver()) {
+			if (instrumentation.isEnabled()) {
+				messager.printMessage(
+						NOTE,
+						String.format(
+								"Abstract method table: %d hits, %d misses",
+								abstractMethodTable.getHits(),
+								abstractMethodTable.getMisses()
+						)
+				);
+			}
+			if (workerCache.isEnabled()) {
+				messager.printMessage(
+						NOTE,
+						String.format("Worker cache: %d hits, %d misses", workerCache.getHits(), workerCache.getMisses())
+				);
+			}
+			if (index != null) {
+				writeIndex();
+			}
+			if (nativeImageConfiguration != null) {
+				writeNativeImageConfiguration();
+			}
+			if (classList != null) {
+				writeResource(ReificationClassList.RESOURCE, classList.render(), classList.getOriginatingElements());
+			}
+			reportInstrumentation();
+			saveGenerationCache();
+			sourceRenderer.shutdown();
+			return false;
+		}
+		
+		workerCache.addSourceTypes(environment.getRootElements());
+		
+		Instrumentation.Span span = instrumentation.start(ROUND, null);
+		try {
+			return processRound(annotationElements, environment);
+		} finally {
+			span.close();
+		}
+	}
+	
+	// TODO Refactor into sensible abstractions.
+	private boolean processRound(Set<? extends TypeElement> annotationElements, RoundEnvironment environment) {
 		// Method gets called again with generated files.
 		if (annotationElements.isEmpty()) {
 			return false;
 		}
 		
+		// Group annotated type parameters by their owning type such that each owner is handled exactly once.
+		Map<TypeElement, List<TypeParameterElement>> annotatedTypeParameters = new LinkedHashMap<>();
 		for (TypeElement annotationElement : annotationElements) {
-			for (Element rootElement : environment.getRootElements()) {
-				ElementKind kind = rootElement.getKind();
+			for (Element annotatedElement : environment.getElementsAnnotatedWith(annotationElement)) {
+				if (annotatedElement.getKind() != TYPE_PARAMETER) {
+					// Only type parameters can be annotated, so the compiler will have reported the error.
+					continue;
+				}
+				
+				TypeParameterElement typeParameter = (TypeParameterElement) annotatedElement;
+				Element genericElement = typeParameter.getGenericElement();
+				ElementKind kind = genericElement.getKind();
 				if (!kind.isInterface() && !kind.isClass()) {
 					messager.printMessage(
 							ERROR,
 							String.format(
 									"'@Reify'-annotation in non-type '%s' of kind '%s' is %s",
-									rootElement,
+									genericElement,
 									kind,
 									Message.NOT_SUPPORTED
 							),
-							rootElement
+							genericElement
 					);
 					continue;
 				}
 				
-				ClassSymbol typeElement = (ClassSymbol) rootElement;
-				
-				Set<? extends Element> annotatedElements = environment.getElementsAnnotatedWith(annotationElement);
-				for (Element annotatedElement : annotatedElements) {
-					Element enclosingElement = annotatedElement.getEnclosingElement();
-					
-					if (typeElement.equals(enclosingElement)) {
-						process(typeElement);
-					} else if (ElementFunctions.enclosingElements(enclosingElement).contains(typeElement)) {
-						if (enclosingElement.getModifiers().contains(STATIC)) {
-							messager.printMessage(
-									ERROR,
-									String.format(
-											"'@Reify'-annotation in static inner class '%s' is %s",
-											enclosingElement,
-											Message.NOT_YET_IMPLEMENTED
-									),
-									enclosingElement
-							);
-							break;
-						} else {
-							messager.printMessage(
-									ERROR,
-									String.format(
-											"'@Reify'-annotation in non-static inner class '%s' is %s",
-											enclosingElement,
-											Message.NOT_SUPPORTED
-									),
-									enclosingElement
-							);
-							break;
-						}
-					}
+				annotatedTypeParameters
+						.computeIfAbsent((TypeElement) genericElement, e -> new ArrayList<>())
+						.add(typeParameter);
+			}
+		}
+		
+		// Owners are handled in the order of their names rather than the order in which the compiler provides them, such
+		// that files are generated in the same order in every build.
+		List<TypeElement> owners = new ArrayList<>(annotatedTypeParameters.keySet());
+		owners.sort(Comparator.comparing(t -> t.getQualifiedName().toString()));
+		
+		// Constructors are indexed once per round and shared by all generated types.
+		ConstructorIndex constructorIndex = new ConstructorIndex(types);
+		
+		// Generation happens in three phases: Facts are extracted from the model on the compiler's thread, then sources
+		// are built and rendered in parallel, and finally they're written (in order) to the filer.
+		List<GeneratedType> generatedTypes = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		List<GeneratedCompanion> generatedCompanions = new ArrayList<>();
+		for (TypeElement typeElement : owners) {
+			if (typeElement.getNestingKind() == NestingKind.TOP_LEVEL) {
+				for (GeneratedType generatedType : generate(typeElement, constructorIndex, generatedCompanions)) {
+					generatedTypes.add(generatedType);
+					names.add(typeElement.getQualifiedName().toString());
+				}
+			} else if (typeElement.getModifiers().contains(STATIC)) {
+				messager.printMessage(
+						ERROR,
+						String.format(
+								"'@Reify'-annotation in static inner class '%s' is %s",
+								typeElement,
+								Message.NOT_YET_IMPLEMENTED
+						),
+						typeElement
+				);
+			} else {
+				messager.printMessage(
+						ERROR,
+						String.format(
+								"'@Reify'-annotation in non-static inner class '%s' is %s",
+								typeElement,
+								Message.NOT_SUPPORTED
+						),
+						typeElement
+				);
+			}
+		}
+		
+		// Companions are small enough to be rendered on the compiler's thread.
+		for (GeneratedCompanion generatedCompanion : generatedCompanions) {
+			String source = generatedCompanion.toJavaFile().toString();
+			String qualifiedName = generatedCompanion.getQualifiedName();
+			TypeElement originatingElement = generatedCompanion.getOriginatingElement();
+			if (generationCache.isEnabled()) {
+				generationCache.put(qualifiedName, source);
+			}
+			write(originatingElement, qualifiedName, source, originatingElement.getQualifiedName().toString());
+		}
+		
+		if (classFileModel != null) {
+			List<byte[]> classFiles = sourceRenderer.renderClassFiles(generatedTypes, names);
+			
+			for (int i = 0; i < generatedTypes.size(); i++) {
+				GeneratedType generatedType = generatedTypes.get(i);
+				byte[] classFile = classFiles.get(i);
+				if (generationCache.isEnabled()) {
+					generationCache.put(generatedType.getQualifiedName(), Base64.getEncoder().encodeToString(classFile));
+				}
+				writeClassFile(generatedType.getOriginatingElement(), generatedType.getQualifiedName(), classFile, names.get(i));
+			}
+			return true;
+		}
+		
+		if (holders) {
+			// Generated types are grouped by the type they're generated from, in the order of the generated types.
+			Map<TypeElement, List<GeneratedType>> memberTypes = new LinkedHashMap<>();
+			for (GeneratedType generatedType : generatedTypes) {
+				memberTypes.computeIfAbsent(generatedType.getOriginatingElement(), e -> new ArrayList<>()).add(generatedType);
+			}
+			List<GeneratedHolder> generatedHolders = new ArrayList<>();
+			List<String> holderNames = new ArrayList<>();
+			memberTypes.forEach((typeElement, generated) -> {
+				generatedHolders.add(
+						new GeneratedHolder(typeElement, model.packageName(typeElement), holderName(typeElement), generated)
+				);
+				holderNames.add(typeElement.getQualifiedName().toString());
+			});
+			
+			List<String> sources = sourceRenderer.renderHolders(generatedHolders, holderNames);
+			
+			for (int i = 0; i < generatedHolders.size(); i++) {
+				GeneratedHolder generatedHolder = generatedHolders.get(i);
+				String source = sources.get(i);
+				if (generationCache.isEnabled()) {
+					generationCache.put(generatedHolder.getQualifiedName(), source);
 				}
+				write(generatedHolder.getOriginatingElement(), generatedHolder.getQualifiedName(), source, holderNames.get(i));
 			}
+			return true;
+		}
+		
+		List<String> sources = sourceRenderer.render(generatedTypes, names);
+		
+		for (int i = 0; i < generatedTypes.size(); i++) {
+			GeneratedType generatedType = generatedTypes.get(i);
+			String source = sources.get(i);
+			if (generationCache.isEnabled()) {
+				generationCache.put(generatedType.getQualifiedName(), source);
+			}
+			write(generatedType.getOriginatingElement(), generatedType.getQualifiedName(), source, names.get(i));
 		}
 		
 		return true;
@@ -106,164 +387,661 @@ public class ReificationProcessor extends AbstractProcessor {
 	
 	// TODO Consider only reporting errors from this class and rely on exceptions elsewhere.
 	
-	private void process(ClassSymbol typeElement) {
-		TypeGenerator typeGenerator = new TypeGenerator(types, messager, typeElement);
-		
-		if (typeElement.getModifiers().contains(FINAL)) {
-			// TODO Support reification of final classes: Implement in two iterations:
-			//      1. Require the class to have no methods (abstract methods would not be a problem, but since the
-			//         class is final, it cannot have any). The solution is then to just extend the type's superclass
-			//         instead of the type itself and to implement the type's interfaces.
-			//      2. Read public field `sourcefile` of `typeElement`, use some framework to parse the methods in
-			//         question, reify them, and then toss them back into the generated class.
-			//      
-			//      If at some point one wants to reify an un-modifiable type, this will provide a rather clean way of
-			//      doing it: Extend the class with a final one and reify that one. Also, see implementation comment on
-			//      primitive types below.
+	// Companions of the returned types are added to `generatedCompanions`.
+	private List<GeneratedType> generate(TypeElement typeElement, ConstructorIndex constructorIndex, List<GeneratedCompanion> generatedCompanions) {
+		LinkedHashMap<String, List<TypeMirror>> reifiedTypes = reifiedTypes(typeElement);
+		if (reifiedTypes == null) {
+			return Collections.emptyList();
+		}
+		Combinations combinations = new Combinations(reifiedTypes);
+		long combinationCount = combinations.size();
+		if (combinationCount > maxCombinations) {
 			messager.printMessage(
 					ERROR,
-					String.format("'@Reify'-annotation in final class '%s' is %s", typeElement, Message.NOT_YET_IMPLEMENTED),
+					String.format(
+							"'@Reify'-annotations in type '%s' reify %s combinations of types, which exceeds the maximum of %d (see option '%s')",
+							typeElement,
+							combinationCount == Long.MAX_VALUE ? "more than " + Long.MAX_VALUE : combinationCount,
+							maxCombinations,
+							MAX_COMBINATIONS_OPTION
+					),
 					typeElement
 			);
-			return;
+			return Collections.emptyList();
 		}
 		
-		PackageElement packageElement = elements.getPackageOf(typeElement);
-		String generatedPackageName = "";
-		if (!packageElement.isUnnamed()) {
-			generatedPackageName = packageElement.toString();
+		String typeName = model.simpleName(typeElement);
+		Map<String, String> reifiedTypeNames = reifiedTypeNames(reifiedTypes.values());
+		
+		String generatedPackageName = model.packageName(typeElement);
+		boolean companion = companions;
+		boolean regenerate = false;
+		if (companions && generationCache.isEnabled()) {
+			String companionName = typeName + GeneratedCompanion.SUFFIX;
+			String generatedQualifiedName = generatedPackageName.isEmpty() ? companionName : generatedPackageName + '.' + companionName;
+			String fingerprint = fingerprint(typeElement, combinations, typeName, reifiedTypeNames, generatedQualifiedName);
+			if (fingerprint != null) {
+				// The companion refers to the generated types by the names and only if they're instantiable.
+				List<GeneratedCompanion.Entry> entries = new ArrayList<>();
+				for (LinkedHashMap<String, TypeMirror> reifiedTypeArguments : combinations) {
+					String generatedTypeName = generatedTypeName(typeName, reifiedTypeArguments, reifiedTypeNames);
+					entries.add(companionEntry(typeElement, reifiedTypeArguments, generatedTypeName, instantiable(typeElement, reifiedTypeArguments)));
+				}
+				fingerprint = Fingerprint.ofCompanion(fingerprint, entries);
+			}
+			if (fingerprint != null && writeCached(typeElement, generatedQualifiedName, fingerprint)) {
+				companion = false;
+			} else {
+				// The companion is built from the generated types, which thus can't be written from the cache.
+				regenerate = true;
+			}
 		}
 		
-		// TODO For each combination of of annotated type parameters, generate an extending class with the type
-		//      parameters instantiated.
+		if (holders && generationCache.isEnabled()) {
+			// The holder is generated from all combinations at once.
+			String generatedQualifiedName = generatedFileName(typeElement, null);
+			String fingerprint = fingerprint(typeElement, combinations, typeName, reifiedTypeNames, generatedQualifiedName);
+			if (fingerprint != null && cached(typeElement, generatedQualifiedName, fingerprint, regenerate)) {
+				register(typeElement, combinations, typeName, reifiedTypeNames);
+				return Collections.emptyList();
+			}
+		}
 		
-		// Current simplified solution only supports single, non-primitive type parameter.
-		List<? extends TypeParameterElement> typeParameters = typeElement.getTypeParameters();
+		List<GeneratedType> generatedTypes = new ArrayList<>();
+		List<GeneratedCompanion.Entry> companionEntries = new ArrayList<>();
+		boolean subtypes = true;
+		for (LinkedHashMap<String, TypeMirror> reifiedTypeArguments : combinations) {
+			String generatedTypeName = generatedTypeName(typeName, reifiedTypeArguments, reifiedTypeNames);
+			if (!holders && generationCache.isEnabled()) {
+				String generatedQualifiedName = generatedFileName(typeElement, generatedTypeName);
+				String fingerprint = fingerprint(typeElement, reifiedTypeArguments, generatedQualifiedName);
+				if (fingerprint != null && cached(typeElement, generatedQualifiedName, fingerprint, regenerate)) {
+					continue;
+				}
+			}
+			
+			GeneratedType generatedType = generate(typeElement, reifiedTypeArguments, generatedTypeName, constructorIndex);
+			if (generatedType == null) {
+				// The error that has been reported would only be repeated for the remaining combinations.
+				return Collections.emptyList();
+			}
+			generatedTypes.add(generatedType);
+			
+			subtypes &= !specialize(typeElement, reifiedTypeArguments);
+			companionEntries.add(companionEntry(typeElement, reifiedTypeArguments, generatedTypeName, generatedType.isInstantiable()));
+		}
 		
-		LinkedHashMap<String, DeclaredType> reifiedTypeArguments = reifiedTypeArguments(typeParameters);
-		if (reifiedTypeArguments == null) {
-			// Error has been reported to `messager` from within `reifiedTypeArguments`.
+		if (companion) {
+			generatedCompanions.add(companion(typeElement, subtypes, companionEntries));
+		}
+		register(typeElement, combinations, typeName, reifiedTypeNames);
+		return generatedTypes;
+	}
+	
+	// Adds the types generated (or written from the cache) for all combinations to the index, the native image
+	// configuration and the class list if they're enabled.
+	private void register(TypeElement typeElement, Combinations combinations, String typeName, Map<String, String> reifiedTypeNames) {
+		if (index == null && nativeImageConfiguration == null && classList == null) {
 			return;
 		}
 		
-		String typeName = typeElement.getSimpleName().toString();
-		String generatedTypeName = generatedTypeName(typeName, reifiedTypeArguments);
+		String packageName = model.packageName(typeElement);
+		String prefix = packageName.isEmpty() ? "" : packageName + '.';
+		if (holders) {
+			prefix += holderName(typeElement) + '$';
+		}
+		for (LinkedHashMap<String, TypeMirror> reifiedTypeArguments : combinations) {
+			String generatedType = prefix + generatedTypeName(typeName, reifiedTypeArguments, reifiedTypeNames);
+			if (index != null) {
+				List<String> typeArguments = new ArrayList<>();
+				for (TypeMirror reifiedType : reifiedTypeArguments.values()) {
+					typeArguments.add(
+							reifiedType.getKind() == DECLARED
+									? elements.getBinaryName((TypeElement) ((DeclaredType) reifiedType).asElement()).toString()
+									: reifiedType.toString()
+					);
+				}
+				index.add(typeElement, elements.getBinaryName(typeElement).toString(), typeArguments, generatedType);
+			}
+			if (nativeImageConfiguration != null) {
+				// Only the constructors of instantiable types are invoked (by factories of companions).
+				nativeImageConfiguration.add(typeElement, generatedType, instantiable(typeElement, reifiedTypeArguments));
+			}
+			if (classList != null) {
+				classList.add(typeElement, Collections.singleton(generatedType));
+			}
+		}
 		
-		TypeSpec.Builder javaFileBuilder = typeGenerator.generateType(reifiedTypeArguments, generatedTypeName);
-		if (javaFileBuilder == null) {
-			// Error has been reported to `messager` from within `typeGenerator`.
+		if (classList != null) {
+			// Subtypes are loaded along with the reifying type and its supertypes, which specializations mostly share.
+			Set<String> binaryNames = new LinkedHashSet<>();
+			supertypes(typeElement, binaryNames);
+			if (companions) {
+				binaryNames.add(packageName.isEmpty() ? typeName + GeneratedCompanion.SUFFIX : packageName + '.' + typeName + GeneratedCompanion.SUFFIX);
+			}
+			classList.add(typeElement, binaryNames);
+		}
+	}
+	
+	// Adds the binary names of the given type and all its supertypes.
+	private void supertypes(TypeElement typeElement, Set<String> binaryNames) {
+		if (!binaryNames.add(elements.getBinaryName(typeElement).toString())) {
 			return;
 		}
+		for (TypeMirror supertype : types.directSupertypes(typeElement.asType())) {
+			if (supertype.getKind() == DECLARED) {
+				supertypes((TypeElement) ((DeclaredType) supertype).asElement(), binaryNames);
+			}
+		}
+	}
+	
+	private void writeIndex() {
+		writeResource(ReificationIndex.RESOURCE, index.render(), index.getOriginatingElements());
+	}
+	
+	private void writeNativeImageConfiguration() {
+		TypeElement[] originatingElements = nativeImageConfiguration.getOriginatingElements();
+		writeResource(
+				nativeImageConfiguration.getReflectionConfigurationName(),
+				nativeImageConfiguration.renderReflectionConfiguration(),
+				originatingElements
+		);
+		writeResource(
+				nativeImageConfiguration.getResourceConfigurationName(),
+				nativeImageConfiguration.renderResourceConfiguration(),
+				originatingElements
+		);
+	}
+	
+	private void writeResource(String name, String content, TypeElement[] originatingElements) {
+		Instrumentation.Span span = instrumentation.start(WRITE_FILE, name);
+		try {
+			FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", name, originatingElements);
+			try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+				writer.write(content);
+			}
+		} catch (IOException e) {
+			messager.printMessage(ERROR, e.getMessage());
+		} finally {
+			span.close();
+		}
+	}
+	
+	private GeneratedCompanion.Entry companionEntry(
+			TypeElement typeElement,
+			LinkedHashMap<String, TypeMirror> reifiedTypeArguments,
+			String generatedTypeName,
+			boolean instantiable
+	) {
+		String generatedPackageName = model.packageName(typeElement);
+		return new GeneratedCompanion.Entry(
+				reifiedTypeArguments.values().stream().map(t -> TypeName.get(types.erasure(t))).collect(Collectors.toList()),
+				holders
+						? ClassName.get(generatedPackageName, holderName(typeElement), generatedTypeName)
+						: ClassName.get(generatedPackageName, generatedTypeName),
+				instantiable
+		);
+	}
+	
+	private GeneratedCompanion companion(TypeElement typeElement, boolean subtypes, List<GeneratedCompanion.Entry> entries) {
+		// Factories of types that are all subtypes of the reifying type are typed as such.
+		int typeParameterCount = typeElement.getTypeParameters().size();
+		TypeName factoryType = WildcardTypeName.subtypeOf(Object.class);
+		if (subtypes) {
+			TypeName[] typeArguments = new TypeName[typeParameterCount];
+			Arrays.fill(typeArguments, WildcardTypeName.subtypeOf(Object.class));
+			factoryType = WildcardTypeName.subtypeOf(ParameterizedTypeName.get(ClassName.get(typeElement), typeArguments));
+		}
 		
-		// Build compilation unit.
-		TypeSpec typeSpec = javaFileBuilder
-				.addModifiers(PUBLIC)
-				.addOriginatingElement(typeElement)
-				.build();
+		List<String> parameterNames = new ArrayList<>();
+		for (int i = 1; i <= typeParameterCount; i++) {
+			parameterNames.add(typeParameterCount == 1 ? "type" : "type" + i);
+		}
 		
-		// TODO Add comment describing the origin of the file and a threat about changing the source manually.
-		JavaFile javaFile = JavaFile.builder(generatedPackageName, typeSpec)
-				.skipJavaLangImports(true)
-				.build();
+		String typeName = model.simpleName(typeElement);
+		return new GeneratedCompanion(
+				typeElement,
+				model.packageName(typeElement),
+				typeName + GeneratedCompanion.SUFFIX,
+				factoryType,
+				parameterNames,
+				entries
+		);
+	}
+	
+	// Fingerprint of a file generated from all combinations at once, or null if it can't be cached.
+	private String fingerprint(
+			TypeElement typeElement,
+			Combinations combinations,
+			String typeName,
+			Map<String, String> reifiedTypeNames,
+			String generatedQualifiedName
+	) {
+		StringBuilder fingerprint = new StringBuilder();
+		for (LinkedHashMap<String, TypeMirror> reifiedTypeArguments : combinations) {
+			String generatedTypeName = generatedTypeName(typeName, reifiedTypeArguments, reifiedTypeNames);
+			String combinationFingerprint = fingerprint(typeElement, reifiedTypeArguments, generatedQualifiedName + '#' + generatedTypeName);
+			if (combinationFingerprint == null) {
+				return null;
+			}
+			fingerprint.append(combinationFingerprint);
+		}
+		return fingerprint.toString();
+	}
+	
+	// Writes the cached file unless it must be regenerated regardless, and returns whether it was.
+	private boolean cached(TypeElement typeElement, String generatedQualifiedName, String fingerprint, boolean regenerate) {
+		if (regenerate) {
+			generationCache.miss(generatedQualifiedName, fingerprint);
+			return false;
+		}
+		return writeCached(typeElement, generatedQualifiedName, fingerprint);
+	}
+	
+	private GeneratedType generate(
+			TypeElement typeElement,
+			LinkedHashMap<String, TypeMirror> reifiedTypeArguments,
+			String generatedTypeName,
+			ConstructorIndex constructorIndex
+	) {
+		if (specialize(typeElement, reifiedTypeArguments)) {
+			for (TypeParameterElement typeParameter : typeElement.getTypeParameters()) {
+				TypeMirror reifiedType = reifiedTypeArguments.get(model.simpleName(typeParameter));
+				if (reifiedType != null) {
+					return generateSpecialization(typeElement, typeParameter, reifiedType, generatedTypeName);
+				}
+			}
+		}
+		
+		String qualifiedName = typeElement.getQualifiedName().toString();
+		String generatedPackageName = model.packageName(typeElement);
+		TypeGenerator typeGenerator = new TypeGenerator(messager, abstractMethodTable, constructorIndex, instrumentation, classFileModel, typeElement);
+		Instrumentation.Span span = instrumentation.start(GENERATE_TYPE, qualifiedName);
+		try {
+			// Errors are reported to `messager` from within `typeGenerator`.
+			return typeGenerator.generateType(declaredTypes(reifiedTypeArguments), generatedPackageName, generatedTypeName);
+		} finally {
+			span.close();
+		}
+	}
+	
+	// Types reified with primitive types are specialized rather than extended, as primitive types can't be type
+	// arguments. Final types can't be extended either, so they're specialized as well (as are all types if requested).
+	private boolean specialize(TypeElement typeElement, Map<String, TypeMirror> reifiedTypeArguments) {
+		return specializations
+				|| typeElement.getModifiers().contains(FINAL)
+				|| reifiedTypeArguments.values().stream().anyMatch(t -> t != null && t.getKind().isPrimitive());
+	}
+	
+	// Whether the type generated from the given combination is instantiable, as derived from the reifying type (and not
+	// from the generated type), such that it's known for types written from the cache as well.
+	private boolean instantiable(TypeElement typeElement, LinkedHashMap<String, TypeMirror> reifiedTypeArguments) {
+		if (!specialize(typeElement, reifiedTypeArguments)) {
+			return TypeGenerator.isInstantiable(abstractMethodTable, typeElement, declaredTypes(reifiedTypeArguments));
+		}
+		for (TypeParameterElement typeParameter : typeElement.getTypeParameters()) {
+			TypeMirror reifiedType = reifiedTypeArguments.get(model.simpleName(typeParameter));
+			if (reifiedType != null) {
+				return new SpecializedTypeGenerator(types, elements, messager, abstractMethodTable, sourceModel, typeElement)
+						.isInstantiable(typeParameter, reifiedType);
+			}
+		}
+		return false;
+	}
+	
+	// Fingerprint of the type generated from the given combination, or null if it can't be cached.
+	private String fingerprint(TypeElement typeElement, LinkedHashMap<String, TypeMirror> reifiedTypeArguments, String generatedQualifiedName) {
+		if (!specialize(typeElement, reifiedTypeArguments)) {
+			return Fingerprint.of(
+					typeElement,
+					generatedQualifiedName,
+					classFileModel,
+					declaredTypes(reifiedTypeArguments),
+					abstractMethodTable.abstractMethods(typeElement)
+			);
+		}
+		
+		SourceText source = sourceModel.source(typeElement);
+		TypeMirror reifiedType = reifiedTypeArguments.values().stream().filter(Objects::nonNull).findFirst().orElse(null);
+		if (source == null || reifiedType == null) {
+			return null;
+		}
+		return Fingerprint.ofSpecialization(
+				typeElement,
+				generatedQualifiedName,
+				reifiedType,
+				source,
+				abstractMethodTable.abstractMethods(typeElement)
+		);
+	}
+	
+	// Reified types of combinations that aren't specialized are all declared types.
+	private static LinkedHashMap<String, DeclaredType> declaredTypes(LinkedHashMap<String, TypeMirror> reifiedTypeArguments) {
+		LinkedHashMap<String, DeclaredType> declaredTypes = new LinkedHashMap<>();
+		reifiedTypeArguments.forEach((name, type) -> declaredTypes.put(name, (DeclaredType) type));
+		return declaredTypes;
+	}
+	
+	private GeneratedType generateSpecialization(TypeElement typeElement, TypeParameterElement typeParameter, TypeMirror reifiedType, String generatedTypeName) {
+		String qualifiedName = typeElement.getQualifiedName().toString();
+		if (classFileModel != null) {
+			messager.printMessage(
+					ERROR,
+					String.format(
+							"'@Reify'-annotation specializing type '%s' with type '%s' is %s with option '%s'",
+							typeElement,
+							reifiedType,
+							Message.NOT_SUPPORTED,
+							CLASS_FILES_OPTION
+					),
+					typeParameter
+			);
+			return null;
+		}
+		
+		String generatedPackageName = model.packageName(typeElement);
+		ClassName generatedClassName = holders
+				? ClassName.get(generatedPackageName, holderName(typeElement), generatedTypeName)
+				: ClassName.get(generatedPackageName, generatedTypeName);
+		
+		Instrumentation.Span span = instrumentation.start(GENERATE_TYPE, qualifiedName);
+		try {
+			// Errors are reported to `messager` from within the generator.
+			return new SpecializedTypeGenerator(types, elements, messager, abstractMethodTable, sourceModel, typeElement)
+					.generateType(typeParameter, reifiedType, generatedPackageName, generatedClassName);
+		} finally {
+			span.close();
+		}
+	}
+	
+	// Qualified name of the file that the given type is generated into, which is its holder if holders are generated.
+	private String generatedFileName(TypeElement typeElement, String generatedTypeName) {
+		String generatedPackageName = model.packageName(typeElement);
+		String generatedFileName = holders ? holderName(typeElement) : generatedTypeName;
+		return generatedPackageName.isEmpty() ? generatedFileName : generatedPackageName + '.' + generatedFileName;
+	}
+	
+	// Writes the cached file generated from the given type if its fingerprint is unchanged, and returns whether it was.
+	private boolean writeCached(TypeElement typeElement, String generatedQualifiedName, String fingerprint) {
+		String cached = generationCache.get(generatedQualifiedName, fingerprint);
+		if (cached == null) {
+			return false;
+		}
 		
-		// Write source file.
+		// Nothing is left to generate; the cached source (or encoded class file) is written right away.
+		String qualifiedName = typeElement.getQualifiedName().toString();
+		if (classFileModel != null) {
+			writeClassFile(typeElement, generatedQualifiedName, Base64.getDecoder().decode(cached), qualifiedName);
+		} else {
+			write(typeElement, generatedQualifiedName, cached, qualifiedName);
+		}
+		return true;
+	}
+	
+	private void write(TypeElement originatingElement, String qualifiedName, String source, String name) {
+		Instrumentation.Span span = instrumentation.start(WRITE_FILE, name);
+		try {
+			JavaFileObject sourceFile = filer.createSourceFile(qualifiedName, originatingElement);
+			try (Writer writer = sourceFile.openWriter()) {
+				writer.write(source);
+			}
+		} catch (IOException e) {
+			messager.printMessage(ERROR, e.getMessage());
+		} finally {
+			span.close();
+		}
+	}
+	
+	private void writeClassFile(TypeElement originatingElement, String qualifiedName, byte[] classFile, String name) {
+		Instrumentation.Span span = instrumentation.start(WRITE_FILE, name);
 		try {
-			javaFile.writeTo(filer);
+			JavaFileObject classFileObject = filer.createClassFile(qualifiedName, originatingElement);
+			try (OutputStream outputStream = classFileObject.openOutputStream()) {
+				outputStream.write(classFile);
+			}
 		} catch (IOException e) {
 			messager.printMessage(ERROR, e.getMessage());
+		} finally {
+			span.close();
 		}
 	}
 	
-	private static String generatedTypeName(String typeName, LinkedHashMap<String, DeclaredType> reifiedTypeArguments) {
+	private String holderName(TypeElement typeElement) {
+		return model.simpleName(typeElement) + GeneratedHolder.SUFFIX;
+	}
+	
+	private String generatedTypeName(String typeName, LinkedHashMap<String, TypeMirror> reifiedTypeArguments, Map<String, String> reifiedTypeNames) {
 		StringBuilder stringBuilder = new StringBuilder(typeName);
 		
 		reifiedTypeArguments
 				.values()
 				.stream()
 				.filter(Objects::nonNull)
-				.map(d -> d.asElement().getSimpleName().toString())
+				.map(t -> reifiedTypeNames.get(t.toString()))
 				.forEach(n -> stringBuilder.append('$').append(n));
 		
 		return stringBuilder.toString();
 	}
 	
-	private LinkedHashMap<String, DeclaredType> reifiedTypeArguments(List<? extends TypeParameterElement> typeParameters) {
+	/**
+	 * Returns the types that each of the type parameters of the given type is reified with, which is a single null type
+	 * for type parameters that aren't reified, or null if any of the types can't be reified with.
+	 */
+	private LinkedHashMap<String, List<TypeMirror>> reifiedTypes(TypeElement typeElement) {
+		List<? extends TypeParameterElement> typeParameters = typeElement.getTypeParameters();
 		if (typeParameters.isEmpty()) {
 			// The processor should only be activated for types with annotated type parameters.
 			throw new IllegalStateException("Type without type parameters not expected");
 		}
 		
-		LinkedHashMap<String, DeclaredType> reifiedTypeArguments = new LinkedHashMap<>();
+		LinkedHashMap<String, List<TypeMirror>> reifiedTypes = new LinkedHashMap<>();
+		boolean valid = true;
 		for (TypeParameterElement typeParameter : typeParameters) {
-			Reify[] annotations = typeParameter.getAnnotationsByType(Reify.class);
-			String typeParameterName = typeParameter.getSimpleName().toString();
-			if (annotations.length == 0) {
+			List<TypeMirror> types = model.reifiedTypes(typeParameter);
+			String typeParameterName = model.simpleName(typeParameter);
+			if (types == null) {
 				// Non-annotated type parameter.
-				reifiedTypeArguments.put(typeParameterName, null);
+				reifiedTypes.put(typeParameterName, Collections.singletonList(null));
 				continue;
 			}
 			
-			if (annotations.length > 1) {
+			if (types.isEmpty()) {
 				messager.printMessage(
 						ERROR,
-						"Repeated '@Reify'-annotations is " + Message.NOT_YET_IMPLEMENTED,
+						String.format("'@Reify'-annotation without types in type '%s' is %s", typeElement, Message.NOT_SUPPORTED),
 						typeParameter
 				);
-				return null;
+				valid = false;
 			}
-			
-			Reify annotation = annotations[0];
-			DeclaredType typeArgument = getDeclaredType(annotation, typeParameter);
-			if (typeArgument == null) {
-				// Error has been reported to `messager` from within `getDeclaredType`.
-				return null;
+			for (TypeMirror type : types) {
+				TypeKind kind = type.getKind();
+				if (kind != DECLARED && !kind.isPrimitive()) {
+					messager.printMessage(
+							ERROR,
+							String.format(
+									"'@Reify'-annotation with type '%s' of kind '%s' in type '%s' is %s",
+									type,
+									kind,
+									typeElement,
+									Message.NOT_YET_IMPLEMENTED
+							),
+							typeParameter
+					);
+					valid = false;
+				}
 			}
-			
-			reifiedTypeArguments.put(typeParameterName, typeArgument);
+			reifiedTypes.put(typeParameterName, types);
 		}
-		return reifiedTypeArguments;
+		return valid ? reifiedTypes : null;
 	}
 	
-	private DeclaredType getDeclaredType(Reify annotation, TypeParameterElement typeParameterElement) {
-		// `Class`-object can't be accessed on compile-time. See
-		// 'https://blog.retep.org/2009/02/13/getting-class-values-from-annotations-in-an-annotationprocessor/'.
-		try {
-			annotation.value();
-			throw new IllegalStateException("Expected 'MirroredTypeException'");
-		} catch (MirroredTypeException e) {
-			TypeMirror typeMirror = e.getTypeMirror();
-			TypeKind typeMirrorKind = typeMirror.getKind();
-			if (typeMirrorKind.isPrimitive()) {
-				// TODO Support reification of primitive types. Like with final classes (see TODO above), the
-				//      generated cannot extend "type" (except in useless cases when the parameter isn't used - we don't
-				//      care about such cases). The generated type's superclass should be the "closest" superclass of
-				//      "type" that doesn't define any type parameter that are being reified into primitive types. Also,
-				//      all interfaces not containing these type parameters should be implemented as well. In short,
-				//      consider this to be a complex expansion of the requirement to support final classes.
-				messager.printMessage(
-						ERROR,
-						String.format(
-								"'@Reify'-annotation with primitive type '%s' on type parameter is %s",
-								typeMirror,
-								Message.NOT_YET_IMPLEMENTED
-						),
-						typeParameterElement
-				);
-				return null;
+	/**
+	 * Returns the names that the given reified types (by their qualified names) have in the names of generated types.
+	 * These are their simple names, except for distinct types with equal simple names, which would make the names of
+	 * generated types collide. Such types are named by their qualified names instead (with '.' replaced by '_').
+	 */
+	private Map<String, String> reifiedTypeNames(Collection<List<TypeMirror>> reifiedTypes) {
+		Map<String, Set<String>> qualifiedNames = new HashMap<>();
+		for (List<TypeMirror> types : reifiedTypes) {
+			for (TypeMirror type : types) {
+				if (type != null) {
+					qualifiedNames.computeIfAbsent(simpleName(type), n -> new HashSet<>()).add(type.toString());
+				}
 			}
-			if (typeMirrorKind != DECLARED) {
-				throw new IllegalStateException(
-						String.format(
-								"Expected type mirror '%s' of kind '%s' to be of kind 'DECLARED'",
-								typeMirrorKind,
-								typeMirror
-						)
-				);
+		}
+		
+		Map<String, String> reifiedTypeNames = new HashMap<>();
+		qualifiedNames.forEach((simpleName, names) -> {
+			for (String name : names) {
+				reifiedTypeNames.put(name, names.size() == 1 ? simpleName : name.replace('.', '_'));
 			}
-			return (DeclaredType) typeMirror;
+		});
+		return reifiedTypeNames;
+	}
+	
+	private String simpleName(TypeMirror type) {
+		return type.getKind() == DECLARED ? model.simpleName(((DeclaredType) type).asElement()) : type.toString();
+	}
+	
+	private void reportInstrumentation() {
+		if (!instrumentation.isEnabled()) {
+			return;
+		}
+		
+		String json = instrumentation.toJson();
+		String path = processingEnv.getOptions().get(INSTRUMENTATION_OPTION);
+		if (path == null || path.isEmpty()) {
+			messager.printMessage(NOTE, "Instrumentation report: " + json);
+			return;
+		}
+		
+		try {
+			Files.write(Paths.get(path), json.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			messager.printMessage(ERROR, String.format("Could not write instrumentation report '%s': %s", path, e));
 		}
 	}
 	
+	private GenerationCache generationCache(Map<String, String> options) {
+		String path = options.get(CACHE_OPTION);
+		if (path == null) {
+			return GenerationCache.DISABLED;
+		}
+		if (path.isEmpty()) {
+			messager.printMessage(ERROR, String.format("Option '%s' must be given the path of the cache file", CACHE_OPTION));
+			return GenerationCache.DISABLED;
+		}
+		
+		try {
+			return GenerationCache.open(Paths.get(path));
+		} catch (IOException e) {
+			messager.printMessage(NOTE, String.format("Ignoring unreadable generation cache '%s': %s", path, e.getMessage()));
+			return GenerationCache.empty(Paths.get(path));
+		}
+	}
+	
+	private void saveGenerationCache() {
+		if (!generationCache.isEnabled()) {
+			return;
+		}
+		
+		messager.printMessage(
+				NOTE,
+				String.format(
+						"Generation cache: %d hits, %d misses",
+						generationCache.getHits(),
+						generationCache.getMisses()
+				)
+		);
+		try {
+			generationCache.save();
+		} catch (IOException e) {
+			messager.printMessage(WARNING, String.format("Could not write generation cache: %s", e));
+		}
+	}
+	
+	private int parallelism(Map<String, String> options) {
+		String value = options.get(PARALLELISM_OPTION);
+		if (value == null) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		
+		Integer parallelism = positiveInteger(PARALLELISM_OPTION, value);
+		return parallelism == null ? 1 : parallelism;
+	}
+	
+	private GeneratedNativeImageConfiguration nativeImageConfiguration(Map<String, String> options) {
+		if (!options.containsKey(NATIVE_IMAGE_OPTION)) {
+			return null;
+		}
+		
+		String coordinates = options.get(NATIVE_IMAGE_OPTION);
+		if (coordinates == null || !coordinates.matches("[^/\\s]+/[^/\\s]+")) {
+			messager.printMessage(
+					ERROR,
+					String.format("Option '%s' must be of the form '<group>/<artifact>' but was '%s'", NATIVE_IMAGE_OPTION, coordinates)
+			);
+			return null;
+		}
+		return new GeneratedNativeImageConfiguration(coordinates, index != null);
+	}
+	
+	private int maxCombinations(Map<String, String> options) {
+		String value = options.get(MAX_COMBINATIONS_OPTION);
+		if (value == null) {
+			return DEFAULT_MAX_COMBINATIONS;
+		}
+		
+		Integer maxCombinations = positiveInteger(MAX_COMBINATIONS_OPTION, value);
+		return maxCombinations == null ? DEFAULT_MAX_COMBINATIONS : maxCombinations;
+	}
+	
+	private WorkerCache workerCache(Map<String, String> options) {
+		String value = options.get(WORKER_CACHE_OPTION);
+		if (value == null) {
+			return WorkerCache.DISABLED;
+		}
+		
+		Integer maximumSize = positiveInteger(WORKER_CACHE_OPTION, value);
+		return maximumSize == null ? WorkerCache.DISABLED : WorkerCache.shared(maximumSize, elements, filer);
+	}
+	
+	private Integer positiveInteger(String option, String value) {
+		try {
+			int integer = Integer.parseInt(value);
+			if (integer >= 1) {
+				return integer;
+			}
+		} catch (NumberFormatException ignored) {
+		}
+		messager.printMessage(
+				ERROR,
+				String.format("Option '%s' must be a positive integer but was '%s'", option, value)
+		);
+		return null;
+	}
+	
+	@Override
+	public Set<String> getSupportedOptions() {
+		return new HashSet<>(Arrays.asList(
+				INSTRUMENTATION_OPTION,
+				PARALLELISM_OPTION,
+				CACHE_OPTION,
+				WORKER_CACHE_OPTION,
+				CLASS_FILES_OPTION,
+				HOLDERS_OPTION,
+				SPECIALIZATIONS_OPTION,
+				COMPANIONS_OPTION,
+				INDEX_OPTION,
+				NATIVE_IMAGE_OPTION,
+				CLASS_LIST_OPTION,
+				MAX_COMBINATIONS_OPTION,
+				// The processor is registered as a dynamic processor for incremental Gradle builds, which query the
+				// category after initialization.
+				index == null && nativeImageConfiguration == null && classList == null ? GRADLE_ISOLATING : GRADLE_AGGREGATING
+		));
+	}
+	
 	@Override
 	public Set<String> getSupportedAnnotationTypes() {
 		return Collections.singleton(Reify.class.getCanonicalName());
@@ -0,0 +1,139 @@
+package reification;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-compilation access to the source code of top-level types. With javac, the source of a type is read from the
+ * compilation unit that the compiler tree API (`com.sun.source.util.Trees`) finds it in. The API is accessed
+ * reflectively, as the processor must neither depend on `tools.jar` nor fail with other compilers. With ECJ, the source
+ * is read from the file that the (implementation of the) element names. Otherwise, the source is looked up on the source
+ * path through the filer, which only finds types that are declared in files of their own name. This includes javac with
+ * environments that build tools (like Gradle) wrap its own in, as the tree API only accepts the latter.
+ */
+public class SourceModel {
+	private final ProcessingEnvironment environment;
+	private final ReificationModel model;
+	
+	private final Map<TypeElement, SourceText> sources = new HashMap<>();
+	
+	private Trees trees;
+	
+	public SourceModel(ProcessingEnvironment environment, ReificationModel model) {
+		this.environment = Objects.requireNonNull(environment, "environment");
+		this.model = Objects.requireNonNull(model, "model");
+	}
+	
+	/**
+	 * Returns the source of the compilation unit that declares the given top-level type, or null if it cannot be read.
+	 */
+	public SourceText source(TypeElement typeElement) {
+		if (sources.containsKey(typeElement)) {
+			return sources.get(typeElement);
+		}
+		
+		CharSequence source = null;
+		try {
+			JavaFileObject sourceFile = trees().sourceFile(typeElement);
+			String fileName = sourceFile == null ? fileName(typeElement) : null;
+			if (sourceFile != null) {
+				source = sourceFile.getCharContent(true);
+			} else if (fileName != null) {
+				source = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+			} else {
+				FileObject resource = environment.getFiler().getResource(
+						StandardLocation.SOURCE_PATH,
+						model.packageName(typeElement),
+						model.simpleName(typeElement) + JavaFileObject.Kind.SOURCE.extension
+				);
+				source = resource.getCharContent(true);
+			}
+		} catch (IOException | ReflectiveOperationException | RuntimeException ignored) {
+			// Not on the source path (or no source path is known to the compiler).
+		}
+		
+		SourceText sourceText = source == null ? null : SourceText.of(source.toString());
+		sources.put(typeElement, sourceText);
+		return sourceText;
+	}
+	
+	// ECJ exposes the name of the source file that an element is compiled from (if any) through its implementation.
+	private static String fileName(TypeElement typeElement) {
+		try {
+			Object fileName = typeElement.getClass().getMethod("getFileName").invoke(typeElement);
+			if (fileName instanceof String && ((String) fileName).endsWith(JavaFileObject.Kind.SOURCE.extension)) {
+				return (String) fileName;
+			}
+		} catch (ReflectiveOperationException | RuntimeException ignored) {
+			// Not ECJ.
+		}
+		return null;
+	}
+	
+	private Trees trees() {
+		if (trees == null) {
+			trees = Trees.of(environment);
+		}
+		return trees;
+	}
+	
+	// Reflective access to the parts of the compiler tree API that lead from an element to its source file.
+	private static class Trees {
+		private static final Trees UNAVAILABLE = new Trees(null, null, null, null);
+		
+		private final Object trees;
+		private final Method getPath;
+		private final Method getCompilationUnit;
+		private final Method getSourceFile;
+		
+		private Trees(Object trees, Method getPath, Method getCompilationUnit, Method getSourceFile) {
+			this.trees = trees;
+			this.getPath = getPath;
+			this.getCompilationUnit = getCompilationUnit;
+			this.getSourceFile = getSourceFile;
+		}
+		
+		static Trees of(ProcessingEnvironment environment) {
+			try {
+				// The API is loaded along with the compiler, which may not be visible from the class loader of the
+				// processor.
+				ClassLoader classLoader = environment.getClass().getClassLoader();
+				Class<?> treesClass = Class.forName("com.sun.source.util.Trees", false, classLoader);
+				Object trees = treesClass.getMethod("instance", ProcessingEnvironment.class).invoke(null, environment);
+				return new Trees(
+						trees,
+						treesClass.getMethod("getPath", Element.class),
+						Class.forName("com.sun.source.util.TreePath", false, classLoader).getMethod("getCompilationUnit"),
+						Class.forName("com.sun.source.tree.CompilationUnitTree", false, classLoader).getMethod("getSourceFile")
+				);
+			} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+				// Not javac, or the environment is wrapped (as by Gradle).
+				return UNAVAILABLE;
+			}
+		}
+		
+		JavaFileObject sourceFile(TypeElement typeElement) throws ReflectiveOperationException {
+			if (trees == null) {
+				return null;
+			}
+			Object path = getPath.invoke(trees, typeElement);
+			if (path == null) {
+				// Not compiled from source.
+				return null;
+			}
+			return (JavaFileObject) getSourceFile.invoke(getCompilationUnit.invoke(path));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package reification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static reification.Instrumentation.Phase.RENDER;
+
+/**
+ * Builds and renders generated types into source, in parallel on a fork-join pool if more than one thread is allowed.
+ * The rendered sources are returned in the order of the given types, independently of the order in which they were
+ * rendered.
+ * <p>
+ * Rendered sources are canonical, such that the same type always results in the same bytes: Members and imports are
+ * emitted in a fixed order and lines are terminated by '\n' on every platform. Characters outside of ASCII (which may
+ * only occur in names) are written as Unicode escapes, so the encoding of the written file doesn't matter either.
+ * <p>
+ * Types may be rendered into class files instead, which are written with the same constant pool and member order for
+ * the same type as well.
+ */
+public class SourceRenderer {
+	private final int parallelism;
+	private final Instrumentation instrumentation;
+	
+	private ForkJoinPool pool;
+	
+	public SourceRenderer(int parallelism, Instrumentation instrumentation) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		this.instrumentation = instrumentation;
+	}
+	
+	/**
+	 * Renders the given types, which are described under the given (originating) names for instrumentation.
+	 */
+	public List<String> render(List<GeneratedType> generatedTypes, List<String> names) {
+		return render(generatedTypes, names, t -> canonical(t.toJavaFile().toString()));
+	}
+	
+	/**
+	 * Renders the given types into class files, which are described under the given (originating) names for
+	 * instrumentation.
+	 */
+	public List<byte[]> renderClassFiles(List<GeneratedType> generatedTypes, List<String> names) {
+		return render(generatedTypes, names, GeneratedType::toClassFile);
+	}
+	
+	/**
+	 * Renders the given holders into source, which are described under the given (originating) names for
+	 * instrumentation.
+	 */
+	public List<String> renderHolders(List<GeneratedHolder> generatedHolders, List<String> names) {
+		return render(generatedHolders, names, h -> canonical(h.toJavaFile().toString()));
+	}
+	
+	private <S, T> List<T> render(List<S> generated, List<String> names, Function<S, T> renderer) {
+		List<Callable<T>> tasks = new ArrayList<>(generated.size());
+		for (int i = 0; i < generated.size(); i++) {
+			S element = generated.get(i);
+			String name = names.get(i);
+			tasks.add(() -> {
+				Instrumentation.Span span = instrumentation.start(RENDER, name);
+				try {
+					return renderer.apply(element);
+				} finally {
+					span.close();
+				}
+			});
+		}
+		
+		List<T> results = new ArrayList<>(tasks.size());
+		if (parallelism == 1 || tasks.size() < 2) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (Exception e) {
+					throw new IllegalStateException("Rendering failed", e);
+				}
+			}
+			return results;
+		}
+		
+		for (Future<T> future : pool().invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Rendering interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Rendering failed", e.getCause());
+			}
+		}
+		return results;
+	}
+	
+	static String canonical(String source) {
+		StringBuilder stringBuilder = null;
+		for (int i = 0; i < source.length(); i++) {
+			char c = source.charAt(i);
+			if (c < 0x80) {
+				if (stringBuilder != null) {
+					stringBuilder.append(c);
+				}
+				continue;
+			}
+			if (stringBuilder == null) {
+				stringBuilder = new StringBuilder(source.length() + 16).append(source, 0, i);
+			}
+			stringBuilder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+		}
+		return stringBuilder == null ? source : stringBuilder.toString();
+	}
+	
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+	private ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,560 @@
+package reification;
+
+import java.util.*;
+
+/**
+ * Lexical view of a compilation unit, which is just detailed enough to find the imports of the unit and the member
+ * declarations of its top-level types, and to hand out the code of these (that is, method bodies, initializer blocks and
+ * field initializers) as tokens to be rewritten. Comments and whitespace are kept as tokens of their own, such that
+ * rewritten code keeps its formatting.
+ * <p>
+ * The code is assumed to compile, so malformed input only has to be handled without failing.
+ */
+public final class SourceText {
+	private final String source;
+	private final List<Token> tokens;
+	
+	private SourceText(String source, List<Token> tokens) {
+		this.source = source;
+		this.tokens = tokens;
+	}
+	
+	public static SourceText of(String source) {
+		return new SourceText(source, Collections.unmodifiableList(tokenize(source)));
+	}
+	
+	public String getSource() {
+		return source;
+	}
+	
+	/**
+	 * Returns the names of the imports of the unit, including trailing '*' of imports on demand.
+	 */
+	public List<String> imports(boolean staticImports) {
+		List<String> imports = new ArrayList<>();
+		int depth = 0;
+		for (int i = next(tokens, 0); i < tokens.size(); i = next(tokens, i + 1)) {
+			Token token = tokens.get(i);
+			if (token.isSymbol('{')) {
+				depth++;
+			} else if (token.isSymbol('}')) {
+				depth--;
+			} else if (depth == 0 && token.is("import")) {
+				int j = next(tokens, i + 1);
+				boolean staticImport = j < tokens.size() && tokens.get(j).is("static");
+				if (staticImport) {
+					j = next(tokens, j + 1);
+				}
+				StringBuilder name = new StringBuilder();
+				for (; j < tokens.size() && !tokens.get(j).isSymbol(';'); j = next(tokens, j + 1)) {
+					name.append(tokens.get(j).text);
+				}
+				if (staticImport == staticImports) {
+					imports.add(name.toString());
+				}
+				i = j;
+			}
+		}
+		return imports;
+	}
+	
+	/**
+	 * Returns the member declarations of the top-level class or interface with the given name, or null if the unit
+	 * doesn't declare it.
+	 */
+	public List<Member> members(String simpleName) {
+		int depth = 0;
+		for (int i = next(tokens, 0); i < tokens.size(); i = next(tokens, i + 1)) {
+			Token token = tokens.get(i);
+			if (token.isSymbol('{')) {
+				depth++;
+			} else if (token.isSymbol('}')) {
+				depth--;
+			} else if (depth == 0 && (token.is("class") || token.is("interface"))) {
+				int previous = previous(tokens, i - 1);
+				if (previous >= 0 && (tokens.get(previous).isSymbol('.') || tokens.get(previous).isSymbol('@'))) {
+					continue;
+				}
+				int name = next(tokens, i + 1);
+				if (name < tokens.size() && tokens.get(name).is(simpleName)) {
+					int bodyStart = name;
+					while (bodyStart < tokens.size() && !tokens.get(bodyStart).isSymbol('{')) {
+						bodyStart = tokens.get(bodyStart).isSymbol('(') ? closing(tokens, bodyStart) + 1 : next(tokens, bodyStart + 1);
+					}
+					return members(bodyStart + 1, closing(tokens, bodyStart));
+				}
+			}
+		}
+		return null;
+	}
+	
+	private List<Member> members(int start, int end) {
+		List<Member> members = new ArrayList<>();
+		int i = next(tokens, start);
+		while (i < end) {
+			if (tokens.get(i).isSymbol(';')) {
+				i = next(tokens, i + 1);
+				continue;
+			}
+			
+			boolean staticMember = false;
+			boolean typeMember = false;
+			boolean modifiersOnly = true;
+			String lastIdentifier = null;
+			String name = null;
+			List<String> parameterTypes = null;
+			int j = i;
+			while (j < end) {
+				Token token = tokens.get(j);
+				if (token.isSymbol('@') && !tokens.get(next(tokens, j + 1)).is("interface")) {
+					j = skipAnnotation(j);
+					continue;
+				}
+				if (token.kind == TokenKind.IDENTIFIER) {
+					if (token.is("static")) {
+						staticMember = true;
+					} else if (token.is("class") || token.is("interface") || token.is("enum")) {
+						typeMember = true;
+					}
+					if (!MODIFIERS.contains(token.text)) {
+						modifiersOnly = false;
+					}
+					lastIdentifier = token.text;
+				} else if (token.isSymbol('@')) {
+					typeMember = true;
+					modifiersOnly = false;
+				}
+				
+				if (token.isSymbol('=') && parameterTypes == null && !typeMember) {
+					// Field with initializer(s).
+					int declarationEnd = end(j, false);
+					members.add(field(i, declarationEnd, staticMember));
+					j = declarationEnd;
+					break;
+				}
+				if (token.isSymbol('(') && parameterTypes == null && !typeMember) {
+					name = lastIdentifier;
+					int closing = closing(tokens, j);
+					parameterTypes = parameterTypes(j, closing);
+					j = next(tokens, closing + 1);
+					continue;
+				}
+				if (token.isSymbol(';')) {
+					members.add(
+							parameterTypes == null
+									? field(i, j, staticMember)
+									: new Member(MemberKind.METHOD, Collections.singletonList(name), parameterTypes, staticMember, null)
+					);
+					break;
+				}
+				if (token.isSymbol('{')) {
+					int closing = closing(tokens, j);
+					List<Token> body = tokens.subList(j + 1, closing);
+					if (typeMember) {
+						members.add(new Member(MemberKind.TYPE, Collections.singletonList(lastIdentifier), null, staticMember, null));
+					} else if (parameterTypes != null) {
+						members.add(new Member(MemberKind.METHOD, Collections.singletonList(name), parameterTypes, staticMember, body));
+					} else if (modifiersOnly) {
+						members.add(new Member(MemberKind.INITIALIZER, Collections.emptyList(), null, staticMember, body));
+					}
+					j = closing;
+					break;
+				}
+				j = next(tokens, j + 1);
+			}
+			i = next(tokens, j + 1);
+		}
+		return members;
+	}
+	
+	// Declarators of a field, which must all be of the same type: Every name is followed by an optional initializer.
+	private Member field(int start, int end, boolean staticMember) {
+		List<String> names = new ArrayList<>();
+		Map<String, List<Token>> initializers = new HashMap<>();
+		int angles = 0;
+		for (int i = start; i < end; i = next(tokens, i + 1)) {
+			Token token = tokens.get(i);
+			if (token.isSymbol('@')) {
+				i = previous(tokens, skipAnnotation(i) - 1);
+			} else if (token.isSymbol('<')) {
+				angles++;
+			} else if (token.isSymbol('>')) {
+				angles--;
+			} else if (token.kind == TokenKind.IDENTIFIER && angles == 0) {
+				// Names may be followed by the dimensions of C-style arrays.
+				int following = next(tokens, i + 1);
+				while (following < end && (tokens.get(following).isSymbol('[') || tokens.get(following).isSymbol(']'))) {
+					following = next(tokens, following + 1);
+				}
+				Token next = following < tokens.size() ? tokens.get(following) : null;
+				if (next != null && (next.isSymbol('=') || next.isSymbol(',') || next.isSymbol(';'))) {
+					names.add(token.text);
+					if (next.isSymbol('=')) {
+						int initializerEnd = end(following, true);
+						initializers.put(token.text, tokens.subList(following + 1, initializerEnd));
+						following = initializerEnd;
+					}
+					i = following;
+				}
+			}
+		}
+		return new Member(MemberKind.FIELD, names, null, staticMember, null, initializers);
+	}
+	
+	// Index of the ';' ending the field (or the ',' ending the declarator) at the given index.
+	private int end(int start, boolean declarator) {
+		for (int i = start; i < tokens.size(); i = next(tokens, i + 1)) {
+			Token token = tokens.get(i);
+			if (token.isSymbol('(') || token.isSymbol('{') || token.isSymbol('[')) {
+				i = closing(tokens, i);
+			} else if (token.isSymbol(';') || declarator && token.isSymbol(',')) {
+				return i;
+			}
+		}
+		return tokens.size();
+	}
+	
+	// Erased types of the parameters between the given parentheses, by their simple names as written (like `List` for
+	// `java.util.List<String>`, `T` for a type variable, and `int[]` for `int...`). Receiver parameters are left out.
+	private List<String> parameterTypes(int open, int close) {
+		List<String> parameterTypes = new ArrayList<>();
+		String type = null;
+		String name = null;
+		int dimensions = 0;
+		int angles = 0;
+		for (int i = next(tokens, open + 1); i <= close; i = next(tokens, i + 1)) {
+			Token token = i < close ? tokens.get(i) : null;
+			if (token == null || token.isSymbol(',') && angles == 0) {
+				if (type != null && !"this".equals(name)) {
+					StringBuilder parameterType = new StringBuilder(type);
+					for (int d = 0; d < dimensions; d++) {
+						parameterType.append("[]");
+					}
+					parameterTypes.add(parameterType.toString());
+				}
+				type = null;
+				name = null;
+				dimensions = 0;
+			} else if (token.isSymbol('@')) {
+				i = previous(tokens, skipAnnotation(i) - 1);
+			} else if (token.isSymbol('<')) {
+				angles++;
+			} else if (token.isSymbol('>')) {
+				angles--;
+			} else if (angles == 0 && token.isSymbol('[')) {
+				dimensions++;
+			} else if (angles == 0 && token.isSymbol('.') && symbol(next(tokens, i + 1), close, '.')) {
+				// Variable arity, written as `...`.
+				dimensions++;
+				i = next(tokens, next(tokens, i + 1) + 1);
+			} else if (angles == 0 && token.kind == TokenKind.IDENTIFIER && !token.is("final")) {
+				// The last identifier is the name, and the one before it the simple name of the type.
+				int following = next(tokens, i + 1);
+				if (symbol(following, close, '.') && !symbol(next(tokens, following + 1), close, '.')) {
+					// Qualifier of the type.
+					continue;
+				}
+				if (name != null) {
+					type = name;
+				}
+				name = token.text;
+			}
+		}
+		return parameterTypes;
+	}
+	
+	private boolean symbol(int index, int end, char symbol) {
+		return index < end && tokens.get(index).isSymbol(symbol);
+	}
+	
+	// Index of the first significant token after the annotation at the given index.
+	private int skipAnnotation(int at) {
+		int i = next(tokens, at + 1);
+		while (i < tokens.size()) {
+			i = next(tokens, i + 1);
+			if (i < tokens.size() && tokens.get(i).isSymbol('.')) {
+				i = next(tokens, i + 1);
+			} else {
+				break;
+			}
+		}
+		if (i < tokens.size() && tokens.get(i).isSymbol('(')) {
+			i = next(tokens, closing(tokens, i) + 1);
+		}
+		return i;
+	}
+	
+	/**
+	 * Returns whether the given code declares a variable or type parameter of the given name, which shadows a type
+	 * parameter of that name: Local variables, (lambda) parameters and fields of local or anonymous classes are declared
+	 * after their type or before a lambda arrow, and type parameters in lists after the name of a class or before the
+	 * result of a method.
+	 */
+	public static boolean declares(List<Token> tokens, String name) {
+		for (int i = next(tokens, 0); i < tokens.size(); i = next(tokens, i + 1)) {
+			if (!tokens.get(i).is(name)) {
+				continue;
+			}
+			int previous = previous(tokens, i - 1);
+			int next = next(tokens, i + 1);
+			if (previous < 0 || next >= tokens.size()) {
+				continue;
+			}
+			Token before = tokens.get(previous);
+			Token after = tokens.get(next);
+			
+			// Variables are declared after their type (unless that's an annotation, as in a cast like `(@A T) x`), and
+			// followed by the dimensions of C-style arrays.
+			int annotation = previous(tokens, previous - 1);
+			boolean annotated = annotation >= 0 && (tokens.get(annotation).isSymbol('@') || tokens.get(annotation).isSymbol('.'));
+			boolean typed = before.kind == TokenKind.IDENTIFIER && !EXPRESSION_KEYWORDS.contains(before.text) && !annotated
+					|| before.isSymbol('>')
+					|| before.isSymbol(']');
+			int following = next;
+			while (following < tokens.size() && tokens.get(following).isSymbol('[')) {
+				int dimension = next(tokens, following + 1);
+				if (dimension >= tokens.size() || !tokens.get(dimension).isSymbol(']')) {
+					break;
+				}
+				following = next(tokens, dimension + 1);
+			}
+			if (typed && following < tokens.size() && tokens.get(following).kind == TokenKind.SYMBOL
+					&& "=;,:)".indexOf(tokens.get(following).text.charAt(0)) >= 0) {
+				return true;
+			}
+			if (arrow(tokens, next)) {
+				return true;
+			}
+			if ((before.isSymbol('(') || before.isSymbol(',')) && (after.isSymbol(',') || after.isSymbol(')'))) {
+				// Implicitly typed parameters of lambdas, like `(T, U) -> ...`.
+				int open = previous;
+				while (open >= 0 && !tokens.get(open).isSymbol('(')) {
+					open = previous(tokens, open - 1);
+				}
+				if (open >= 0 && arrow(tokens, next(tokens, closing(tokens, open) + 1))) {
+					return true;
+				}
+			}
+			if ((before.isSymbol('<') || before.isSymbol(',')) && (after.is("extends") || after.isSymbol(',') || after.isSymbol('>'))) {
+				int open = previous;
+				for (int depth = 0; open >= 0 && (depth > 0 || !tokens.get(open).isSymbol('<')); open = previous(tokens, open - 1)) {
+					if (tokens.get(open).isSymbol('>')) {
+						depth++;
+					} else if (tokens.get(open).isSymbol('<')) {
+						depth--;
+					}
+				}
+				if (open >= 0 && typeParameters(tokens, open)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static final Set<String> EXPRESSION_KEYWORDS = new HashSet<>(Arrays.asList(
+			"return", "throw", "case", "new", "instanceof", "extends", "super", "assert", "else", "yield"
+	));
+	
+	private static boolean arrow(List<Token> tokens, int index) {
+		return index < tokens.size() && tokens.get(index).isSymbol('-') && next(tokens, index + 1) < tokens.size()
+				&& tokens.get(next(tokens, index + 1)).isSymbol('>');
+	}
+	
+	// Whether the '<' at the given index opens the type parameters of a class or method, as opposed to type arguments.
+	private static boolean typeParameters(List<Token> tokens, int open) {
+		int previous = previous(tokens, open - 1);
+		if (previous < 0) {
+			return true;
+		}
+		Token before = tokens.get(previous);
+		if (before.kind == TokenKind.IDENTIFIER) {
+			int beforeName = previous(tokens, previous - 1);
+			// Methods may follow annotations without arguments, like `@Override <T> ...`.
+			return MODIFIERS.contains(before.text)
+					|| beforeName >= 0 && (tokens.get(beforeName).is("class") || tokens.get(beforeName).is("interface")
+					|| tokens.get(beforeName).isSymbol('@'));
+		}
+		return before.isSymbol('{') || before.isSymbol('}') || before.isSymbol(';') || before.isSymbol(')');
+	}
+	
+	/**
+	 * Returns the index of the significant token at or after the given index, or the size of the tokens if none.
+	 */
+	public static int next(List<Token> tokens, int index) {
+		while (index < tokens.size() && !tokens.get(index).isSignificant()) {
+			index++;
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the index of the significant token at or before the given index, or -1 if none.
+	 */
+	public static int previous(List<Token> tokens, int index) {
+		while (index >= 0 && !tokens.get(index).isSignificant()) {
+			index--;
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the index of the bracket closing the one at the given index, or the size of the tokens if unbalanced.
+	 */
+	public static int closing(List<Token> tokens, int index) {
+		char open = tokens.get(index).text.charAt(0);
+		char close = open == '(' ? ')' : open == '[' ? ']' : open == '<' ? '>' : '}';
+		int depth = 0;
+		for (int i = index; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			if (token.isSymbol(open)) {
+				depth++;
+			} else if (token.isSymbol(close) && --depth == 0) {
+				return i;
+			}
+		}
+		return tokens.size();
+	}
+	
+	private static final Set<String> MODIFIERS = new HashSet<>(Arrays.asList(
+			"public", "protected", "private", "static", "final", "abstract", "synchronized", "native", "transient",
+			"volatile", "strictfp", "default"
+	));
+	
+	static List<Token> tokenize(String source) {
+		List<Token> tokens = new ArrayList<>();
+		int length = source.length();
+		int i = 0;
+		while (i < length) {
+			char c = source.charAt(i);
+			int start = i;
+			TokenKind kind;
+			if (Character.isWhitespace(c)) {
+				while (i < length && Character.isWhitespace(source.charAt(i))) {
+					i++;
+				}
+				kind = TokenKind.WHITESPACE;
+			} else if (source.startsWith("//", i)) {
+				while (i < length && source.charAt(i) != '\n') {
+					i++;
+				}
+				kind = TokenKind.COMMENT;
+			} else if (source.startsWith("/*", i)) {
+				int end = source.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+				kind = TokenKind.COMMENT;
+			} else if (source.startsWith("\"\"\"", i)) {
+				int end = i + 3;
+				while (end < length && !source.startsWith("\"\"\"", end)) {
+					end += source.charAt(end) == '\\' ? 2 : 1;
+				}
+				i = Math.min(end + 3, length);
+				kind = TokenKind.LITERAL;
+			} else if (c == '"' || c == '\'') {
+				i++;
+				while (i < length && source.charAt(i) != c && source.charAt(i) != '\n') {
+					i += source.charAt(i) == '\\' ? 2 : 1;
+				}
+				i = Math.min(i + 1, length);
+				kind = TokenKind.LITERAL;
+			} else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(source.charAt(i + 1)))) {
+				boolean hex = source.startsWith("0x", start) || source.startsWith("0X", start);
+				i++;
+				while (i < length) {
+					char d = source.charAt(i);
+					char previous = source.charAt(i - 1);
+					boolean exponentSign = (d == '+' || d == '-') && (hex
+							? previous == 'p' || previous == 'P'
+							: previous == 'e' || previous == 'E');
+					if (!Character.isJavaIdentifierPart(d) && d != '.' && !exponentSign) {
+						break;
+					}
+					i++;
+				}
+				kind = TokenKind.LITERAL;
+			} else if (Character.isJavaIdentifierStart(c)) {
+				while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+					i++;
+				}
+				kind = TokenKind.IDENTIFIER;
+			} else {
+				i++;
+				kind = TokenKind.SYMBOL;
+			}
+			tokens.add(new Token(kind, source.substring(start, i)));
+		}
+		return tokens;
+	}
+	
+	public enum TokenKind {
+		IDENTIFIER, LITERAL, SYMBOL, COMMENT, WHITESPACE
+	}
+	
+	/**
+	 * Token of source code. Keywords are identifiers, and every symbol is a token of its own (such that e.g. `>>` is two
+	 * tokens).
+	 */
+	public static final class Token {
+		public final TokenKind kind;
+		public final String text;
+		
+		public Token(TokenKind kind, String text) {
+			this.kind = Objects.requireNonNull(kind, "kind");
+			this.text = Objects.requireNonNull(text, "text");
+		}
+		
+		public boolean isSignificant() {
+			return kind != TokenKind.COMMENT && kind != TokenKind.WHITESPACE;
+		}
+		
+		public boolean is(String identifier) {
+			return kind == TokenKind.IDENTIFIER && text.equals(identifier);
+		}
+		
+		public boolean isSymbol(char symbol) {
+			return kind == TokenKind.SYMBOL && text.charAt(0) == symbol;
+		}
+		
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+	
+	public enum MemberKind {
+		FIELD, METHOD, INITIALIZER, TYPE
+	}
+	
+	/**
+	 * Member declaration of a type. Methods include constructors (named by their type), and fields are all the
+	 * declarators of a single declaration.
+	 */
+	public static final class Member {
+		public final MemberKind kind;
+		public final List<String> names;
+		
+		// Erased types of the parameters of a method by their simple names as written (see `parameterTypes`), or null
+		// for other members.
+		public final List<String> parameterTypes;
+		public final boolean staticMember;
+		
+		// Code of the body of a method or initializer, or null for abstract methods.
+		public final List<Token> body;
+		
+		// Code of the initializers of the declarators of a field, by their name.
+		public final Map<String, List<Token>> initializers;
+		
+		Member(MemberKind kind, List<String> names, List<String> parameterTypes, boolean staticMember, List<Token> body) {
+			this(kind, names, parameterTypes, staticMember, body, Collections.emptyMap());
+		}
+		
+		Member(MemberKind kind, List<String> names, List<String> parameterTypes, boolean staticMember, List<Token> body, Map<String, List<Token>> initializers) {
+			this.kind = kind;
+			this.names = names;
+			this.parameterTypes = parameterTypes;
+			this.staticMember = staticMember;
+			this.body = body;
+			this.initializers = initializers;
+		}
+	}
+}
@@ -0,0 +1,1096 @@
+package reification;
+
+import com.squareup.javapoet.*;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+import static javax.lang.model.element.Modifier.*;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+/**
+ * Generator of types that specialize the reifying type rather than extend it: The members of the reifying type are
+ * copied into the generated type with the reified type parameter substituted by the type that it's reified with. This is
+ * how types are reified with primitive types, which cannot be type arguments: The specialization `Ring$int` of
+ * `Ring<@Reify(int.class) T>` stores its elements in an `int[]` rather than in an array of boxes. It's also how final
+ * types (which cannot be extended) are reified, where the specialization runs on the exact reified type instead of on
+ * its erasure.
+ * <p>
+ * The generated type extends the superclass and implements the interfaces of the reifying type (with the type parameter
+ * substituted), except the ones that depend on a type parameter that's reified with a primitive type: Instead of such a
+ * superclass, the nearest superclass of it that doesn't is extended, and the interfaces of the ones in between that
+ * don't are implemented (though none of their members are copied). Signatures are derived from the model, while method
+ * bodies and initializers are copied from the source of the reifying type (see {@link SourceModel}) and rewritten token
+ * by token:
+ * <ul>
+ * <li>The type parameter becomes the reified type, or the box of a primitive type within type arguments (e.g.
+ * `List<Integer>`).</li>
+ * <li>The reifying type, when instantiated with the type parameter, becomes the generated type.</li>
+ * <li>Creation of an array of the type parameter through an unchecked cast (`(T[]) new Object[n]`) becomes creation
+ * of an array of the reified type.</li>
+ * <li>Types that are imported by the source of the reifying type are imported by the generated type.</li>
+ * </ul>
+ * Non-private static members stay in the reifying type and are imported statically. The code must otherwise be valid
+ * for a primitive type as well, so it must e.g. not compare elements with `null` nor call methods on them.
+ */
+public class SpecializedTypeGenerator {
+	private final Types types;
+	private final Elements elements;
+	private final Messager messager;
+	private final AbstractMethodTable abstractMethodTable;
+	private final SourceModel sourceModel;
+	
+	private final TypeElement typeElement;
+	
+	// Set up per generated type.
+	private TypeParameterElement typeParameter;
+	private TypeName reifiedTypeName;
+	private boolean primitive;
+	private ClassName generatedClassName;
+	private Map<String, String> typeImports;
+	private List<String> onDemandImports;
+	private String packagePrefix;
+	private final Map<String, Optional<ClassName>> importedTypes = new HashMap<>();
+	
+	// Functional parameters (by name) of the primitive variant whose code is being rewritten.
+	private Map<String, PrimitiveFunction> primitiveFunctions = Collections.emptyMap();
+	
+	public SpecializedTypeGenerator(
+			Types types,
+			Elements elements,
+			Messager messager,
+			AbstractMethodTable abstractMethodTable,
+			SourceModel sourceModel,
+			TypeElement typeElement
+	) {
+		this.types = Objects.requireNonNull(types, "types");
+		this.elements = Objects.requireNonNull(elements, "elements");
+		this.messager = Objects.requireNonNull(messager, "messager");
+		this.abstractMethodTable = Objects.requireNonNull(abstractMethodTable, "abstractMethodTable");
+		this.sourceModel = Objects.requireNonNull(sourceModel, "sourceModel");
+		this.typeElement = Objects.requireNonNull(typeElement, "typeElement");
+	}
+	
+	/**
+	 * Generates the specialization of the reifying type with the given type parameter reified with the given (primitive
+	 * or declared) type. The generated type has the given name, which is that of a member of a holder if holders are generated.
+	 */
+	public GeneratedType generateType(TypeParameterElement typeParameter, TypeMirror reifiedType, String generatedPackageName, ClassName generatedClassName) {
+		if (typeElement.getTypeParameters().size() > 1) {
+			messager.printMessage(
+					ERROR,
+					String.format(
+							"'@Reify'-annotation with type '%s' in type '%s' with multiple type variables is %s",
+							reifiedType,
+							typeElement,
+							Message.NOT_YET_IMPLEMENTED
+					),
+					typeElement
+			);
+			return null;
+		}
+		
+		SourceText source = sourceModel.source(typeElement);
+		List<SourceText.Member> members = source == null ? null : source.members(typeElement.getSimpleName().toString());
+		if (members == null) {
+			messager.printMessage(
+					ERROR,
+					String.format(
+							"'@Reify'-annotation with type '%s' requires the source of type '%s', which is not available (add it to the source path)",
+							reifiedType,
+							typeElement
+					),
+					typeElement
+			);
+			return null;
+		}
+		
+		this.typeParameter = typeParameter;
+		this.reifiedTypeName = TypeName.get(reifiedType);
+		this.primitive = reifiedType.getKind().isPrimitive();
+		this.generatedClassName = generatedClassName;
+		this.packagePrefix = generatedPackageName.isEmpty() ? "" : generatedPackageName + '.';
+		imports(source);
+		
+		boolean interfaceType = typeElement.getKind().isInterface();
+		TypeName superclass = null;
+		List<TypeMirror> supertypes = supertypes();
+		List<TypeMirror> interfaceTypes = supertypes;
+		if (!interfaceType) {
+			TypeMirror superclassType = supertypes.get(0);
+			if (!((TypeElement) types.asElement(superclassType)).getQualifiedName().contentEquals(Object.class.getName())) {
+				superclass = specialize(superclassType, true);
+			}
+			interfaceTypes = supertypes.subList(1, supertypes.size());
+		}
+		List<TypeName> superinterfaces = new ArrayList<>();
+		for (TypeMirror interfaceMirror : interfaceTypes) {
+			superinterfaces.add(specialize(interfaceMirror, true));
+		}
+		
+		List<FieldSpec> fields = new ArrayList<>();
+		List<CodeBlock> initializerBlocks = new ArrayList<>();
+		List<MethodSpec> methods = new ArrayList<>();
+		Set<String> staticImports = new LinkedHashSet<>();
+		boolean abstractType = false;
+		
+		List<SourceText.Member> unmatchedMembers = new ArrayList<>();
+		Map<String, SourceText.Member> fieldMembers = new HashMap<>();
+		for (SourceText.Member member : members) {
+			switch (member.kind) {
+				case FIELD:
+					member.names.forEach(n -> fieldMembers.put(n, member));
+					break;
+				case METHOD:
+					unmatchedMembers.add(member);
+					break;
+				case INITIALIZER:
+					if (member.staticMember) {
+						messager.printMessage(
+								ERROR,
+								String.format(
+										"'@Reify'-annotation with type '%s' in type '%s' with static initializer is %s",
+										reifiedType,
+										typeElement,
+										Message.NOT_YET_IMPLEMENTED
+								),
+								typeElement
+						);
+						return null;
+					}
+					if (shadows(typeElement, member.body)) {
+						shadowed(reifiedType, typeElement);
+						return null;
+					}
+					initializerBlocks.add(code(member.body, false));
+					break;
+				default:
+					break;
+			}
+		}
+		
+		Set<String> signatures = new HashSet<>();
+		for (ExecutableElement methodElement : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+			List<TypeName> parameterTypes = new ArrayList<>();
+			for (VariableElement parameter : methodElement.getParameters()) {
+				parameterTypes.add(specialize(parameter.asType(), false));
+			}
+			signatures.add(signature(methodElement.getSimpleName().toString(), parameterTypes));
+		}
+		
+		for (Element memberElement : typeElement.getEnclosedElements()) {
+			ElementKind kind = memberElement.getKind();
+			Set<Modifier> modifiers = memberElement.getModifiers();
+			if (kind.isClass() || kind.isInterface()) {
+				messager.printMessage(
+						ERROR,
+						String.format(
+								"'@Reify'-annotation with type '%s' in type '%s' with member type '%s' is %s",
+								reifiedType,
+								typeElement,
+								memberElement.getSimpleName(),
+								Message.NOT_YET_IMPLEMENTED
+						),
+						memberElement
+				);
+				return null;
+			}
+			if (modifiers.contains(STATIC) && !modifiers.contains(PRIVATE) && (kind == ElementKind.FIELD || kind == ElementKind.METHOD)) {
+				staticImports.add(memberElement.getSimpleName().toString());
+				continue;
+			}
+			
+			if (kind == ElementKind.FIELD) {
+				VariableElement fieldElement = (VariableElement) memberElement;
+				String name = fieldElement.getSimpleName().toString();
+				FieldSpec.Builder builder = FieldSpec.builder(specialize(fieldElement.asType(), false), name)
+						.addModifiers(modifiers.toArray(new Modifier[0]))
+						.addAnnotations(annotations(fieldElement));
+				SourceText.Member member = fieldMembers.get(name);
+				List<SourceText.Token> initializer = member == null ? null : member.initializers.get(name);
+				if (shadows(fieldElement, initializer)) {
+					shadowed(reifiedType, fieldElement);
+					return null;
+				}
+				if (initializer != null) {
+					builder.initializer(code(initializer, true));
+				}
+				fields.add(builder.build());
+			} else if (kind == ElementKind.METHOD || kind == ElementKind.CONSTRUCTOR) {
+				ExecutableElement methodElement = (ExecutableElement) memberElement;
+				SourceText.Member member = match(unmatchedMembers, methodElement);
+				if (member == null) {
+					if (kind == ElementKind.CONSTRUCTOR) {
+						// Implicit default constructor, which the generated type has as well.
+						continue;
+					}
+					messager.printMessage(
+							ERROR,
+							String.format("Declaration of method '%s' not found in the source of type '%s'", methodElement, typeElement),
+							methodElement
+					);
+					return null;
+				}
+				if (shadows(methodElement, member.body)) {
+					shadowed(reifiedType, methodElement);
+					return null;
+				}
+				MethodSpec method = method(methodElement, member, interfaceType, reifiedType);
+				if (method.hasModifier(ABSTRACT)) {
+					abstractType = true;
+				}
+				MethodSpec primitiveVariant = kind == ElementKind.METHOD
+						? primitiveVariant(methodElement, member, method, signatures)
+						: null;
+				if (primitiveVariant != null) {
+					methods.add(adapter(method, primitiveVariant));
+					methods.add(primitiveVariant);
+				} else {
+					methods.add(method);
+				}
+			}
+		}
+		
+		if (!interfaceType && !abstractType) {
+			// Abstract methods that are inherited from the kept supertypes stay abstract.
+			for (ExecutableElement abstractMethod : abstractMethodTable.abstractMethods(typeElement)) {
+				Element declaringElement = abstractMethod.getEnclosingElement();
+				if (!declaringElement.equals(typeElement) && inheritedFrom(supertypes, declaringElement)) {
+					abstractType = true;
+				}
+			}
+		}
+		
+		Map<ClassName, Set<String>> staticImportsByType = staticImports(source);
+		if (!staticImports.isEmpty()) {
+			staticImportsByType.computeIfAbsent(ClassName.get(typeElement), c -> new LinkedHashSet<>()).addAll(staticImports);
+		}
+		
+		return new GeneratedType(
+				typeElement,
+				generatedPackageName,
+				generatedClassName.simpleName(),
+				interfaceType,
+				abstractType,
+				superclass,
+				superinterfaces,
+				Collections.emptyList(),
+				fields,
+				initializerBlocks,
+				methods,
+				Collections.emptyList(),
+				staticImportsByType
+		);
+	}
+	
+	/**
+	 * Returns whether the specialization with the given type parameter reified with the given type can be instantiated
+	 * through a constructor without parameters (see {@link GeneratedType#isInstantiable()}). Unlike generating it, this
+	 * doesn't require the source of the reifying type.
+	 */
+	public boolean isInstantiable(TypeParameterElement typeParameter, TypeMirror reifiedType) {
+		if (typeElement.getKind() != ElementKind.CLASS || !GeneratedType.hasConstructorWithoutParameters(typeElement)) {
+			return false;
+		}
+		
+		this.typeParameter = typeParameter;
+		this.reifiedTypeName = TypeName.get(reifiedType);
+		this.primitive = reifiedType.getKind().isPrimitive();
+		
+		// Abstract methods of the type stay abstract unless they're auto-implemented, as do the ones that are inherited
+		// from the kept supertypes.
+		List<TypeMirror> supertypes = supertypes();
+		for (ExecutableElement abstractMethod : abstractMethodTable.abstractMethods(typeElement)) {
+			Element declaringElement = abstractMethod.getEnclosingElement();
+			if (declaringElement.equals(typeElement)
+					? autoImplementedBody(abstractMethod, reifiedType) == null
+					: inheritedFrom(supertypes, declaringElement)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private MethodSpec method(ExecutableElement methodElement, SourceText.Member member, boolean interfaceType, TypeMirror reifiedType) {
+		boolean constructor = methodElement.getKind() == ElementKind.CONSTRUCTOR;
+		MethodSpec.Builder builder = constructor
+				? MethodSpec.constructorBuilder()
+				: MethodSpec.methodBuilder(methodElement.getSimpleName().toString());
+		
+		Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+		modifiers.addAll(methodElement.getModifiers());
+		builder.addAnnotations(annotations(methodElement));
+		for (TypeParameterElement methodTypeParameter : methodElement.getTypeParameters()) {
+			List<TypeName> bounds = new ArrayList<>();
+			for (TypeMirror bound : methodTypeParameter.getBounds()) {
+				if (!types.isSameType(bound, elements.getTypeElement(Object.class.getName()).asType())) {
+					bounds.add(specialize(bound, true));
+				}
+			}
+			builder.addTypeVariable(
+					TypeVariableName.get(methodTypeParameter.getSimpleName().toString(), bounds.toArray(new TypeName[0]))
+			);
+		}
+		if (!constructor) {
+			builder.returns(specialize(methodElement.getReturnType(), false));
+		}
+		for (VariableElement parameter : methodElement.getParameters()) {
+			builder.addParameter(
+					ParameterSpec.builder(
+							specialize(parameter.asType(), false),
+							parameter.getSimpleName().toString(),
+							parameter.getModifiers().toArray(new Modifier[0])
+					)
+							.addAnnotations(annotations(parameter))
+							.build()
+			);
+		}
+		builder.varargs(methodElement.isVarArgs());
+		for (TypeMirror thrownType : methodElement.getThrownTypes()) {
+			builder.addException(TypeName.get(thrownType));
+		}
+		
+		CodeBlock autoImplementedBody = modifiers.contains(ABSTRACT) ? autoImplementedBody(methodElement, reifiedType) : null;
+		if (autoImplementedBody != null) {
+			modifiers.remove(ABSTRACT);
+			if (interfaceType) {
+				modifiers.add(DEFAULT);
+			}
+			builder.addStatement("$L", autoImplementedBody);
+		} else if (member.body != null) {
+			builder.addCode(code(member.body, false));
+		}
+		return builder.addModifiers(modifiers.toArray(new Modifier[0])).build();
+	}
+	
+	/**
+	 * Returns a variant of the given method in which the parameters of functional types that take or supply the reified
+	 * type parameter (like `Function<T, R>` or `Function<U, T>`) have the corresponding primitive functional types (like
+	 * `IntFunction<R>` or `ToIntFunction<U>`), such that the values passed to and from callbacks aren't boxed. The
+	 * variant is named after the method and the primitive type (like `mapInt`), as an overload would make calls with
+	 * implicitly typed lambdas ambiguous. It gets the code of the method, in which calls to the functional parameters are
+	 * renamed. Returns null if the method has no such parameters, if the parameters are used other than by calling them,
+	 * or if the variant is declared already.
+	 */
+	private MethodSpec primitiveVariant(ExecutableElement methodElement, SourceText.Member member, MethodSpec method, Set<String> signatures) {
+		if (member.body == null) {
+			return null;
+		}
+		
+		Map<String, PrimitiveFunction> primitiveFunctions = new HashMap<>();
+		List<ParameterSpec> parameters = new ArrayList<>();
+		List<TypeName> parameterTypes = new ArrayList<>();
+		for (int i = 0; i < method.parameters.size(); i++) {
+			ParameterSpec parameter = method.parameters.get(i);
+			PrimitiveFunction primitiveFunction = primitiveFunction(methodElement.getParameters().get(i).asType());
+			if (primitiveFunction == null) {
+				parameters.add(parameter);
+				parameterTypes.add(parameter.type);
+				continue;
+			}
+			primitiveFunctions.put(parameter.name, primitiveFunction);
+			parameters.add(
+					ParameterSpec.builder(primitiveFunction.type, parameter.name, parameter.modifiers.toArray(new Modifier[0]))
+							.addAnnotations(parameter.annotations)
+							.build()
+			);
+			parameterTypes.add(primitiveFunction.type);
+		}
+		String name = method.name + Character.toUpperCase(reifiedTypeName.toString().charAt(0)) + reifiedTypeName.toString().substring(1);
+		if (primitiveFunctions.isEmpty()
+				|| !onlyCalled(member.body, primitiveFunctions)
+				|| !signatures.add(signature(name, parameterTypes))) {
+			return null;
+		}
+		
+		this.primitiveFunctions = primitiveFunctions;
+		try {
+			return copy(method, name, parameters, code(member.body, false));
+		} finally {
+			this.primitiveFunctions = Collections.emptyMap();
+		}
+	}
+	
+	// The given method with its code replaced by a call to the given primitive variant.
+	private MethodSpec adapter(MethodSpec method, MethodSpec primitiveVariant) {
+		CodeBlock.Builder arguments = CodeBlock.builder();
+		for (int i = 0; i < method.parameters.size(); i++) {
+			ParameterSpec parameter = method.parameters.get(i);
+			TypeName primitiveType = primitiveVariant.parameters.get(i).type;
+			if (i > 0) {
+				arguments.add(", ");
+			}
+			if (primitiveType.equals(parameter.type)) {
+				arguments.add("$N", parameter);
+			} else {
+				arguments.add("$N::$N", parameter, PrimitiveFunction.method(PrimitiveFunction.rawType(parameter.type)));
+			}
+		}
+		CodeBlock call = CodeBlock.of("$N($L)", primitiveVariant, arguments.build());
+		CodeBlock code = method.returnType.equals(TypeName.VOID)
+				? CodeBlock.builder().addStatement("$L", call).build()
+				: CodeBlock.builder().addStatement("return $L", call).build();
+		return copy(method, method.name, method.parameters, code);
+	}
+	
+	private static MethodSpec copy(MethodSpec method, String name, List<ParameterSpec> parameters, CodeBlock code) {
+		return MethodSpec.methodBuilder(name)
+				.addAnnotations(method.annotations)
+				.addModifiers(method.modifiers)
+				.addTypeVariables(method.typeVariables)
+				.returns(method.returnType)
+				.addParameters(parameters)
+				.varargs(method.varargs)
+				.addExceptions(method.exceptions)
+				.addCode(code)
+				.build();
+	}
+	
+	private static String signature(String name, List<TypeName> parameterTypes) {
+		return name + parameterTypes;
+	}
+	
+	// Whether the given parameters only occur in the given code as receivers of calls to their functional methods.
+	private static boolean onlyCalled(List<SourceText.Token> tokens, Map<String, PrimitiveFunction> primitiveFunctions) {
+		for (int i = 0; i < tokens.size(); i++) {
+			SourceText.Token token = tokens.get(i);
+			PrimitiveFunction primitiveFunction = token.kind == SourceText.TokenKind.IDENTIFIER ? primitiveFunctions.get(token.text) : null;
+			int previous = SourceText.previous(tokens, i - 1);
+			if (primitiveFunction == null || previous >= 0 && tokens.get(previous).isSymbol('.')) {
+				continue;
+			}
+			int dot = SourceText.next(tokens, i + 1);
+			int name = SourceText.next(tokens, dot + 1);
+			int arguments = SourceText.next(tokens, name + 1);
+			if (arguments >= tokens.size()
+					|| !tokens.get(dot).isSymbol('.')
+					|| !tokens.get(name).is(primitiveFunction.method)
+					|| !tokens.get(arguments).isSymbol('(')) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// The primitive functional type that a parameter of the given type has in primitive variants, or null if there's none.
+	private PrimitiveFunction primitiveFunction(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		DeclaredType declaredType = (DeclaredType) type;
+		List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+		if (typeArguments.isEmpty()) {
+			return null;
+		}
+		
+		// Functional types either take the type parameter first (like `Function<T, R>`), or supply it from the types
+		// that they take (like `Function<U, T>`).
+		String genericName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+		int last = typeArguments.size() - 1;
+		boolean supplying = !isTypeParameterArgument(typeArguments.get(0));
+		if (supplying && (last == 0 || !isTypeParameterArgument(typeArguments.get(last)))) {
+			return null;
+		}
+		List<? extends TypeMirror> otherTypeArguments = supplying
+				? typeArguments.subList(0, last)
+				: typeArguments.subList(1, last + 1);
+		for (TypeMirror typeArgument : otherTypeArguments) {
+			if (mentionsTypeParameter(typeArgument)) {
+				return null;
+			}
+		}
+		
+		ClassName className = supplying
+				? PrimitiveFunction.primitiveSupplyingClassName(genericName, reifiedTypeName)
+				: PrimitiveFunction.primitiveClassName(genericName, reifiedTypeName);
+		if (className == null) {
+			return null;
+		}
+		TypeName primitiveType = className;
+		if (!otherTypeArguments.isEmpty()) {
+			TypeName[] primitiveTypeArguments = new TypeName[otherTypeArguments.size()];
+			for (int i = 0; i < primitiveTypeArguments.length; i++) {
+				primitiveTypeArguments[i] = specialize(otherTypeArguments.get(i), true);
+			}
+			primitiveType = ParameterizedTypeName.get(className, primitiveTypeArguments);
+		}
+		return new PrimitiveFunction(
+				primitiveType,
+				PrimitiveFunction.method(ClassName.get((TypeElement) declaredType.asElement())),
+				PrimitiveFunction.method(className)
+		);
+	}
+	
+	// Whether the given type argument is the type parameter, possibly as the bound of a wildcard.
+	private boolean isTypeParameterArgument(TypeMirror type) {
+		if (type.getKind() == TypeKind.WILDCARD) {
+			WildcardType wildcardType = (WildcardType) type;
+			TypeMirror bound = wildcardType.getExtendsBound() != null ? wildcardType.getExtendsBound() : wildcardType.getSuperBound();
+			return bound != null && isTypeParameter(bound);
+		}
+		return isTypeParameter(type);
+	}
+	
+	// Primitive values have no constructors, so `newT()` is implemented to return the default value. Instances of
+	// declared types are only created with their default constructors.
+	private CodeBlock autoImplementedBody(ExecutableElement methodElement, TypeMirror reifiedType) {
+		if (!methodElement.getParameters().isEmpty()) {
+			return null;
+		}
+		String name = methodElement.getSimpleName().toString();
+		String typeParameterName = typeParameter.getSimpleName().toString();
+		if (name.equals("class" + typeParameterName)) {
+			return CodeBlock.of("return $T.class", reifiedTypeName);
+		}
+		if (!name.equals("new" + typeParameterName)) {
+			return null;
+		}
+		switch (reifiedType.getKind()) {
+			case BOOLEAN:
+				return CodeBlock.of("return false");
+			case CHAR:
+				return CodeBlock.of("return '\\0'");
+			case LONG:
+				return CodeBlock.of("return 0L");
+			case FLOAT:
+				return CodeBlock.of("return 0f");
+			case DOUBLE:
+				return CodeBlock.of("return 0d");
+			case DECLARED:
+				return hasDefaultConstructor((TypeElement) types.asElement(reifiedType)) ? CodeBlock.of("return new $T()", reifiedTypeName) : null;
+			default:
+				return CodeBlock.of("return 0");
+		}
+	}
+	
+	private static boolean hasDefaultConstructor(TypeElement typeElement) {
+		if (typeElement.getKind() != ElementKind.CLASS || typeElement.getModifiers().contains(ABSTRACT)) {
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private List<AnnotationSpec> annotations(Element element) {
+		List<AnnotationSpec> annotations = new ArrayList<>();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			// Overridden methods of supertypes that depend on a primitive type parameter aren't overridden any longer.
+			if (!primitive || !((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(Override.class.getName())) {
+				annotations.add(AnnotationSpec.get(annotation));
+			}
+		}
+		return annotations;
+	}
+	
+	/**
+	 * Returns whether the given member (or initializer of the reifying type) with the given code declares a name that
+	 * shadows the type parameter, like a type parameter, parameter or local variable `T`. Code is rewritten by replacing
+	 * the name, which can't tell the declarations apart.
+	 */
+	private boolean shadows(Element memberElement, List<SourceText.Token> code) {
+		Name name = typeParameter.getSimpleName();
+		List<Element> declarations = new ArrayList<>();
+		if (memberElement.getKind() == ElementKind.FIELD) {
+			declarations.add(memberElement);
+		} else if (memberElement.getKind() == ElementKind.METHOD || memberElement.getKind() == ElementKind.CONSTRUCTOR) {
+			declarations.addAll(((ExecutableElement) memberElement).getTypeParameters());
+			declarations.addAll(((ExecutableElement) memberElement).getParameters());
+		}
+		for (Element declaration : declarations) {
+			if (declaration.getSimpleName().equals(name)) {
+				return true;
+			}
+		}
+		return code != null && SourceText.declares(code, name.toString());
+	}
+	
+	private void shadowed(TypeMirror reifiedType, Element memberElement) {
+		messager.printMessage(
+				ERROR,
+				String.format(
+						"'@Reify'-annotation with type '%s' in type '%s' with type variable '%s' shadowed in '%s' is %s",
+						reifiedType,
+						typeElement,
+						typeParameter,
+						memberElement,
+						Message.NOT_SUPPORTED
+				),
+				memberElement
+		);
+	}
+	
+	// Overloads are matched by the simple names of their erased parameter types as written, as compilers don't keep the
+	// order of declaration of members. Declarations whose types are written otherwise (like through an inherited member
+	// type) are only matched if they're the only ones with their number of parameters.
+	private SourceText.Member match(List<SourceText.Member> members, ExecutableElement methodElement) {
+		String name = methodElement.getKind() == ElementKind.CONSTRUCTOR
+				? typeElement.getSimpleName().toString()
+				: methodElement.getSimpleName().toString();
+		List<String> parameterTypes = new ArrayList<>();
+		for (VariableElement parameter : methodElement.getParameters()) {
+			parameterTypes.add(sourceName(parameter.asType()));
+		}
+		
+		List<SourceText.Member> candidates = new ArrayList<>();
+		for (SourceText.Member member : members) {
+			if (member.names.get(0).equals(name) && member.parameterTypes.size() == parameterTypes.size()) {
+				candidates.add(member);
+			}
+		}
+		SourceText.Member match = candidates.stream()
+				.filter(m -> m.parameterTypes.equals(parameterTypes))
+				.findFirst()
+				.orElse(candidates.size() == 1 ? candidates.get(0) : null);
+		if (match != null) {
+			members.remove(match);
+		}
+		return match;
+	}
+	
+	// Simple name of the erasure of the given type as written in source, like `List` for `java.util.List<String>`.
+	private String sourceName(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY:
+				return sourceName(((ArrayType) type).getComponentType()) + "[]";
+			case DECLARED:
+			case TYPEVAR:
+				return types.asElement(type).getSimpleName().toString();
+			default:
+				return type.toString();
+		}
+	}
+	
+	// The supertypes that the specialization keeps (the superclass first, unless it's an interface). Superclasses that
+	// depend on the type parameter can't be extended with a primitive type, so the nearest one that doesn't is extended
+	// instead, and the interfaces of the ones in between are implemented. Interfaces that depend on the type parameter
+	// can't be implemented with a primitive type.
+	private List<TypeMirror> supertypes() {
+		List<TypeMirror> supertypes = new ArrayList<>();
+		List<TypeMirror> interfaceTypes = new ArrayList<>(typeElement.getInterfaces());
+		if (!typeElement.getKind().isInterface()) {
+			TypeMirror superclassType = typeElement.getSuperclass();
+			while (primitive && mentionsTypeParameter(superclassType)) {
+				List<? extends TypeMirror> directSupertypes = types.directSupertypes(superclassType);
+				superclassType = directSupertypes.get(0);
+				interfaceTypes.addAll(directSupertypes.subList(1, directSupertypes.size()));
+			}
+			supertypes.add(superclassType);
+		}
+		for (TypeMirror interfaceMirror : interfaceTypes) {
+			if ((!primitive || !mentionsTypeParameter(interfaceMirror)) && supertypes.stream().noneMatch(t -> types.isSameType(t, interfaceMirror))) {
+				supertypes.add(interfaceMirror);
+			}
+		}
+		return supertypes;
+	}
+	
+	private boolean inheritedFrom(List<TypeMirror> supertypes, Element declaringElement) {
+		TypeMirror declaringType = types.erasure(declaringElement.asType());
+		for (TypeMirror supertype : supertypes) {
+			if (types.isSubtype(types.erasure(supertype), declaringType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private TypeName specialize(TypeMirror type, boolean boxed) {
+		switch (type.getKind()) {
+			case TYPEVAR: {
+				Element element = types.asElement(type);
+				if (element.equals(typeParameter)) {
+					return boxed ? reifiedTypeName.box() : reifiedTypeName;
+				}
+				return TypeVariableName.get(element.getSimpleName().toString());
+			}
+			case ARRAY:
+				return ArrayTypeName.of(specialize(((ArrayType) type).getComponentType(), false));
+			case DECLARED: {
+				DeclaredType declaredType = (DeclaredType) type;
+				List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+				if (declaredType.asElement().equals(typeElement) && typeArguments.size() == 1 && isTypeParameter(typeArguments.get(0))) {
+					return generatedClassName;
+				}
+				ClassName className = ClassName.get((TypeElement) declaredType.asElement());
+				if (typeArguments.isEmpty()) {
+					return className;
+				}
+				TypeName[] specializedTypeArguments = new TypeName[typeArguments.size()];
+				for (int i = 0; i < specializedTypeArguments.length; i++) {
+					specializedTypeArguments[i] = specialize(typeArguments.get(i), true);
+				}
+				return ParameterizedTypeName.get(className, specializedTypeArguments);
+			}
+			case WILDCARD: {
+				WildcardType wildcardType = (WildcardType) type;
+				if (wildcardType.getSuperBound() != null) {
+					return WildcardTypeName.supertypeOf(specialize(wildcardType.getSuperBound(), true));
+				}
+				if (wildcardType.getExtendsBound() != null) {
+					return WildcardTypeName.subtypeOf(specialize(wildcardType.getExtendsBound(), true));
+				}
+				return WildcardTypeName.subtypeOf(Object.class);
+			}
+			default:
+				return TypeName.get(type);
+		}
+	}
+	
+	private boolean isTypeParameter(TypeMirror type) {
+		return type.getKind() == TypeKind.TYPEVAR && types.asElement(type).equals(typeParameter);
+	}
+	
+	private boolean mentionsTypeParameter(TypeMirror type) {
+		switch (type.getKind()) {
+			case TYPEVAR:
+				return isTypeParameter(type);
+			case ARRAY:
+				return mentionsTypeParameter(((ArrayType) type).getComponentType());
+			case DECLARED:
+				return ((DeclaredType) type).getTypeArguments().stream().anyMatch(this::mentionsTypeParameter);
+			case WILDCARD: {
+				WildcardType wildcardType = (WildcardType) type;
+				return wildcardType.getExtendsBound() != null && mentionsTypeParameter(wildcardType.getExtendsBound())
+						|| wildcardType.getSuperBound() != null && mentionsTypeParameter(wildcardType.getSuperBound());
+			}
+			default:
+				return false;
+		}
+	}
+	
+	private void imports(SourceText source) {
+		typeImports = new HashMap<>();
+		onDemandImports = new ArrayList<>();
+		for (String name : source.imports(false)) {
+			if (name.endsWith(".*")) {
+				onDemandImports.add(name.substring(0, name.length() - 2));
+			} else {
+				typeImports.put(name.substring(name.lastIndexOf('.') + 1), name);
+			}
+		}
+	}
+	
+	private Map<ClassName, Set<String>> staticImports(SourceText source) {
+		Map<ClassName, Set<String>> staticImports = new LinkedHashMap<>();
+		for (String name : source.imports(true)) {
+			int index = name.lastIndexOf('.');
+			TypeElement importingType = index < 0 ? null : elements.getTypeElement(name.substring(0, index));
+			if (importingType != null) {
+				staticImports.computeIfAbsent(ClassName.get(importingType), c -> new LinkedHashSet<>()).add(name.substring(index + 1));
+			}
+		}
+		return staticImports;
+	}
+	
+	// Type that the identifier refers to through an import of the source, or null if none.
+	private ClassName importedType(String identifier) {
+		return importedTypes.computeIfAbsent(identifier, i -> {
+			if (SourceVersion.isKeyword(i)) {
+				return Optional.empty();
+			}
+			String typeImport = typeImports.get(i);
+			if (typeImport != null) {
+				TypeElement importedType = elements.getTypeElement(typeImport);
+				int index = typeImport.lastIndexOf('.');
+				return Optional.of(
+						importedType != null
+								? ClassName.get(importedType)
+								: ClassName.get(typeImport.substring(0, index), typeImport.substring(index + 1))
+				);
+			}
+			if (elements.getTypeElement(packagePrefix + i) != null) {
+				// Types of the package shadow the ones imported on demand.
+				return Optional.empty();
+			}
+			for (String onDemandImport : onDemandImports) {
+				TypeElement importedType = elements.getTypeElement(onDemandImport + '.' + i);
+				if (importedType != null) {
+					return Optional.of(ClassName.get(importedType));
+				}
+			}
+			return Optional.empty();
+		}).orElse(null);
+	}
+	
+	/**
+	 * Rewrites the given code of the reifying type into code of the generated type, with its common indentation (and,
+	 * if trimmed, its surrounding whitespace) removed. Types are referred to through `$T`, such that the generated file
+	 * imports them.
+	 */
+	private CodeBlock code(List<SourceText.Token> tokens, boolean trimmed) {
+		String typeParameterName = typeParameter.getSimpleName().toString();
+		String typeName = typeElement.getSimpleName().toString();
+		boolean[] typeArguments = typeArguments(tokens);
+		
+		StringBuilder format = new StringBuilder();
+		List<Object> arguments = new ArrayList<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			SourceText.Token token = tokens.get(i);
+			int previous = SourceText.previous(tokens, i - 1);
+			int next = SourceText.next(tokens, i + 1);
+			if (!token.isSignificant() || token.kind != SourceText.TokenKind.IDENTIFIER && !token.isSymbol('(')) {
+				format.append(escape(token.text));
+				continue;
+			}
+			if (previous >= 0 && tokens.get(previous).isSymbol('.')) {
+				format.append(escape(methodName(tokens, previous, token.text)));
+				continue;
+			}
+			
+			if (token.isSymbol('(')) {
+				int arrayCreation = arrayCreation(tokens, i, typeParameterName);
+				if (arrayCreation >= 0) {
+					format.append("new $T[");
+					arguments.add(reifiedTypeName);
+					i = arrayCreation;
+				} else {
+					format.append(token.text);
+				}
+				continue;
+			}
+			
+			if (token.text.equals(typeParameterName)) {
+				boolean array = next < tokens.size() && tokens.get(next).isSymbol('[');
+				format.append("$T");
+				arguments.add(typeArguments[i] && !array ? reifiedTypeName.box() : reifiedTypeName);
+				continue;
+			}
+			if (token.text.equals(typeName) && next < tokens.size()) {
+				SourceText.Token following = tokens.get(next);
+				if (following.isSymbol('<')) {
+					int closing = SourceText.closing(tokens, next);
+					int argument = SourceText.next(tokens, next + 1);
+					if (argument == closing || tokens.get(argument).is(typeParameterName) && SourceText.next(tokens, argument + 1) == closing) {
+						format.append(escape(generatedClassName.simpleName()));
+						i = closing;
+						continue;
+					}
+				} else if (following.isSymbol('(') && previous >= 0 && tokens.get(previous).is("new")
+						|| following.isSymbol('.') && is(tokens, SourceText.next(tokens, next + 1), "this")) {
+					format.append(escape(generatedClassName.simpleName()));
+					continue;
+				}
+			}
+			
+			// Identifiers followed by arguments are names of methods, unless they're instantiated types.
+			boolean methodName = next < tokens.size() && tokens.get(next).isSymbol('(') && !is(tokens, previous, "new");
+			ClassName importedType = methodName ? null : importedType(token.text);
+			if (importedType != null) {
+				format.append("$T");
+				arguments.add(importedType);
+			} else {
+				format.append(escape(token.text));
+			}
+		}
+		String code = dedent(format.toString());
+		return CodeBlock.of(trimmed ? code.trim() : code, arguments.toArray());
+	}
+	
+	private static String escape(String text) {
+		return text.replace("$", "$$");
+	}
+	
+	// Name of the member that follows the given '.', which is renamed if it's called on a primitive functional parameter.
+	private String methodName(List<SourceText.Token> tokens, int dot, String name) {
+		int receiver = SourceText.previous(tokens, dot - 1);
+		int beforeReceiver = SourceText.previous(tokens, receiver - 1);
+		if (receiver < 0 || beforeReceiver >= 0 && tokens.get(beforeReceiver).isSymbol('.')) {
+			return name;
+		}
+		PrimitiveFunction primitiveFunction = primitiveFunctions.get(tokens.get(receiver).text);
+		return primitiveFunction != null && primitiveFunction.method.equals(name) ? primitiveFunction.primitiveMethod : name;
+	}
+	
+	private static boolean is(List<SourceText.Token> tokens, int index, String identifier) {
+		return index >= 0 && index < tokens.size() && tokens.get(index).is(identifier);
+	}
+	
+	// Index of the '[' of `(T[]) new Object[`, if it starts at the given index.
+	private static int arrayCreation(List<SourceText.Token> tokens, int index, String typeParameterName) {
+		String[] pattern = {"(", typeParameterName, "[", "]", ")", "new", null, "["};
+		int i = index;
+		for (int p = 0; p < pattern.length; p++) {
+			if (i >= tokens.size() || pattern[p] != null && !tokens.get(i).text.equals(pattern[p])) {
+				return -1;
+			}
+			if (p < pattern.length - 1) {
+				i = SourceText.next(tokens, i + 1);
+			}
+		}
+		return i;
+	}
+	
+	// Marks the tokens that are within lists of type arguments (or type parameters), as opposed to relational operators.
+	private static boolean[] typeArguments(List<SourceText.Token> tokens) {
+		boolean[] typeArguments = new boolean[tokens.size()];
+		for (int i = 0; i < tokens.size(); i++) {
+			if (!tokens.get(i).isSymbol('<')) {
+				continue;
+			}
+			int previous = SourceText.previous(tokens, i - 1);
+			if (previous < 0 || tokens.get(previous).kind != SourceText.TokenKind.IDENTIFIER && !tokens.get(previous).isSymbol('.')) {
+				continue;
+			}
+			int closing = SourceText.closing(tokens, i);
+			boolean valid = closing < tokens.size();
+			for (int j = i + 1; valid && j < closing; j++) {
+				SourceText.Token token = tokens.get(j);
+				valid = !token.isSignificant()
+						|| token.kind == SourceText.TokenKind.IDENTIFIER
+						|| token.kind == SourceText.TokenKind.SYMBOL && ".,?&[]<>@".indexOf(token.text.charAt(0)) >= 0;
+			}
+			if (valid) {
+				Arrays.fill(typeArguments, i + 1, closing, true);
+			}
+		}
+		return typeArguments;
+	}
+	
+	private static String dedent(String code) {
+		String[] lines = code.split("\n", -1);
+		int indentation = Integer.MAX_VALUE;
+		for (String line : lines) {
+			if (!line.trim().isEmpty()) {
+				int lineIndentation = 0;
+				while (Character.isWhitespace(line.charAt(lineIndentation))) {
+					lineIndentation++;
+				}
+				indentation = Math.min(indentation, lineIndentation);
+			}
+		}
+		
+		StringBuilder dedented = new StringBuilder();
+		for (String line : lines) {
+			if (line.trim().isEmpty()) {
+				if (dedented.length() > 0) {
+					dedented.append('\n');
+				}
+			} else {
+				dedented.append(line.substring(indentation).replaceAll("\\s+$", "")).append('\n');
+			}
+		}
+		// Blank lines at the end are left out, but the last line is terminated.
+		String result = dedented.toString().replaceAll("\\s+$", "");
+		return result.isEmpty() ? result : result + '\n';
+	}
+	
+	/**
+	 * Functional type of `java.util.function` that takes or supplies a primitive type instead of the box that the
+	 * corresponding generic functional type takes or supplies, along with the names of their functional methods.
+	 */
+	private static class PrimitiveFunction {
+		private static final String PACKAGE_NAME = "java.util.function";
+		
+		final TypeName type;
+		final String method;
+		final String primitiveMethod;
+		
+		PrimitiveFunction(TypeName type, String method, String primitiveMethod) {
+			this.type = type;
+			this.method = method;
+			this.primitiveMethod = primitiveMethod;
+		}
+		
+		// The primitive functional type corresponding to the given generic one taking the primitive type, or null if there
+		// is none.
+		static ClassName primitiveClassName(String genericName, TypeName primitiveType) {
+			String prefix = prefix(primitiveType);
+			if (prefix == null) {
+				return null;
+			}
+			
+			switch (genericName) {
+				case "java.util.function.Supplier":
+					return ClassName.get(PACKAGE_NAME, prefix + "Supplier");
+				case "java.util.function.Function":
+				case "java.util.function.Predicate":
+				case "java.util.function.Consumer":
+				case "java.util.function.UnaryOperator":
+				case "java.util.function.BinaryOperator":
+					// Only suppliers are specialized for booleans.
+					return prefix.equals("Boolean") ? null : ClassName.get(PACKAGE_NAME, prefix + genericName.substring(PACKAGE_NAME.length() + 1));
+				case "java.util.Comparator":
+					// Comparisons result in an `int`, so only comparators of `int` are operators.
+					return prefix.equals("Int") ? ClassName.get(PACKAGE_NAME, "IntBinaryOperator") : null;
+				default:
+					return null;
+			}
+		}
+		
+		// The primitive functional type corresponding to the given generic one supplying the primitive type from other
+		// types, or null if there is none. Functions supplying booleans are predicates.
+		static ClassName primitiveSupplyingClassName(String genericName, TypeName primitiveType) {
+			String prefix = prefix(primitiveType);
+			if (prefix == null) {
+				return null;
+			}
+			
+			switch (genericName) {
+				case "java.util.function.Function":
+					return ClassName.get(PACKAGE_NAME, prefix.equals("Boolean") ? "Predicate" : "To" + prefix + "Function");
+				case "java.util.function.BiFunction":
+					return ClassName.get(PACKAGE_NAME, prefix.equals("Boolean") ? "BiPredicate" : "To" + prefix + "BiFunction");
+				default:
+					return null;
+			}
+		}
+		
+		private static String prefix(TypeName primitiveType) {
+			if (primitiveType.equals(TypeName.INT)) {
+				return "Int";
+			} else if (primitiveType.equals(TypeName.LONG)) {
+				return "Long";
+			} else if (primitiveType.equals(TypeName.DOUBLE)) {
+				return "Double";
+			} else if (primitiveType.equals(TypeName.BOOLEAN)) {
+				return "Boolean";
+			}
+			return null;
+		}
+		
+		// Name of the functional method of the given (generic or primitive) functional type.
+		static String method(ClassName className) {
+			String simpleName = className.simpleName();
+			switch (simpleName) {
+				case "Supplier":
+					return "get";
+				case "Comparator":
+					return "compare";
+				case "Function":
+				case "UnaryOperator":
+				case "BinaryOperator":
+					return "apply";
+				default:
+					if (simpleName.endsWith("Supplier")) {
+						return "getAs" + simpleName.substring(0, simpleName.length() - "Supplier".length());
+					}
+					if (simpleName.endsWith("UnaryOperator")) {
+						return "applyAs" + simpleName.substring(0, simpleName.length() - "UnaryOperator".length());
+					}
+					if (simpleName.endsWith("BinaryOperator")) {
+						return "applyAs" + simpleName.substring(0, simpleName.length() - "BinaryOperator".length());
+					}
+					if (simpleName.startsWith("To")) {
+						// Like `ToIntFunction` and `ToIntBiFunction`.
+						String suffix = simpleName.endsWith("BiFunction") ? "BiFunction" : "Function";
+						return "applyAs" + simpleName.substring("To".length(), simpleName.length() - suffix.length());
+					}
+					return simpleName.endsWith("Predicate") ? "test" : simpleName.endsWith("Consumer") ? "accept" : "apply";
+			}
+		}
+		
+		static ClassName rawType(TypeName type) {
+			return type instanceof ParameterizedTypeName ? ((ParameterizedTypeName) type).rawType : (ClassName) type;
+		}
+	}
+}
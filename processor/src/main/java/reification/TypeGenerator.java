@@ -1,48 +1,74 @@
 package reification;
 
 import com.squareup.javapoet.*;
+import org.objectweb.asm.tree.MethodNode;
 
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
-import javax.lang.model.util.Types;
+import javax.lang.model.util.ElementFilter;
 import java.util.*;
 
-import static javax.lang.model.element.Modifier.ABSTRACT;
 import static javax.lang.model.element.Modifier.DEFAULT;
+import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.tools.Diagnostic.Kind.ERROR;
+import static reification.Instrumentation.Phase.GENERATE_METHOD;
+import static reification.Instrumentation.Phase.SUPERTYPES;
 
 public class TypeGenerator {
-	private final Types types;
 	private final Messager messager;
+	private final AbstractMethodTable abstractMethodTable;
+	private final ConstructorIndex constructorIndex;
+	private final Instrumentation instrumentation;
+	private final ClassFileModel classFileModel;
 	
 	private final TypeElement superTypeElement;
 	
-	public TypeGenerator(Types types, Messager messager, TypeElement superTypeElement) {
-		this.types = Objects.requireNonNull(types, "types");
+	public TypeGenerator(Messager messager, AbstractMethodTable abstractMethodTable, ConstructorIndex constructorIndex, Instrumentation instrumentation, TypeElement superTypeElement) {
+		this(messager, abstractMethodTable, constructorIndex, instrumentation, null, superTypeElement);
+	}
+	
+	/**
+	 * Creates a generator of types that are described for rendering into class files (using the given model) as well
+	 * as into source.
+	 */
+	public TypeGenerator(Messager messager, AbstractMethodTable abstractMethodTable, ConstructorIndex constructorIndex, Instrumentation instrumentation, ClassFileModel classFileModel, TypeElement superTypeElement) {
 		this.messager = Objects.requireNonNull(messager, "messager");
+		this.abstractMethodTable = Objects.requireNonNull(abstractMethodTable, "abstractMethodTable");
+		this.constructorIndex = Objects.requireNonNull(constructorIndex, "constructorIndex");
+		this.instrumentation = Objects.requireNonNull(instrumentation, "instrumentation");
+		this.classFileModel = classFileModel;
 		this.superTypeElement = Objects.requireNonNull(superTypeElement, "superTypeElement");
 	}
 	
-	public TypeSpec.Builder generateType(LinkedHashMap<String, DeclaredType> reifiedTypeArguments, String generatedTypeName) {
-		if (reifiedTypeArguments.size() > 1) {
-			messager.printMessage(
-					ERROR,
-					String.format(
-							"'@Reify'-annotation in type '%s' with multiple type variables %s is %s",
-							superTypeElement,
-							reifiedTypeArguments,
-							Message.NOT_YET_IMPLEMENTED
-					),
-					superTypeElement
-			);
-			return null;
+	public GeneratedType generateType(LinkedHashMap<String, DeclaredType> reifiedTypeArguments, String generatedPackageName, String generatedTypeName) {
+		for (Map.Entry<String, DeclaredType> entry : reifiedTypeArguments.entrySet()) {
+			if (entry.getValue() == null) {
+				messager.printMessage(
+						ERROR,
+						String.format(
+								"'@Reify'-annotation in type '%s' with non-reified type variable '%s' is %s",
+								superTypeElement,
+								entry.getKey(),
+								Message.NOT_YET_IMPLEMENTED
+						),
+						superTypeElement
+				);
+				return null;
+			}
 		}
 		
-		List<ExecutableElement> abstractMethods = new ArrayList<>();
-		ElementFunctions.recursivelyAddAbstractMethods(superTypeElement, abstractMethods, types);
+		String qualifiedName = superTypeElement.getQualifiedName().toString();
+		
+		List<ExecutableElement> abstractMethods;
+		Instrumentation.Span supertypesSpan = instrumentation.start(SUPERTYPES, qualifiedName);
+		try {
+			abstractMethods = abstractMethodTable.abstractMethods(superTypeElement);
+		} finally {
+			supertypesSpan.close();
+		}
 		
 		// Having methods in single list ensures that generated methods appear in the same order as they were defined.
 		List<MethodGenerator> methodGenerators = new ArrayList<>();
@@ -53,7 +79,7 @@ public class TypeGenerator {
 			
 			DeclaredType newInstanceMethodType = newInstanceMethodType(name, reifiedTypeArguments);
 			if (newInstanceMethodType != null) {
-				methodGenerators.add(new MethodGenerator.NewInstance(types, messager, abstractMethod, newInstanceMethodType));
+				methodGenerators.add(new MethodGenerator.NewInstance(constructorIndex, messager, superTypeElement, abstractMethod, newInstanceMethodType));
 				continue;
 			}
 			
@@ -85,18 +111,34 @@ public class TypeGenerator {
 			return null;
 		}
 		
-		TypeSpec.Builder typeBuilder;
-		if (interfaceType) {
-			typeBuilder = TypeSpec.interfaceBuilder(generatedTypeName).addSuperinterface(reifiedSuperType);
-		} else {
-			typeBuilder = TypeSpec.classBuilder(generatedTypeName).superclass(reifiedSuperType);
-			if (unimplementedAbstractMethods) {
-				typeBuilder.addModifiers(ABSTRACT);
-			}
+		if (classFileModel != null && !interfaceType && !hasDefaultConstructor()) {
+			// The generated source would fail to compile on the implicit `super()`-call of its default constructor.
+			messager.printMessage(
+					ERROR,
+					String.format(
+							"Type '%s' must have a non-private constructor without parameters to be reified into a class file",
+							superTypeElement
+					),
+					superTypeElement
+			);
+			return null;
 		}
 		
+		String generatedInternalName = generatedPackageName.isEmpty()
+				? generatedTypeName
+				: generatedPackageName.replace('.', '/') + '/' + generatedTypeName;
+		
+		List<AnnotationSpec> annotations = new ArrayList<>();
+		List<MethodSpec> methods = new ArrayList<>(methodGenerators.size());
+		List<MethodNode> methodNodes = new ArrayList<>();
 		for (MethodGenerator methodGenerator : methodGenerators) {
-			MethodSpec.Builder builder = methodGenerator.generateMethod();
+			MethodSpec.Builder builder;
+			Instrumentation.Span methodSpan = instrumentation.start(GENERATE_METHOD, qualifiedName);
+			try {
+				builder = methodGenerator.generateMethod();
+			} finally {
+				methodSpan.close();
+			}
 			if (builder == null) {
 				return null;
 			}
@@ -105,11 +147,56 @@ public class TypeGenerator {
 				builder.addModifiers(DEFAULT);
 			}
 			
-			MethodSpec method = builder.build();
-			typeBuilder.addMethod(method);
+			methods.add(builder.build());
+			
+			if (classFileModel != null) {
+				MethodNode methodNode = methodGenerator.generateMethodNode(classFileModel);
+				methodNodes.add(methodNode);
+				Map<String, List<String>> overriddenMethods = classFileModel.overriddenMethods(
+						superTypeElement,
+						methodGenerator.getMethodElement()
+				);
+				for (Map.Entry<String, List<String>> entry : overriddenMethods.entrySet()) {
+					if (!entry.getKey().equals(methodNode.desc)) {
+						methodNodes.add(
+								ClassFileModel.bridge(generatedInternalName, interfaceType, methodNode, entry.getKey(), entry.getValue())
+						);
+					}
+				}
+			}
 		}
 		
-		return typeBuilder;
+		// Auto-implemented methods don't declare the type parameters of the methods that they override, so the return
+		// type of generic ones requires an unchecked conversion. Javac doesn't respect suppression of this warning on
+		// the method itself.
+		if (methodGenerators.stream().anyMatch(MethodGenerator::overridesGenericMethod)) {
+			annotations.add(
+					AnnotationSpec.builder(SuppressWarnings.class)
+							.addMember("value", "$S", "unchecked")
+							.build()
+			);
+		}
+		
+		return new GeneratedType(
+				superTypeElement,
+				generatedPackageName,
+				generatedTypeName,
+				interfaceType,
+				!interfaceType && unimplementedAbstractMethods,
+				reifiedSuperType,
+				annotations,
+				methods,
+				methodNodes
+		);
+	}
+	
+	private boolean hasDefaultConstructor() {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(superTypeElement.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	private ParameterizedTypeName reifiedSuperType(LinkedHashMap<String, DeclaredType> reifiedTypeArguments) {
@@ -119,19 +206,37 @@ public class TypeGenerator {
 		);
 	}
 	
+	/**
+	 * Returns whether the type generated from the given reifying type for the given reified type arguments can be
+	 * instantiated through a constructor without parameters (see {@link GeneratedType#isInstantiable()}), without
+	 * generating it. It's abstract unless all abstract methods are auto-implemented.
+	 */
+	public static boolean isInstantiable(AbstractMethodTable abstractMethodTable, TypeElement superTypeElement, Map<String, DeclaredType> reifiedTypeArguments) {
+		if (superTypeElement.getKind() != ElementKind.CLASS || !GeneratedType.hasConstructorWithoutParameters(superTypeElement)) {
+			return false;
+		}
+		for (ExecutableElement abstractMethod : abstractMethodTable.abstractMethods(superTypeElement)) {
+			String name = abstractMethod.getSimpleName().toString();
+			if (newInstanceMethodType(name, reifiedTypeArguments) == null && classMethodType(name, reifiedTypeArguments) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	// TODO Naming convention is fragile: For instance, an abstract method may be inherited from an interface where the
 	//      type parameter may have another name. Require the abstract method to be defined in the reifying class
 	//      instead (one can always redefine an abstract method). And possibly require it to be annotated?
 	
-	private DeclaredType newInstanceMethodType(String name, Map<String, DeclaredType> typeArguments) {
+	private static DeclaredType newInstanceMethodType(String name, Map<String, DeclaredType> typeArguments) {
 		return methodType("new", name, typeArguments);
 	}
 	
-	private DeclaredType classMethodType(String name, Map<String, DeclaredType> typeArguments) {
+	private static DeclaredType classMethodType(String name, Map<String, DeclaredType> typeArguments) {
 		return methodType("class", name, typeArguments);
 	}
 	
-	private DeclaredType methodType(String prefix, String name, Map<String, DeclaredType> typeArguments) {
+	private static DeclaredType methodType(String prefix, String name, Map<String, DeclaredType> typeArguments) {
 		if (!name.startsWith(prefix)) {
 			return null;
 		}
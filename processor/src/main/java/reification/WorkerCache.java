@@ -0,0 +1,328 @@
+package reification;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static javax.tools.StandardLocation.CLASS_PATH;
+import static javax.tools.StandardLocation.PLATFORM_CLASS_PATH;
+
+/**
+ * Cache of resolved facts about classpath types that outlives the compilation, such that persistent compiler workers
+ * don't start each compilation with cold caches. The cached facts are shared by all compilations in the class loader of
+ * the processor, including concurrent ones, and the number of cached types is bounded with least-recently-used
+ * eviction.
+ * <p>
+ * Elements and type mirrors are bound to the compilation that created them, so only symbolic facts (names and erased
+ * signatures) are cached, and these are looked up again in the model of the current compilation. Each fact records the
+ * origin of every type that it was derived from: The SHA-256 digest of the classpath entry (jar or class file) that the
+ * type is loaded from. A fact is discarded when the origin of any of these types has changed. Types compiled from
+ * source have no origin, so facts involving them are never cached.
+ * <p>
+ * An instance is a view of the shared cache from a single compilation, and isn't thread-safe itself.
+ */
+public class WorkerCache {
+	public static final WorkerCache DISABLED = new WorkerCache(null, null, null);
+	
+	private static final Store STORE = new Store();
+	
+	private static final JavaFileManager.Location[] LOCATIONS = {CLASS_PATH, PLATFORM_CLASS_PATH};
+	
+	private final Store store;
+	private final Elements elements;
+	private final Filer filer;
+	
+	private final Set<String> sourceTypes = new HashSet<>();
+	private final Map<String, Optional<String>> origins = new HashMap<>();
+	
+	private int hits;
+	private int misses;
+	
+	private WorkerCache(Store store, Elements elements, Filer filer) {
+		this.store = store;
+		this.elements = elements;
+		this.filer = filer;
+	}
+	
+	/**
+	 * Returns a view of the shared cache, which is bounded to the given number of types. As the bound is shared as
+	 * well, the one given by the latest compilation applies.
+	 */
+	public static WorkerCache shared(int maximumSize, Elements elements, Filer filer) {
+		STORE.resize(maximumSize);
+		return new WorkerCache(STORE, Objects.requireNonNull(elements, "elements"), Objects.requireNonNull(filer, "filer"));
+	}
+	
+	/**
+	 * Drops all facts from the shared cache.
+	 */
+	static void clear() {
+		STORE.clear();
+	}
+	
+	public boolean isEnabled() {
+		return store != null;
+	}
+	
+	public int getHits() {
+		return hits;
+	}
+	
+	public int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Registers the types of a round that are compiled from source. These (and their nested types) have no origin.
+	 */
+	public void addSourceTypes(Set<? extends Element> rootElements) {
+		for (Element rootElement : rootElements) {
+			if (rootElement instanceof TypeElement) {
+				sourceTypes.add(((TypeElement) rootElement).getQualifiedName().toString());
+			}
+		}
+	}
+	
+	/**
+	 * Returns the origin of the given type, or null if it's compiled from source or its class file cannot be located.
+	 */
+	public String origin(TypeElement typeElement) {
+		if (!isEnabled()) {
+			return null;
+		}
+		
+		String name = typeElement.getQualifiedName().toString();
+		Optional<String> origin = origins.get(name);
+		if (origin == null) {
+			origin = Optional.ofNullable(resolveOrigin(typeElement));
+			origins.put(name, origin);
+		}
+		return origin.orElse(null);
+	}
+	
+	/**
+	 * Returns the cached methods of the type with the given name, if all the types that they were derived from are
+	 * unchanged.
+	 */
+	public TypeMethods getMethods(String typeName) {
+		TypeMethods methods = store.get(typeName);
+		if (methods != null && unchanged(methods.origins)) {
+			hits++;
+			return methods;
+		}
+		
+		misses++;
+		if (methods != null) {
+			store.remove(typeName, methods);
+		}
+		return null;
+	}
+	
+	public void putMethods(String typeName, TypeMethods methods) {
+		store.put(typeName, methods);
+	}
+	
+	private boolean unchanged(Map<String, String> typeOrigins) {
+		for (Map.Entry<String, String> entry : typeOrigins.entrySet()) {
+			TypeElement typeElement = elements.getTypeElement(entry.getKey());
+			if (typeElement == null || !entry.getValue().equals(origin(typeElement))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private String resolveOrigin(TypeElement typeElement) {
+		if (sourceTypes.contains(topLevelType(typeElement).getQualifiedName().toString())) {
+			return null;
+		}
+		
+		PackageElement packageElement = elements.getPackageOf(typeElement);
+		String packageName = packageElement.getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(typeElement).toString();
+		String relativeName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + ".class";
+		
+		// Most types are looked up on the class path, which is searched first to not probe every platform archive.
+		for (JavaFileManager.Location location : LOCATIONS) {
+			FileObject fileObject;
+			try {
+				fileObject = filer.getResource(location, packageName, relativeName);
+			} catch (IOException | RuntimeException e) {
+				// Missing files are reported in different ways: javac 8 fails with a `NullPointerException` when the
+				// file manager is provided by the client.
+				continue;
+			}
+			try {
+				return origin(fileObject);
+			} catch (IOException e) {
+				// Treat as not found.
+			}
+		}
+		return null;
+	}
+	
+	private String origin(FileObject fileObject) throws IOException {
+		URI uri = fileObject.toUri();
+		switch (String.valueOf(uri.getScheme())) {
+			case "file":
+				return store.digest(Paths.get(uri));
+			case "jar":
+				String specificPart = uri.getRawSchemeSpecificPart();
+				int separator = specificPart.indexOf("!/");
+				if (separator >= 0) {
+					return store.digest(Paths.get(URI.create(specificPart.substring(0, separator))));
+				}
+				break;
+		}
+		
+		// Not backed by a file of its own (e.g. a module image): Digest the class file itself.
+		try (InputStream inputStream = fileObject.openInputStream()) {
+			return digest(inputStream);
+		}
+	}
+	
+	private static TypeElement topLevelType(TypeElement typeElement) {
+		Element element = typeElement;
+		while (element.getEnclosingElement() instanceof TypeElement) {
+			element = element.getEnclosingElement();
+		}
+		return (TypeElement) element;
+	}
+	
+	private static String digest(InputStream inputStream) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		byte[] buffer = new byte[8192];
+		int length;
+		while ((length = inputStream.read(buffer)) >= 0) {
+			messageDigest.update(buffer, 0, length);
+		}
+		return Base64.getEncoder().encodeToString(messageDigest.digest());
+	}
+	
+	/**
+	 * The abstract and concrete methods of a type as resolved by {@link AbstractMethodTable}, along with the origins of
+	 * the type and all of its supertypes.
+	 */
+	public static class TypeMethods {
+		final Map<String, String> origins;
+		final List<MethodReference> abstractMethods;
+		final Map<String, List<MethodReference>> concreteMethods;
+		
+		TypeMethods(Map<String, String> origins, List<MethodReference> abstractMethods, Map<String, List<MethodReference>> concreteMethods) {
+			// Instances are shared between compilations.
+			this.origins = Collections.unmodifiableMap(origins);
+			this.abstractMethods = Collections.unmodifiableList(abstractMethods);
+			this.concreteMethods = Collections.unmodifiableMap(concreteMethods);
+		}
+	}
+	
+	/**
+	 * Method identified by its declaring type, name and erased parameter types.
+	 */
+	public static class MethodReference {
+		final String declaringType;
+		final String name;
+		final List<String> parameterTypes;
+		
+		MethodReference(String declaringType, String name, List<String> parameterTypes) {
+			this.declaringType = declaringType;
+			this.name = name;
+			this.parameterTypes = Collections.unmodifiableList(parameterTypes);
+		}
+	}
+	
+	/**
+	 * The state shared by all compilations. Digests of classpath entries are memoized by their path, size and
+	 * modification time, such that each version of an entry is only read once.
+	 */
+	private static class Store {
+		private final Lru<String, TypeMethods> methods = new Lru<>();
+		private final Lru<String, String> digests = new Lru<>();
+		
+		synchronized void resize(int maximumSize) {
+			methods.resize(maximumSize);
+			digests.resize(maximumSize);
+		}
+		
+		synchronized void clear() {
+			methods.clear();
+			digests.clear();
+		}
+		
+		synchronized TypeMethods get(String typeName) {
+			return methods.get(typeName);
+		}
+		
+		synchronized void put(String typeName, TypeMethods typeMethods) {
+			methods.put(typeName, typeMethods);
+		}
+		
+		synchronized void remove(String typeName, TypeMethods typeMethods) {
+			methods.remove(typeName, typeMethods);
+		}
+		
+		String digest(Path path) throws IOException {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			String key = path + "\n" + attributes.size() + "\n" + attributes.lastModifiedTime().toMillis();
+			synchronized (this) {
+				String digest = digests.get(key);
+				if (digest != null) {
+					return digest;
+				}
+			}
+			
+			// Digest outside of the lock, as other compilations may wait for unrelated entries. Racing compilations
+			// compute the same digest.
+			String digest;
+			try (InputStream inputStream = Files.newInputStream(path)) {
+				digest = WorkerCache.digest(inputStream);
+			}
+			synchronized (this) {
+				digests.put(key, digest);
+			}
+			return digest;
+		}
+	}
+	
+	private static class Lru<K, V> extends LinkedHashMap<K, V> {
+		private int maximumSize = Integer.MAX_VALUE;
+		
+		Lru() {
+			super(16, 0.75f, true);
+		}
+		
+		void resize(int maximumSize) {
+			this.maximumSize = maximumSize;
+			Iterator<K> iterator = keySet().iterator();
+			while (size() > maximumSize) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maximumSize;
+		}
+	}
+}
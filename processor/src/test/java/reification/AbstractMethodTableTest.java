@@ -0,0 +1,40 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertFalse;
+import static reification.TestFunctions.*;
+
+public class AbstractMethodTableTest {
+	
+	@Test
+	public void sharedSuperclassIsResolvedOnce() {
+		JavaFileObject B = inputSource("B", "abstract class B {}");
+		JavaFileObject X = inputSource("X", "abstract class X<@Reify(String.class) T> extends B {}");
+		JavaFileObject Y = inputSource("Y", "abstract class Y<@Reify(String.class) T> extends B {}");
+		
+		// Resolving `X` misses `X`, `B` and `Object`. Resolving `Y` then misses `Y` but hits `B`.
+		assertAboutProcessedSourcesThat(Arrays.asList(B, X, Y), "-A" + ReificationProcessor.INSTRUMENTATION_OPTION)
+				.compilesWithoutWarnings()
+				.withNoteContaining("Abstract method table: 1 hits, 4 misses");
+	}
+	
+	@Test
+	public void statisticsNotReportedWithoutInstrumentation() {
+		JavaFileObject X = inputSource("X", "abstract class X<@Reify(String.class) T> {}");
+		
+		Compilation compilation = compile(Collections.singletonList(X));
+		
+		assertThat(compilation).succeededWithoutWarnings();
+		for (Diagnostic<? extends JavaFileObject> note : compilation.notes()) {
+			assertFalse(note.getMessage(null), note.getMessage(null).contains("Abstract method table"));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package reification;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BatchReificationTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+	
+	@Test
+	public void modulesProcessed() throws IOException {
+		File a = module("a", "x/X.java", "package x; public class X<@reification.Reify(String.class) T> {}");
+		File b = module("b", "y/Y.java", "package y; public interface Y<@reification.Reify(Integer.class) T> {}");
+		
+		int status = run(
+				"-threads", "2",
+				new File(a, "src").getPath() + '=' + new File(a, "generated").getPath(),
+				new File(b, "src").getPath() + '=' + new File(b, "generated").getPath()
+		);
+		
+		assertEquals(output(), 0, status);
+		assertTrue(output().contains("Processed 2 modules (0 failed)"));
+		assertTrue(read(new File(a, "generated/x/X$String.java")).contains("public class X$String extends X<String>"));
+		assertTrue(read(new File(b, "generated/y/Y$Integer.java")).contains("public interface Y$Integer extends Y<Integer>"));
+		assertFalse(new File(a, "generated/x/X.class").exists());
+	}
+	
+	@Test
+	public void failingModuleReported() throws IOException {
+		File a = module("a", "x/X.java", "package x; public class X<@reification.Reify(String.class) T> {}");
+		File b = module("b", "y/Y.java", "package y; public class Y { class Z<@reification.Reify(String.class) T> {} }");
+		
+		int status = run(
+				new File(a, "src").getPath() + '=' + new File(a, "generated").getPath(),
+				new File(b, "src").getPath() + '=' + new File(b, "generated").getPath()
+		);
+		
+		assertEquals(output(), 1, status);
+		assertTrue(output(), output().contains("'@Reify'-annotation in non-static inner class 'y.Y.Z'"));
+		assertTrue(output().contains("Processed 2 modules (1 failed)"));
+		assertTrue(new File(a, "generated/x/X$String.java").isFile());
+	}
+	
+	@Test
+	public void processorOptionsPassed() throws IOException {
+		File a = module("a", "x/X.java", "package x; public class X<@reification.Reify(String.class) T> {}");
+		File cacheDirectory = new File(temporaryFolder.getRoot(), "cache");
+		
+		int status = run(
+				"-A" + ReificationProcessor.CACHE_OPTION + '=' + cacheDirectory.getPath(),
+				"-A" + ReificationProcessor.HOLDERS_OPTION,
+				new File(a, "src").getPath() + '=' + new File(a, "generated").getPath()
+		);
+		
+		assertEquals(output(), 0, status);
+		assertTrue(new File(a, "generated/x/X$Reified.java").isFile());
+		String[] cacheFiles = cacheDirectory.list((directory, name) -> !name.endsWith(".lock"));
+		assertNotNull(cacheFiles);
+		assertEquals(1, cacheFiles.length);
+	}
+	
+	@Test
+	public void invalidArguments() {
+		assertEquals(2, run());
+		assertTrue(output().contains("No modules given"));
+		assertEquals(2, run("-threads", "0", "src=generated"));
+		assertEquals(2, run("src"));
+	}
+	
+	private File module(String name, String path, String source) throws IOException {
+		File module = temporaryFolder.newFolder(name);
+		Path sourcePath = new File(module, "src/" + path).toPath();
+		Files.createDirectories(sourcePath.getParent());
+		Files.write(sourcePath, source.getBytes(StandardCharsets.UTF_8));
+		return module;
+	}
+	
+	private int run(String... args) {
+		String classPath = new File(Reify.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+		String[] arguments = new String[args.length + 2];
+		arguments[0] = "-classpath";
+		arguments[1] = classPath;
+		System.arraycopy(args, 0, arguments, 2, args.length);
+		return BatchReification.run(Arrays.asList(arguments), new PrintStream(output, true));
+	}
+	
+	private String output() {
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,206 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static reification.TestFunctions.*;
+
+public class ClassFileTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject I = inputSource(
+			"i.I",
+			lines(
+					"package i;                                       ",
+					"public interface I<T> {                          ",
+					"    T newT(String value);                        ",
+					"    Class<T> classT();                           ",
+					"}                                                "
+			)
+	);
+	
+	private final JavaFileObject B = inputSource(
+			"b.B",
+			lines(
+					"package b;                                                          ",
+					"public abstract class B<T> implements i.I<T> {                      ",
+					"    public abstract T newT();                                       ",
+					"    protected abstract T newT(char[] value, int offset, int count); ",
+					"}                                                                   "
+			)
+	);
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                         ",
+					"public abstract class X<@Reify(String.class) T> extends b.B<T> {   ",
+					"}                                                                  "
+			)
+	);
+	
+	private final JavaFileObject Y = inputSource(
+			"y.Y",
+			lines(
+					"package y;                                                           ",
+					"public interface Y<@Reify(StringBuilder.class) T> extends i.I<T> {   ",
+					"    T newT(int capacity);                                            ",
+					"}                                                                    "
+			)
+	);
+	
+	private final JavaFileObject Z = inputSource(
+			"z.Z",
+			lines(
+					"package z;                                              ",
+					"public abstract class Z<@Reify(Long.class) T> {         ",
+					"    public abstract T newT(int value);                  ",
+					"    public abstract T newT(Long value);                 ",
+					"    public abstract T newT(String value);               ",
+					"    abstract T copy();                                  ",
+					"}                                                       "
+			)
+	);
+	
+	private final JavaFileObject V = inputSource(
+			"v.V",
+			lines(
+					"package v;                                                                 ",
+					"public class V {                                                           ",
+					"    public V(String... values) {                                           ",
+					"    }                                                                      ",
+					"    public V(java.util.Collection<? extends CharSequence> values) {        ",
+					"    }                                                                      ",
+					"    public V(double value) throws java.io.IOException {                    ",
+					"    }                                                                      ",
+					"}                                                                          "
+			)
+	);
+	
+	private final JavaFileObject W = inputSource(
+			"w.W",
+			lines(
+					"package w;                                                                 ",
+					"public abstract class W<@Reify(v.V.class) T> {                             ",
+					"    public abstract T newT();                                              ",
+					"    public abstract T newT(String first, String second);                   ",
+					"    public abstract T newT(String[] values);                               ",
+					"    public abstract T newT(java.util.List<String> values);                 ",
+					"    public abstract T newT(float value) throws Exception;                  ",
+					"    public abstract Class<T> classT();                                     ",
+					"}                                                                          "
+			)
+	);
+	
+	private final List<JavaFileObject> sources = Arrays.asList(I, B, X, Y, Z, V, W);
+	
+	@Test
+	public void classFilesEquivalentToCompiledSources() throws Exception {
+		Compilation sourceCompilation = compile(sources);
+		Compilation classFileCompilation = compile(sources, option(ReificationProcessor.CLASS_FILES_OPTION, true));
+		assertThat(sourceCompilation).succeeded();
+		assertThat(classFileCompilation).succeeded();
+		assertTrue(classFileCompilation.generatedSourceFiles().isEmpty());
+		
+		ClassLoader sourceClassLoader = new CompilationClassLoader(sourceCompilation);
+		ClassLoader classFileClassLoader = new CompilationClassLoader(classFileCompilation);
+		for (String name : Arrays.asList("x.X$String", "y.Y$StringBuilder", "z.Z$Long", "w.W$V")) {
+			assertEquals(
+					describe(Class.forName(name, false, sourceClassLoader)),
+					describe(Class.forName(name, false, classFileClassLoader))
+			);
+		}
+		
+		Class<?> X$String = Class.forName("x.X$String", true, classFileClassLoader);
+		Object x = X$String.newInstance();
+		assertEquals("x", invoke(x, "i.I", "newT", new Class<?>[]{String.class}, "x"));
+		assertEquals("bc", invoke(x, "b.B", "newT", new Class<?>[]{char[].class, int.class, int.class}, "abcd".toCharArray(), 1, 2));
+		assertEquals(String.class, invoke(x, "i.I", "classT", new Class<?>[0]));
+		
+		Class<?> Z$Long = Class.forName("z.Z$Long", true, classFileClassLoader);
+		assertTrue(Modifier.isAbstract(Z$Long.getModifiers()));
+		
+		Class<?> W$V = Class.forName("w.W$V", true, classFileClassLoader);
+		Object w = W$V.newInstance();
+		assertEquals("v.V", invoke(w, "w.W", "newT", new Class<?>[]{String.class, String.class}, "a", "b").getClass().getName());
+		assertEquals("v.V", invoke(w, "w.W", "newT", new Class<?>[]{float.class}, 1f).getClass().getName());
+	}
+	
+	@Test
+	public void classFilesCached() {
+		File cacheFile = new File(temporaryFolder.getRoot(), "cache");
+		String[] options = {
+				option(ReificationProcessor.CLASS_FILES_OPTION, true),
+				option(ReificationProcessor.CACHE_OPTION, cacheFile.getPath())
+		};
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(I, B, X), options)
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		assertTrue(cacheFile.isFile());
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(I, B, X), options)
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 1 hits, 0 misses")
+				.and()
+				.and()
+				.generatesFileNamed(StandardLocation.CLASS_OUTPUT, "x", "X$String.class");
+	}
+	
+	@Test
+	public void superclassWithoutDefaultConstructor() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T> { X(int i) {} }");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CLASS_FILES_OPTION, true))
+				.failsToCompile()
+				.withErrorContaining("Type 'X' must have a non-private constructor without parameters to be reified into a class file");
+	}
+	
+	private static Object invoke(Object target, String typeName, String name, Class<?>[] parameterTypes, Object... arguments) throws Exception {
+		Class<?> type = Class.forName(typeName, true, target.getClass().getClassLoader());
+		Method method = type.getDeclaredMethod(name, parameterTypes);
+		method.setAccessible(true);
+		return method.invoke(target, arguments);
+	}
+	
+	// Everything that the compiler and reflection can observe of a class.
+	private static String describe(Class<?> type) {
+		List<String> lines = new ArrayList<>();
+		lines.add(Modifier.toString(type.getModifiers()) + " " + type.getName());
+		lines.add("extends " + type.getGenericSuperclass());
+		lines.add("implements " + Arrays.toString(type.getGenericInterfaces()));
+		for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+			lines.add(constructor.toGenericString());
+		}
+		List<String> methods = new ArrayList<>();
+		for (Method method : type.getDeclaredMethods()) {
+			methods.add(
+					String.format(
+							"%s bridge=%s synthetic=%s varArgs=%s default=%s",
+							method.toGenericString(),
+							method.isBridge(),
+							method.isSynthetic(),
+							method.isVarArgs(),
+							method.isDefault()
+					)
+			);
+		}
+		methods.sort(Comparator.naturalOrder());
+		lines.addAll(methods);
+		return lines.stream().collect(Collectors.joining("\n"));
+	}
+}
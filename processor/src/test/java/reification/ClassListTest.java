@@ -0,0 +1,101 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static org.junit.Assert.assertEquals;
+import static reification.TestFunctions.*;
+
+public class ClassListTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject Base = inputSource("x.Base", "package x; public interface Base {}");
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                             ",
+					"public class X<@Reify({String.class, Long.class}) T> implements Base {",
+					"}                                                                      "
+			)
+	);
+	
+	private final List<JavaFileObject> sources = Arrays.asList(Base, X);
+	
+	@Test
+	public void classListWritten() throws IOException {
+		Compilation compilation = compile(sources, option(ReificationProcessor.CLASS_LIST_OPTION, true));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines("java/lang/Object", "x/Base", "x/X", "x/X$Long", "x/X$String", ""),
+				classList(compilation)
+		);
+	}
+	
+	@Test
+	public void classListWithHoldersAndCompanions() throws IOException {
+		Compilation compilation = compile(
+				sources,
+				option(ReificationProcessor.CLASS_LIST_OPTION, true),
+				option(ReificationProcessor.HOLDERS_OPTION, true),
+				option(ReificationProcessor.COMPANIONS_OPTION, true)
+		);
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines(
+						"java/lang/Object",
+						"x/Base",
+						"x/X",
+						"x/X$Reified$X$Long",
+						"x/X$Reified$X$String",
+						"x/X$Specializations",
+						""
+				),
+				classList(compilation)
+		);
+	}
+	
+	@Test
+	public void fragmentsMerged() throws IOException {
+		File a = fragment("a", "x/X$String", "x/X", "java/lang/Object");
+		File b = fragment("b", "y/Y$Long", "y/Y", "java/lang/Object");
+		
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{a.toURI().toURL(), b.toURI().toURL()}, null)) {
+			assertEquals(
+					Arrays.asList("java/lang/Object", "x/X", "x/X$String", "y/Y", "y/Y$Long"),
+					Arrays.asList(ReificationClassList.merge(classLoader).toArray())
+			);
+		}
+	}
+	
+	private File fragment(String name, String... classNames) throws IOException {
+		File directory = temporaryFolder.newFolder(name);
+		Path fragment = new File(directory, ReificationClassList.RESOURCE).toPath();
+		Files.createDirectories(fragment.getParent());
+		Files.write(fragment, (String.join("\n", classNames) + '\n').getBytes(StandardCharsets.UTF_8));
+		return directory;
+	}
+	
+	private static String classList(Compilation compilation) throws IOException {
+		return compilation.generatedFile(CLASS_OUTPUT, "", ReificationClassList.RESOURCE).get().getCharContent(true).toString();
+	}
+}
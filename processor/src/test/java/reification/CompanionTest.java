@@ -0,0 +1,226 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.*;
+import static reification.TestFunctions.*;
+
+public class CompanionTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                ",
+					"public class X<@Reify({String.class, Long.class}) T> {    ",
+					"}                                                         "
+			)
+	);
+	
+	private final JavaFileObject X$Specializations = generatedSource(
+			"x.X$Specializations",
+			lines(
+					"package x;                                                     ",
+					"import java.util.function.Supplier;                            ",
+					"public final class X$Specializations {                         ",
+					"    private X$Specializations() {                              ",
+					"    }                                                          ",
+					"    public static Supplier<? extends X<?>> forType(Class<?> type) {",
+					"        if (type == String.class) {                            ",
+					"            return X$String$Factory.FACTORY;                   ",
+					"        }                                                      ",
+					"        if (type == Long.class) {                              ",
+					"            return X$Long$Factory.FACTORY;                     ",
+					"        }                                                      ",
+					"        return null;                                           ",
+					"    }                                                          ",
+					"    private static final class X$String$Factory {              ",
+					"        static final Supplier<X$String> FACTORY = X$String::new;",
+					"    }                                                          ",
+					"    private static final class X$Long$Factory {                ",
+					"        static final Supplier<X$Long> FACTORY = X$Long::new;   ",
+					"    }                                                          ",
+					"}                                                              "
+			)
+	);
+	
+	@Test
+	public void companionGenerated() {
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.COMPANIONS_OPTION, true))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Specializations);
+	}
+	
+	@Test
+	public void companionInstantiatesGeneratedTypes() throws Exception {
+		Compilation compilation = compile(Collections.singletonList(X), option(ReificationProcessor.COMPANIONS_OPTION, true));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		ClassLoader classLoader = new CompilationClassLoader(compilation);
+		Class<?> companion = Class.forName("x.X$Specializations", true, classLoader);
+		assertEquals("x.X$String", forType(companion, String.class).get().getClass().getName());
+		assertEquals("x.X$Long", forType(companion, Long.class).get().getClass().getName());
+		assertSame(forType(companion, String.class), forType(companion, String.class));
+		assertNull(forType(companion, Integer.class));
+	}
+	
+	@Test
+	public void nonInstantiableTypesNotLookedUp() {
+		JavaFileObject Y = inputSource(
+				"y.Y",
+				lines(
+						"package y;                                                 ",
+						"public final class Y<@Reify({int.class, String.class}) T> {",
+						"    private final T value;                                 ",
+						"    public Y(T value) {                                    ",
+						"        this.value = value;                                ",
+						"    }                                                      ",
+						"    public T get() {                                       ",
+						"        return value;                                      ",
+						"    }                                                      ",
+						"}                                                          "
+				)
+		);
+		JavaFileObject Y$Specializations = generatedSource(
+				"y.Y$Specializations",
+				lines(
+						"package y;                                                   ",
+						"import java.util.function.Supplier;                          ",
+						"public final class Y$Specializations {                       ",
+						"    private Y$Specializations() {                            ",
+						"    }                                                        ",
+						"    public static Supplier<?> forType(Class<?> type) {       ",
+						"        return null;                                         ",
+						"    }                                                        ",
+						"}                                                            "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(Y, option(ReificationProcessor.COMPANIONS_OPTION, true))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(Y$Specializations);
+	}
+	
+	@Test
+	public void companionOfCombinations() {
+		JavaFileObject Z = inputSource("Z", "class Z<@Reify({String.class, Integer.class}) K, @Reify(Long.class) V> {}");
+		JavaFileObject Z$Specializations = generatedSource(
+				"Z$Specializations",
+				lines(
+						"import java.util.function.Supplier;                                              ",
+						"public final class Z$Specializations {                                           ",
+						"    private Z$Specializations() {                                                ",
+						"    }                                                                            ",
+						"    public static Supplier<? extends Z<?, ?>> forType(Class<?> type1, Class<?> type2) {",
+						"        if (type1 == String.class && type2 == Long.class) {                      ",
+						"            return Z$String$Long$Factory.FACTORY;                                ",
+						"        }                                                                        ",
+						"        if (type1 == Integer.class && type2 == Long.class) {                     ",
+						"            return Z$Integer$Long$Factory.FACTORY;                               ",
+						"        }                                                                        ",
+						"        return null;                                                             ",
+						"    }                                                                            ",
+						"    private static final class Z$String$Long$Factory {                           ",
+						"        static final Supplier<Z$String$Long> FACTORY = Z$String$Long::new;       ",
+						"    }                                                                            ",
+						"    private static final class Z$Integer$Long$Factory {                          ",
+						"        static final Supplier<Z$Integer$Long> FACTORY = Z$Integer$Long::new;     ",
+						"    }                                                                            ",
+						"}                                                                                "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(Z, option(ReificationProcessor.COMPANIONS_OPTION, true))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(Z$Specializations);
+	}
+	
+	@Test
+	public void companionWrittenFromCache() {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		String[] options = {option(ReificationProcessor.COMPANIONS_OPTION, true), option(ReificationProcessor.CACHE_OPTION, cache)};
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Specializations)
+				.withNoteContaining("Generation cache: 0 hits, 3 misses");
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Specializations)
+				.withNoteContaining("Generation cache: 3 hits, 0 misses");
+	}
+	
+	@Test
+	public void companionRegeneratedWhenHoldersToggled() {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		String[] options = {option(ReificationProcessor.COMPANIONS_OPTION, true), option(ReificationProcessor.CACHE_OPTION, cache)};
+		String[] holderOptions = {
+				option(ReificationProcessor.COMPANIONS_OPTION, true),
+				option(ReificationProcessor.CACHE_OPTION, cache),
+				option(ReificationProcessor.HOLDERS_OPTION, true)
+		};
+		JavaFileObject X$SpecializationsOfHolder = generatedSource(
+				"x.X$Specializations",
+				lines(
+						"package x;                                                              ",
+						"import java.util.function.Supplier;                                     ",
+						"public final class X$Specializations {                                  ",
+						"    private X$Specializations() {                                       ",
+						"    }                                                                   ",
+						"    public static Supplier<? extends X<?>> forType(Class<?> type) {     ",
+						"        if (type == String.class) {                                     ",
+						"            return X$String$Factory.FACTORY;                            ",
+						"        }                                                               ",
+						"        if (type == Long.class) {                                       ",
+						"            return X$Long$Factory.FACTORY;                              ",
+						"        }                                                               ",
+						"        return null;                                                    ",
+						"    }                                                                   ",
+						"    private static final class X$String$Factory {                       ",
+						"        static final Supplier<X$Reified.X$String> FACTORY = X$Reified.X$String::new;",
+						"    }                                                                   ",
+						"    private static final class X$Long$Factory {                         ",
+						"        static final Supplier<X$Reified.X$Long> FACTORY = X$Reified.X$Long::new;",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Specializations);
+		
+		assertAboutProcessedSourceThat(X, holderOptions)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$SpecializationsOfHolder);
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Specializations);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Supplier<Object> forType(Class<?> companion, Class<?> type) throws Exception {
+		return (Supplier<Object>) companion.getMethod("forType", Class.class).invoke(null, type);
+	}
+}
@@ -0,0 +1,43 @@
+package reification;
+
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads the class files generated by a compilation.
+ */
+class CompilationClassLoader extends ClassLoader {
+	private final Map<String, JavaFileObject> classFiles = new HashMap<>();
+	
+	CompilationClassLoader(Compilation compilation) {
+		super(CompilationClassLoader.class.getClassLoader());
+		for (JavaFileObject fileObject : compilation.generatedFiles()) {
+			String path = fileObject.toUri().getPath();
+			if (fileObject.getKind() == JavaFileObject.Kind.CLASS) {
+				String name = path.substring(path.indexOf("/CLASS_OUTPUT/") + "/CLASS_OUTPUT/".length(), path.length() - ".class".length());
+				classFiles.put(name.replace('/', '.'), fileObject);
+			}
+		}
+	}
+	
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		JavaFileObject classFile = classFiles.get(name);
+		if (classFile == null) {
+			throw new ClassNotFoundException(name);
+		}
+		try (InputStream inputStream = classFile.openInputStream()) {
+			byte[] bytes = ByteStreams.toByteArray(inputStream);
+			return defineClass(name, bytes, 0, bytes.length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
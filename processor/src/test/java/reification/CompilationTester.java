@@ -0,0 +1,296 @@
+package reification;
+
+import com.google.common.io.ByteSource;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.CompilationSubject;
+import com.google.testing.compile.CompileTester;
+import com.google.testing.compile.Compiler;
+
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static javax.tools.StandardLocation.SOURCE_OUTPUT;
+
+/**
+ * Implementation of the fluent `CompileTester`-assertions against an arbitrary compiler, which allows the same tests to
+ * be run against both javac and ECJ. The built-in implementation always compiles with javac.
+ * <p>
+ * Generated sources are matched to expected sources by their name (which is given in the path of the expected file
+ * under '/SOURCE_OUTPUT/') and compared by their syntax trees.
+ */
+public class CompilationTester implements CompileTester {
+	private static final String SOURCE_OUTPUT_PREFIX = "/" + SOURCE_OUTPUT.getName() + "/";
+	
+	private final Compiler compiler;
+	private final Iterable<? extends JavaFileObject> sources;
+	
+	public CompilationTester(Compiler compiler, Iterable<? extends JavaFileObject> sources) {
+		this.compiler = Objects.requireNonNull(compiler, "compiler");
+		this.sources = Objects.requireNonNull(sources, "sources");
+	}
+	
+	@Override
+	public void parsesAs(JavaFileObject first, JavaFileObject... rest) {
+		// Parsing doesn't depend on the compiler under test.
+		assertAbout(javaSources()).that(sources).parsesAs(first, rest);
+	}
+	
+	@Override
+	public SuccessfulCompilationClause compilesWithoutError() {
+		Compilation compilation = compiler.compile(sources);
+		assertThat(compilation).succeeded();
+		return new SuccessfulClause(compilation);
+	}
+	
+	@Override
+	public CleanCompilationClause compilesWithoutWarnings() {
+		Compilation compilation = compiler.compile(sources);
+		assertThat(compilation).succeededWithoutWarnings();
+		return new CleanClause(compilation);
+	}
+	
+	@Override
+	public UnsuccessfulCompilationClause failsToCompile() {
+		Compilation compilation = compiler.compile(sources);
+		assertThat(compilation).failed();
+		return new UnsuccessfulClause(compilation);
+	}
+	
+	private static abstract class Clause<T> implements CompilationWithWarningsClause<T> {
+		final Compilation compilation;
+		
+		Clause(Compilation compilation) {
+			this.compilation = compilation;
+		}
+		
+		abstract T self();
+		
+		@Override
+		public FileClause<T> withNoteContaining(String messageFragment) {
+			return new DiagnosticClause<>(self(), assertThat(compilation).hadNoteContaining(messageFragment));
+		}
+		
+		@Override
+		public T withNoteCount(int noteCount) {
+			assertThat(compilation).hadNoteCount(noteCount);
+			return self();
+		}
+		
+		@Override
+		public FileClause<T> withWarningContaining(String messageFragment) {
+			return new DiagnosticClause<>(self(), assertThat(compilation).hadWarningContaining(messageFragment));
+		}
+		
+		@Override
+		public T withWarningCount(int warningCount) {
+			assertThat(compilation).hadWarningCount(warningCount);
+			return self();
+		}
+		
+		public GeneratedPredicateClause<T> and() {
+			return new GeneratedClause<>(self(), compilation);
+		}
+	}
+	
+	private static class SuccessfulClause extends Clause<SuccessfulCompilationClause> implements SuccessfulCompilationClause {
+		SuccessfulClause(Compilation compilation) {
+			super(compilation);
+		}
+		
+		@Override
+		SuccessfulCompilationClause self() {
+			return this;
+		}
+	}
+	
+	private static class CleanClause extends Clause<CleanCompilationClause> implements CleanCompilationClause {
+		CleanClause(Compilation compilation) {
+			super(compilation);
+		}
+		
+		@Override
+		CleanCompilationClause self() {
+			return this;
+		}
+	}
+	
+	private static class UnsuccessfulClause extends Clause<UnsuccessfulCompilationClause> implements UnsuccessfulCompilationClause {
+		UnsuccessfulClause(Compilation compilation) {
+			super(compilation);
+		}
+		
+		@Override
+		UnsuccessfulCompilationClause self() {
+			return this;
+		}
+		
+		@Override
+		public FileClause<UnsuccessfulCompilationClause> withErrorContaining(String messageFragment) {
+			return new DiagnosticClause<>(this, assertThat(compilation).hadErrorContaining(messageFragment));
+		}
+		
+		@Override
+		public UnsuccessfulCompilationClause withErrorCount(int errorCount) {
+			assertThat(compilation).hadErrorCount(errorCount);
+			return this;
+		}
+	}
+	
+	private static class DiagnosticClause<T> implements FileClause<T>, LineClause<T>, ColumnClause<T> {
+		private final T clause;
+		private final CompilationSubject.DiagnosticInFile diagnosticInFile;
+		private CompilationSubject.DiagnosticOnLine diagnosticOnLine;
+		private CompilationSubject.DiagnosticAtColumn diagnosticAtColumn;
+		
+		DiagnosticClause(T clause, CompilationSubject.DiagnosticInFile diagnosticInFile) {
+			this.clause = clause;
+			this.diagnosticInFile = diagnosticInFile;
+		}
+		
+		@Override
+		public LineClause<T> in(JavaFileObject file) {
+			diagnosticOnLine = diagnosticInFile.inFile(file);
+			return this;
+		}
+		
+		@Override
+		public ColumnClause<T> onLine(long lineNumber) {
+			diagnosticAtColumn = diagnosticOnLine.onLine(lineNumber);
+			return this;
+		}
+		
+		@Override
+		public ChainingClause<T> atColumn(long columnNumber) {
+			diagnosticAtColumn.atColumn(columnNumber);
+			return this;
+		}
+		
+		@Override
+		public T and() {
+			return clause;
+		}
+	}
+	
+	private static class GeneratedClause<T> implements GeneratedPredicateClause<T> {
+		private final T clause;
+		private final Compilation compilation;
+		
+		GeneratedClause(T clause, Compilation compilation) {
+			this.clause = clause;
+			this.compilation = compilation;
+		}
+		
+		@Override
+		public T generatesSources(JavaFileObject first, JavaFileObject... rest) {
+			List<JavaFileObject> expectedSources = new ArrayList<>();
+			expectedSources.add(first);
+			expectedSources.addAll(Arrays.asList(rest));
+			
+			for (JavaFileObject expectedSource : expectedSources) {
+				String path = expectedSource.toUri().getPath();
+				if (!path.startsWith(SOURCE_OUTPUT_PREFIX)) {
+					throw new IllegalArgumentException(
+							String.format("Expected source '%s' is not located under '%s'", path, SOURCE_OUTPUT_PREFIX)
+					);
+				}
+				assertThat(compilation)
+						.generatedFile(SOURCE_OUTPUT, path.substring(SOURCE_OUTPUT_PREFIX.length()))
+						.hasSourceEquivalentTo(expectedSource);
+			}
+			return clause;
+		}
+		
+		@Override
+		public T generatesFiles(JavaFileObject first, JavaFileObject... rest) {
+			List<JavaFileObject> expectedFiles = new ArrayList<>();
+			expectedFiles.add(first);
+			expectedFiles.addAll(Arrays.asList(rest));
+			
+			// As the location of the expected files isn't known, these are matched to any generated file by contents.
+			for (JavaFileObject expectedFile : expectedFiles) {
+				if (!generated(expectedFile)) {
+					throw new AssertionError(
+							String.format("Did not find a generated file corresponding to '%s'", expectedFile.getName())
+					);
+				}
+			}
+			return clause;
+		}
+		
+		private boolean generated(JavaFileObject expectedFile) {
+			try {
+				for (JavaFileObject generatedFile : compilation.generatedFiles()) {
+					if (generatedFile.getKind() == expectedFile.getKind()
+							&& contents(expectedFile).contentEquals(contents(generatedFile))) {
+						return true;
+					}
+				}
+				return false;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		private static ByteSource contents(JavaFileObject file) {
+			return new ByteSource() {
+				@Override
+				public InputStream openStream() throws IOException {
+					return file.openInputStream();
+				}
+			};
+		}
+		
+		@Override
+		public SuccessfulFileClause<T> generatesFileNamed(JavaFileManager.Location location, String packageName, String relativeName) {
+			assertThat(compilation).generatedFile(location, packageName, relativeName);
+			return new FileContentsClause<>(this, compilation, location, packageName, relativeName);
+		}
+	}
+	
+	private static class FileContentsClause<T> implements SuccessfulFileClause<T> {
+		private final GeneratedPredicateClause<T> clause;
+		private final Compilation compilation;
+		private final JavaFileManager.Location location;
+		private final String packageName;
+		private final String relativeName;
+		
+		FileContentsClause(GeneratedPredicateClause<T> clause, Compilation compilation, JavaFileManager.Location location, String packageName, String relativeName) {
+			this.clause = clause;
+			this.compilation = compilation;
+			this.location = location;
+			this.packageName = packageName;
+			this.relativeName = relativeName;
+		}
+		
+		@Override
+		public SuccessfulFileClause<T> withContents(ByteSource expectedByteSource) {
+			assertThat(compilation).generatedFile(location, packageName, relativeName).hasContents(expectedByteSource);
+			return this;
+		}
+		
+		@Override
+		public SuccessfulFileClause<T> withStringContents(Charset charset, String expectedString) {
+			assertThat(compilation)
+					.generatedFile(location, packageName, relativeName)
+					.contentsAsString(charset)
+					.isEqualTo(expectedString);
+			return this;
+		}
+		
+		@Override
+		public GeneratedPredicateClause<T> and() {
+			return clause;
+		}
+	}
+}
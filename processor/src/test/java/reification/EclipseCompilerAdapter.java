@@ -0,0 +1,336 @@
+package reification;
+
+import org.eclipse.jdt.internal.compiler.apt.dispatch.BaseProcessingEnvImpl;
+import org.eclipse.jdt.internal.compiler.tool.EclipseCompiler;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.*;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * ECJ, adapted to the in-memory file manager of compile-testing:
+ * <ul>
+ * <li>ECJ reads generated sources and class files back from the file system (by their name) rather than through the
+ * file manager. Generated files are therefore also written to a temporary directory, and named by their path in it.</li>
+ * <li>ECJ reads class files of the platform class path through the file manager, but closes the ZIP file of their
+ * input stream when the file object is finalized, which may be while the stream is still being read (failing with
+ * "The type java.lang.Object cannot be resolved", depending on garbage collection). These are therefore read
+ * completely while the file object is held.</li>
+ * <li>ECJ fails on an empty (rather than absent) list of class names for annotation processing.</li>
+ * <li>ECJ has no severity for notes, so notes of annotation processors are reported as warnings (without any code).
+ * The notes printed by the processors are therefore recorded (by their messager), and the warnings with their message
+ * are reported as notes instead.</li>
+ * </ul>
+ */
+public class EclipseCompilerAdapter implements JavaCompiler {
+	private final JavaCompiler compiler = new EclipseCompiler();
+	
+	@Override
+	public CompilationTask getTask(
+			Writer out,
+			JavaFileManager fileManager,
+			DiagnosticListener<? super JavaFileObject> diagnosticListener,
+			Iterable<String> options,
+			Iterable<String> classes,
+			Iterable<? extends JavaFileObject> compilationUnits
+	) {
+		if (classes != null && !classes.iterator().hasNext()) {
+			classes = null;
+		}
+		List<String> notes = Collections.synchronizedList(new ArrayList<>());
+		CompilationTask task = compiler.getTask(
+				out,
+				new SourceOutputFileManager(fileManager),
+				diagnostic -> diagnosticListener.report(processorNoteAsNote(diagnostic, notes)),
+				options,
+				classes,
+				compilationUnits
+		);
+		return new CompilationTask() {
+			@Override
+			public void setProcessors(Iterable<? extends Processor> processors) {
+				List<Processor> noteRecordingProcessors = new ArrayList<>();
+				for (Processor processor : processors) {
+					noteRecordingProcessors.add(new NoteRecordingProcessor(processor, notes));
+				}
+				task.setProcessors(noteRecordingProcessors);
+			}
+			
+			@Override
+			public void setLocale(Locale locale) {
+				task.setLocale(locale);
+			}
+			
+			@Override
+			public Boolean call() {
+				return task.call();
+			}
+		};
+	}
+	
+	@Override
+	public StandardJavaFileManager getStandardFileManager(
+			DiagnosticListener<? super JavaFileObject> diagnosticListener,
+			Locale locale,
+			Charset charset
+	) {
+		return compiler.getStandardFileManager(diagnosticListener, locale, charset);
+	}
+	
+	@Override
+	public int run(InputStream in, OutputStream out, OutputStream err, String... arguments) {
+		return compiler.run(in, out, err, arguments);
+	}
+	
+	@Override
+	public int isSupportedOption(String option) {
+		return compiler.isSupportedOption(option);
+	}
+	
+	@Override
+	public Set<SourceVersion> getSourceVersions() {
+		return compiler.getSourceVersions();
+	}
+	
+	private static <S> Diagnostic<S> processorNoteAsNote(Diagnostic<S> diagnostic, List<String> notes) {
+		if (diagnostic.getKind() != Diagnostic.Kind.WARNING
+				|| diagnostic.getCode() != null
+				|| !notes.remove(diagnostic.getMessage(Locale.ROOT))) {
+			return diagnostic;
+		}
+		return new Diagnostic<S>() {
+			@Override
+			public Kind getKind() {
+				return Kind.NOTE;
+			}
+			
+			@Override
+			public S getSource() {
+				return diagnostic.getSource();
+			}
+			
+			@Override
+			public long getPosition() {
+				return diagnostic.getPosition();
+			}
+			
+			@Override
+			public long getStartPosition() {
+				return diagnostic.getStartPosition();
+			}
+			
+			@Override
+			public long getEndPosition() {
+				return diagnostic.getEndPosition();
+			}
+			
+			@Override
+			public long getLineNumber() {
+				return diagnostic.getLineNumber();
+			}
+			
+			@Override
+			public long getColumnNumber() {
+				return diagnostic.getColumnNumber();
+			}
+			
+			@Override
+			public String getCode() {
+				return diagnostic.getCode();
+			}
+			
+			@Override
+			public String getMessage(Locale locale) {
+				return diagnostic.getMessage(locale);
+			}
+		};
+	}
+	
+	private static class NoteRecordingProcessor implements Processor {
+		private final Processor processor;
+		private final List<String> notes;
+		
+		NoteRecordingProcessor(Processor processor, List<String> notes) {
+			this.processor = processor;
+			this.notes = notes;
+		}
+		
+		@Override
+		public Set<String> getSupportedOptions() {
+			return processor.getSupportedOptions();
+		}
+		
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return processor.getSupportedAnnotationTypes();
+		}
+		
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return processor.getSupportedSourceVersion();
+		}
+		
+		@Override
+		public void init(ProcessingEnvironment processingEnv) {
+			// The environment itself isn't wrapped, as the processor recognizes ECJ by it.
+			try {
+				Field messagerField = BaseProcessingEnvImpl.class.getDeclaredField("_messager");
+				messagerField.setAccessible(true);
+				messagerField.set(processingEnv, new NoteRecordingMessager(processingEnv.getMessager(), notes));
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+			processor.init(processingEnv);
+		}
+		
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			return processor.process(annotations, roundEnv);
+		}
+		
+		@Override
+		public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+			return processor.getCompletions(element, annotation, member, userText);
+		}
+	}
+	
+	private static class NoteRecordingMessager implements Messager {
+		private final Messager messager;
+		private final List<String> notes;
+		
+		NoteRecordingMessager(Messager messager, List<String> notes) {
+			this.messager = messager;
+			this.notes = notes;
+		}
+		
+		private void record(Diagnostic.Kind kind, CharSequence msg) {
+			if (kind == Diagnostic.Kind.NOTE) {
+				notes.add(String.valueOf(msg));
+			}
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg) {
+			record(kind, msg);
+			messager.printMessage(kind, msg);
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e) {
+			record(kind, msg);
+			messager.printMessage(kind, msg, e);
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+			record(kind, msg);
+			messager.printMessage(kind, msg, e, a);
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v) {
+			record(kind, msg);
+			messager.printMessage(kind, msg, e, a, v);
+		}
+	}
+	
+	private static class SourceOutputFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+		private final Path directory;
+		
+		SourceOutputFileManager(JavaFileManager fileManager) {
+			super(fileManager);
+			try {
+				directory = Files.createTempDirectory("reification");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind) throws IOException {
+			JavaFileObject fileObject = super.getJavaFileForInput(location, className, kind);
+			if (fileObject == null || location.isOutputLocation()) {
+				return fileObject;
+			}
+			
+			return new ForwardingJavaFileObject<JavaFileObject>(fileObject) {
+				@Override
+				public InputStream openInputStream() throws IOException {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					synchronized (fileObject) {
+						try (InputStream input = super.openInputStream()) {
+							byte[] buffer = new byte[8192];
+							for (int read; (read = input.read(buffer)) != -1; ) {
+								bytes.write(buffer, 0, read);
+							}
+						}
+					}
+					return new ByteArrayInputStream(bytes.toByteArray());
+				}
+			};
+		}
+		
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+			JavaFileObject fileObject = super.getJavaFileForOutput(location, className, kind, sibling);
+			if (location != StandardLocation.SOURCE_OUTPUT && location != StandardLocation.CLASS_OUTPUT) {
+				return fileObject;
+			}
+			
+			Path file = directory.resolve(location.getName()).resolve(className.replace('.', '/') + kind.extension);
+			Files.createDirectories(file.getParent());
+			file.toFile().deleteOnExit();
+			return new ForwardingJavaFileObject<JavaFileObject>(fileObject) {
+				@Override
+				public String getName() {
+					return file.toString();
+				}
+				
+				@Override
+				public OutputStream openOutputStream() throws IOException {
+					OutputStream memory = super.openOutputStream();
+					OutputStream disk = Files.newOutputStream(file);
+					return new OutputStream() {
+						@Override
+						public void write(int b) throws IOException {
+							memory.write(b);
+							disk.write(b);
+						}
+						
+						@Override
+						public void write(byte[] b, int off, int len) throws IOException {
+							memory.write(b, off, len);
+							disk.write(b, off, len);
+						}
+						
+						@Override
+						public void close() throws IOException {
+							try {
+								memory.close();
+							} finally {
+								disk.close();
+							}
+						}
+					};
+				}
+				
+				@Override
+				public Writer openWriter() throws IOException {
+					return new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8);
+				}
+			};
+		}
+	}
+}
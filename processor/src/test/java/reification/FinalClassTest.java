@@ -1,9 +1,12 @@
 package reification;
 
+import com.google.testing.compile.Compilation;
 import org.junit.Test;
 
 import javax.tools.JavaFileObject;
+import java.util.Arrays;
 
+import static com.google.testing.compile.CompilationSubject.assertThat;
 import static reification.TestFunctions.*;
 
 public class FinalClassTest {
@@ -11,9 +14,123 @@ public class FinalClassTest {
 	@Test
 	public void singleReferenceTypeParameter() {
 		JavaFileObject X = inputSource("X", "final class X<@Reify(String.class) T> {}");
+		JavaFileObject X$String = generatedSource("X$String", "public class X$String {}");
+		
 		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String);
+	}
+	
+	@Test
+	public void specializedMembersAndSupertypes() {
+		JavaFileObject Box = inputSource(
+				"x.Box",
+				lines(
+						"package x;                                                              ",
+						"import java.util.*;                                                     ",
+						"public final class Box<@Reify(String.class) T> implements Comparable<Box<T>>, Iterable<T> {",
+						"    private final List<T> values = new ArrayList<>();                   ",
+						"    public void add(T value) {                                          ",
+						"        values.add(value);                                              ",
+						"    }                                                                   ",
+						"    public T first() {                                                  ",
+						"        T first = values.get(0);                                        ",
+						"        return first;                                                   ",
+						"    }                                                                   ",
+						"    @Override                                                           ",
+						"    public Iterator<T> iterator() {                                     ",
+						"        return values.iterator();                                       ",
+						"    }                                                                   ",
+						"    @Override                                                           ",
+						"    public int compareTo(Box<T> other) {                                ",
+						"        return Integer.compare(values.size(), other.values.size());     ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Box$String = generatedSource(
+				"x.Box$String",
+				lines(
+						"package x;                                                              ",
+						"import java.util.ArrayList;                                             ",
+						"import java.util.Iterator;                                              ",
+						"import java.util.List;                                                  ",
+						"public class Box$String implements Comparable<Box$String>, Iterable<String> {",
+						"    private final List<String> values = new ArrayList<>();              ",
+						"    public void add(String value) {                                     ",
+						"        values.add(value);                                              ",
+						"    }                                                                   ",
+						"    public String first() {                                             ",
+						"        String first = values.get(0);                                   ",
+						"        return first;                                                   ",
+						"    }                                                                   ",
+						"    @Override                                                           ",
+						"    public Iterator<String> iterator() {                                ",
+						"        return values.iterator();                                       ",
+						"    }                                                                   ",
+						"    @Override                                                           ",
+						"    public int compareTo(Box$String other) {                            ",
+						"        return Integer.compare(values.size(), other.values.size());     ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(Box)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(Box$String);
+	}
+	
+	@Test
+	public void specializationUsable() {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public final class X<@Reify(StringBuilder.class) T extends CharSequence> {",
+						"    private final T value;                                              ",
+						"    public X(T value) {                                                 ",
+						"        this.value = value;                                             ",
+						"    }                                                                   ",
+						"    public T get() {                                                    ",
+						"        return value;                                                   ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Y = inputSource(
+				"y.Y",
+				lines(
+						"package y;                                                              ",
+						"class Y {                                                               ",
+						"    String f() {                                                        ",
+						"        return new x.X$StringBuilder(new StringBuilder()).get().reverse().toString();",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		Compilation compilation = compile(Arrays.asList(X, Y));
+		assertThat(compilation).succeededWithoutWarnings();
+	}
+	
+	@Test
+	public void multipleTypeParameters() {
+		JavaFileObject X = inputSource("X", "final class X<@Reify(String.class) T, U> {}");
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("with multiple type variables is " + Message.NOT_YET_IMPLEMENTED);
+	}
+	
+	@Test
+	public void classFiles() {
+		JavaFileObject X = inputSource("X", "final class X<@Reify(String.class) T> {}");
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CLASS_FILES_OPTION, true))
 				.failsToCompile()
 				.withErrorCount(1)
-				.withErrorContaining(Message.NOT_YET_IMPLEMENTED);
+				.withErrorContaining("is " + Message.NOT_SUPPORTED + " with option");
 	}
 }
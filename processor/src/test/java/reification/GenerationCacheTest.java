@@ -0,0 +1,166 @@
+package reification;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static reification.TestFunctions.*;
+
+public class GenerationCacheTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                ",
+					"abstract class X<@Reify(String.class) T> {",
+					"    abstract T newT();                    ",
+					"}                                         "
+			)
+	);
+	
+	private final JavaFileObject X$String = generatedSource(
+			"x.X$String",
+			lines(
+					"package x;                               ",
+					"public class X$String extends X<String> {",
+					"    @Override                            ",
+					"    String newT() {                      ",
+					"        return new String();             ",
+					"    }                                    ",
+					"}                                        "
+			)
+	);
+	
+	@Test
+	public void sourceWrittenFromCache() {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		assertTrue(cache.isFile());
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Generation cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void changedAbstractMethodsMissCache() {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		JavaFileObject changedX = inputSource(
+				"x.X",
+				lines(
+						"package x;                                ",
+						"abstract class X<@Reify(String.class) T> {",
+						"    abstract T newT(String s);            ",
+						"}                                         "
+				)
+		);
+		JavaFileObject changedX$String = generatedSource(
+				"x.X$String",
+				lines(
+						"package x;                               ",
+						"public class X$String extends X<String> {",
+						"    @Override                            ",
+						"    String newT(String s) {              ",
+						"        return new String(s);            ",
+						"    }                                    ",
+						"}                                        "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		
+		assertAboutProcessedSourceThat(changedX, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(changedX$String)
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		
+		assertAboutProcessedSourceThat(changedX, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(changedX$String)
+				.withNoteContaining("Generation cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void invalidCacheIgnored() throws IOException {
+		File cache = temporaryFolder.newFile("cache");
+		Files.write(cache.toPath(), "not a cache".getBytes(StandardCharsets.UTF_8));
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void unwritableCacheReported() throws IOException {
+		File cache = new File(temporaryFolder.newFile("file"), "cache");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutError()
+				.withWarningContaining("Could not write generation cache");
+	}
+	
+	@Test
+	public void concurrentSavesMerged() throws IOException {
+		Path path = new File(temporaryFolder.getRoot(), "cache").toPath();
+		GenerationCache first = GenerationCache.open(path);
+		GenerationCache second = GenerationCache.open(path);
+		
+		assertNull(first.get("x.X$String", "x"));
+		first.put("x.X$String", "class X$String {}");
+		assertNull(second.get("y.Y$String", "y"));
+		second.put("y.Y$String", "class Y$String {}");
+		first.save();
+		second.save();
+		
+		GenerationCache cache = GenerationCache.open(path);
+		assertEquals("class X$String {}", cache.get("x.X$String", "x"));
+		assertEquals("class Y$String {}", cache.get("y.Y$String", "y"));
+	}
+	
+	@Test
+	public void openCacheReplaced() throws IOException {
+		Path path = new File(temporaryFolder.getRoot(), "cache").toPath();
+		GenerationCache first = GenerationCache.open(path);
+		assertNull(first.get("x.X$String", "x"));
+		first.put("x.X$String", "class X$String {}");
+		first.save();
+		
+		// `opened` keeps serving the sources it read after `second` has replaced its file.
+		GenerationCache opened = GenerationCache.open(path);
+		GenerationCache second = GenerationCache.open(path);
+		assertNull(second.get("x.X$String", "changed"));
+		second.put("x.X$String", "class X$String { int i; }");
+		second.save();
+		
+		assertEquals("class X$String {}", opened.get("x.X$String", "x"));
+		assertEquals("class X$String { int i; }", GenerationCache.open(path).get("x.X$String", "changed"));
+	}
+}
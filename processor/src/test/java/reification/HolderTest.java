@@ -0,0 +1,137 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertTrue;
+import static reification.TestFunctions.*;
+
+public class HolderTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final String holdersOption = option(ReificationProcessor.HOLDERS_OPTION, true);
+	
+	@Test
+	public void classHolder() {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                              ",
+						"public abstract class X<@Reify(String.class) T> {       ",
+						"    public abstract T newT();                           ",
+						"}                                                       "
+				)
+		);
+		JavaFileObject X$Reified = generatedSource(
+				"x.X$Reified",
+				lines(
+						"package x;                                              ",
+						"public final class X$Reified {                          ",
+						"    private X$Reified() {                               ",
+						"    }                                                   ",
+						"    public static class X$String extends X<String> {    ",
+						"        @Override                                       ",
+						"        public String newT() {                          ",
+						"            return new String();                        ",
+						"        }                                               ",
+						"    }                                                   ",
+						"}                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, holdersOption)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Reified);
+	}
+	
+	@Test
+	public void interfaceHolder() {
+		JavaFileObject X = inputSource("X", "interface X<@Reify(String.class) T> {}");
+		JavaFileObject X$Reified = generatedSource(
+				"X$Reified",
+				lines(
+						"public final class X$Reified {                          ",
+						"    private X$Reified() {                               ",
+						"    }                                                   ",
+						"    public interface X$String extends X<String> {       ",
+						"    }                                                   ",
+						"}                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, holdersOption)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Reified);
+	}
+	
+	@Test
+	public void memberTypesReferencedThroughHolder() {
+		JavaFileObject X = inputSource("x.X", "package x; public class X<@Reify(String.class) T> {}");
+		JavaFileObject U = inputSource(
+				"u.U",
+				lines(
+						"package u;                                              ",
+						"import x.X$Reified.*;                                   ",
+						"class U {                                               ",
+						"    x.X<String> x = new X$String();                     ",
+						"}                                                       "
+				)
+		);
+		
+		Compilation compilation = compile(Arrays.asList(X, U), holdersOption);
+		assertThat(compilation).succeededWithoutWarnings();
+	}
+	
+	@Test
+	public void holdersCached() {
+		JavaFileObject X = inputSource("x.X", "package x; public class X<@Reify(String.class) T> {}");
+		File cacheFile = new File(temporaryFolder.getRoot(), "cache");
+		String[] options = {holdersOption, option(ReificationProcessor.CACHE_OPTION, cacheFile.getPath())};
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 0 hits, 1 misses");
+		assertTrue(cacheFile.isFile());
+		
+		assertAboutProcessedSourceThat(X, options)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(
+						generatedSource(
+								"x.X$Reified",
+								lines(
+										"package x;                                              ",
+										"public final class X$Reified {                          ",
+										"    private X$Reified() {                               ",
+										"    }                                                   ",
+										"    public static class X$String extends X<String> {    ",
+										"    }                                                   ",
+										"}                                                       "
+								)
+						)
+				)
+				.withNoteContaining("Generation cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void holdersWithClassFiles() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T> {}");
+		
+		assertAboutProcessedSourceThat(X, holdersOption, option(ReificationProcessor.CLASS_FILES_OPTION, true))
+				.failsToCompile()
+				.withErrorContaining(
+						"Option 'reification.holders' cannot be combined with option 'reification.classFiles'"
+				);
+	}
+}
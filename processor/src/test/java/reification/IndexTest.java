@@ -0,0 +1,119 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static org.junit.Assert.*;
+import static reification.TestFunctions.*;
+
+public class IndexTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                   ",
+					"public class X<@Reify({String.class, Thread.State.class}) T> {",
+					"}                                                            "
+			)
+	);
+	
+	private final JavaFileObject Y = inputSource(
+			"Y",
+			lines(
+					"public class Y<@Reify(Long.class) K, @Reify({Integer.class, String.class}) V> {",
+					"}                                                                          "
+			)
+	);
+	
+	private final List<JavaFileObject> sources = Arrays.asList(X, Y);
+	
+	@Test
+	public void indexWritten() throws IOException {
+		Compilation compilation = compile(sources, option(ReificationProcessor.INDEX_OPTION, true));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines(
+						"# Generated by the '@reification.Reify'-annotation processor.",
+						"Y\tjava.lang.Long,java.lang.Integer\tY$Long$Integer",
+						"Y\tjava.lang.Long,java.lang.String\tY$Long$String",
+						"x.X\tjava.lang.String\tx.X$String",
+						"x.X\tjava.lang.Thread$State\tx.X$State",
+						""
+				),
+				index(compilation)
+		);
+	}
+	
+	@Test
+	public void indexNamesMembersOfHolders() throws IOException {
+		Compilation compilation = compile(sources, option(ReificationProcessor.INDEX_OPTION, true), option(ReificationProcessor.HOLDERS_OPTION, true));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		String index = index(compilation);
+		assertTrue(index, index.contains("x.X\tjava.lang.String\tx.X$Reified$X$String\n"));
+		assertTrue(index, index.contains("Y\tjava.lang.Long,java.lang.Integer\tY$Reified$Y$Long$Integer\n"));
+	}
+	
+	@Test
+	public void cachedTypesIndexed() throws IOException {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		String[] options = {option(ReificationProcessor.INDEX_OPTION, true), option(ReificationProcessor.CACHE_OPTION, cache)};
+		
+		Compilation compilation = compile(sources, options);
+		assertThat(compilation).succeededWithoutWarnings();
+		Compilation cachedCompilation = compile(sources, options);
+		assertThat(cachedCompilation).succeededWithoutWarnings();
+		assertThat(cachedCompilation).hadNoteContaining("Generation cache: 4 hits, 0 misses");
+		
+		assertEquals(index(compilation), index(cachedCompilation));
+	}
+	
+	@Test
+	public void indexNotWrittenWithoutOption() {
+		Compilation compilation = compile(Arrays.asList(X));
+		assertThat(compilation).succeededWithoutWarnings();
+		assertFalse(compilation.generatedFile(CLASS_OUTPUT, "", ReificationIndex.RESOURCE).isPresent());
+	}
+	
+	@Test
+	public void indexRead() throws Exception {
+		Compilation compilation = compile(sources, option(ReificationProcessor.INDEX_OPTION, true));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		ReificationIndex index;
+		try (InputStream inputStream = compilation.generatedFile(CLASS_OUTPUT, "", ReificationIndex.RESOURCE).get().openInputStream()) {
+			index = ReificationIndex.read(inputStream);
+		}
+		assertEquals(Arrays.asList("Y", "x.X"), Arrays.asList(index.getReifyingTypes().toArray()));
+		assertEquals("x.X$State", index.getGeneratedType("x.X", "java.lang.Thread$State"));
+		assertEquals("Y$Long$Integer", index.getGeneratedType("Y", "java.lang.Long", "java.lang.Integer"));
+		assertNull(index.getGeneratedType("x.X", "java.lang.Long"));
+		assertEquals(2, index.getGeneratedTypes("Y").size());
+		assertTrue(index.getGeneratedTypes("Z").isEmpty());
+		
+		ClassLoader classLoader = new CompilationClassLoader(compilation);
+		Class<?> reifyingType = Class.forName("x.X", false, classLoader);
+		Class<?> generatedClass = index.getGeneratedClass(reifyingType, String.class);
+		assertEquals("x.X$String", generatedClass.getName());
+		assertSame(reifyingType, generatedClass.getSuperclass());
+	}
+	
+	private static String index(Compilation compilation) throws IOException {
+		return compilation.generatedFile(CLASS_OUTPUT, "", ReificationIndex.RESOURCE).get().getCharContent(true).toString();
+	}
+}
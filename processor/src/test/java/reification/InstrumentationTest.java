@@ -0,0 +1,54 @@
+package reification;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertTrue;
+import static reification.TestFunctions.*;
+
+public class InstrumentationTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	@Test
+	public void reportWrittenToFile() throws IOException {
+		File report = new File(temporaryFolder.getRoot(), "report.json");
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                ",
+						"abstract class X<@Reify(String.class) T> {",
+						"    abstract T newT();                    ",
+						"}                                         "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.INSTRUMENTATION_OPTION, report))
+				.compilesWithoutWarnings();
+		
+		String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+		assertTrue(json, json.contains("\"round\": {\"count\": 2"));
+		assertTrue(json, json.contains("\"x.X\": {"));
+		assertTrue(json, json.contains("\"generateType\": {\"count\": 1"));
+		assertTrue(json, json.contains("\"supertypes\": {\"count\": 1"));
+		assertTrue(json, json.contains("\"generateMethod\": {\"count\": 1"));
+		assertTrue(json, json.contains("\"writeFile\": {\"count\": 1"));
+	}
+	
+	@Test
+	public void reportAsNote() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T> {}");
+		
+		assertAboutProcessedSourceThat(X, "-A" + ReificationProcessor.INSTRUMENTATION_OPTION)
+				.compilesWithoutWarnings()
+				.withNoteContaining("Instrumentation report");
+	}
+}
@@ -5,17 +5,78 @@ import org.junit.Test;
 import javax.tools.JavaFileObject;
 
 import static reification.TestFunctions.*;
+import static reification.TestHelper.assertCompilesAndGenerates;
 
 public class MultipleReferenceTypesTest {
 	
 	@Test
 	public void classWithTwoReifiedParameters() {
-		// TODO Make this compile.
-		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T1, @Reify(String.class) T2> {}");
-		assertAboutProcessedSourceThat(X)
-				.failsToCompile()
-				.withErrorCount(1)
-				.withErrorContaining(Message.NOT_YET_IMPLEMENTED);
+		JavaFileObject X = inputSource("X", "class X<@Reify(Long.class) K, @Reify(String.class) V> {}");
+		JavaFileObject X$Long$String = generatedSource(
+				"X$Long$String",
+				lines(
+						"public class X$Long$String extends X<Long, String> {",
+						"}                                                   "
+				)
+		);
+		
+		assertCompilesAndGenerates(X, X$Long$String);
+	}
+	
+	@Test
+	public void methodsOfEachReifiedParameter() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"abstract class X<@Reify(StringBuilder.class) A, @Reify(java.math.BigInteger.class) B> {",
+						"    abstract A newA(String value);                                                     ",
+						"    abstract Class<A> classA();                                                        ",
+						"    abstract B newB(String value);                                                     ",
+						"    abstract Class<B> classB();                                                        ",
+						"}                                                                                      "
+				)
+		);
+		JavaFileObject X$StringBuilder$BigInteger = generatedSource(
+				"X$StringBuilder$BigInteger",
+				lines(
+						"import java.math.BigInteger;                                               ",
+						"public class X$StringBuilder$BigInteger extends X<StringBuilder, BigInteger> {",
+						"    @Override                                                              ",
+						"    StringBuilder newA(String value) {                                     ",
+						"        return new StringBuilder(value);                                   ",
+						"    }                                                                      ",
+						"    @Override                                                              ",
+						"    Class<StringBuilder> classA() {                                        ",
+						"        return StringBuilder.class;                                        ",
+						"    }                                                                      ",
+						"    @Override                                                              ",
+						"    BigInteger newB(String value) {                                        ",
+						"        return new BigInteger(value);                                      ",
+						"    }                                                                      ",
+						"    @Override                                                              ",
+						"    Class<BigInteger> classB() {                                           ",
+						"        return BigInteger.class;                                           ",
+						"    }                                                                      ",
+						"}                                                                          "
+				)
+		);
+		
+		assertCompilesAndGenerates(X, X$StringBuilder$BigInteger);
+	}
+	
+	@Test
+	public void reifiedTypesWithEqualSimpleNames() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(java.util.Date.class) A, @Reify(java.sql.Date.class) B> {}");
+		JavaFileObject X$java_util_Date$java_sql_Date = generatedSource(
+				"X$java_util_Date$java_sql_Date",
+				lines(
+						"import java.util.Date;                                                        ",
+						"public class X$java_util_Date$java_sql_Date extends X<Date, java.sql.Date> {  ",
+						"}                                                                             "
+				)
+		);
+		
+		assertCompilesAndGenerates(X, X$java_util_Date$java_sql_Date);
 	}
 	
 	@Test
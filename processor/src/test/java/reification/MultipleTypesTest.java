@@ -0,0 +1,90 @@
+package reification;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static reification.TestFunctions.*;
+
+public class MultipleTypesTest {
+	
+	@Test
+	public void classWithTwoTypes() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({String.class, Long.class}) T> {}");
+		JavaFileObject X$String = generatedSource("X$String", "public class X$String extends X<String> {}");
+		JavaFileObject X$Long = generatedSource("X$Long", "public class X$Long extends X<Long> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String, X$Long);
+	}
+	
+	@Test
+	public void classWithPrimitiveAndReferenceTypes() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({int.class, String.class}) T> {}");
+		JavaFileObject X$int = generatedSource("X$int", "public class X$int {}");
+		JavaFileObject X$String = generatedSource("X$String", "public class X$String extends X<String> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int, X$String);
+	}
+	
+	@Test
+	public void classWithCombinationsOfTypes() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({String.class, Long.class}) K, @Reify({Integer.class, Short.class}) V> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(
+						generatedSource("X$String$Integer", "public class X$String$Integer extends X<String, Integer> {}"),
+						generatedSource("X$String$Short", "public class X$String$Short extends X<String, Short> {}"),
+						generatedSource("X$Long$Integer", "public class X$Long$Integer extends X<Long, Integer> {}"),
+						generatedSource("X$Long$Short", "public class X$Long$Short extends X<Long, Short> {}")
+				);
+	}
+	
+	@Test
+	public void duplicateTypeGeneratedOnce() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({String.class, String.class}) T> {}");
+		JavaFileObject X$String = generatedSource("X$String", "public class X$String extends X<String> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String);
+	}
+	
+	@Test
+	public void combinationsExceedingMaximum() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({String.class, Long.class}) K, @Reify({Integer.class, Short.class}) V> {}");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.MAX_COMBINATIONS_OPTION, 3))
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("reify 4 combinations of types, which exceeds the maximum of 3");
+	}
+	
+	@Test
+	public void arrayType() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({String.class, byte[].class}) T> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining(Message.NOT_YET_IMPLEMENTED);
+	}
+	
+	@Test
+	public void noTypes() {
+		JavaFileObject X = inputSource("X", "class X<@Reify({}) T> {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining(Message.NOT_SUPPORTED);
+	}
+}
@@ -0,0 +1,204 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static org.junit.Assert.assertEquals;
+import static reification.TestFunctions.*;
+
+public class NativeImageTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private static final String DIRECTORY = "META-INF/native-image/com.example/service/";
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                             ",
+					"public class X<@Reify({String.class, Long.class}) T> {",
+					"}                                                      "
+			)
+	);
+	
+	private final JavaFileObject I = inputSource(
+			"x.I",
+			lines(
+					"package x;                                   ",
+					"public interface I<@Reify(String.class) T> {",
+					"}                                            "
+			)
+	);
+	
+	private final JavaFileObject F = inputSource(
+			"F",
+			lines(
+					"public final class F<@Reify(int.class) T> {",
+					"    private final T value;                 ",
+					"    public F(T value) {                    ",
+					"        this.value = value;                ",
+					"    }                                      ",
+					"    public T get() {                       ",
+					"        return value;                      ",
+					"    }                                      ",
+					"}                                          "
+			)
+	);
+	
+	private final List<JavaFileObject> sources = Arrays.asList(X, I, F);
+	
+	@Test
+	public void reflectionConfigurationWritten() throws IOException {
+		Compilation compilation = compile(sources, option(ReificationProcessor.NATIVE_IMAGE_OPTION, "com.example/service"));
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines(
+						"[",
+						"  {",
+						"    \"name\": \"F$int\"",
+						"  },",
+						"  {",
+						"    \"name\": \"x.I$String\"",
+						"  },",
+						"  {",
+						"    \"name\": \"x.X$Long\",",
+						"    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]",
+						"  },",
+						"  {",
+						"    \"name\": \"x.X$String\",",
+						"    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]",
+						"  }",
+						"]",
+						""
+				),
+				resource(compilation, "reflect-config.json")
+		);
+		assertEquals(
+				lines("{", "  \"resources\": {", "    \"includes\": []", "  }", "}", ""),
+				resource(compilation, "resource-config.json")
+		);
+	}
+	
+	@Test
+	public void indexIncludedInResourceConfiguration() throws IOException {
+		Compilation compilation = compile(
+				Collections.singletonList(X),
+				option(ReificationProcessor.NATIVE_IMAGE_OPTION, "com.example/service"),
+				option(ReificationProcessor.INDEX_OPTION, true)
+		);
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines(
+						"{",
+						"  \"resources\": {",
+						"    \"includes\": [",
+						"      {\"pattern\": \"\\\\QMETA-INF/reification/index\\\\E\"}",
+						"    ]",
+						"  }",
+						"}",
+						""
+				),
+				resource(compilation, "resource-config.json")
+		);
+	}
+	
+	@Test
+	public void membersOfHoldersConfigured() throws IOException {
+		Compilation compilation = compile(
+				Collections.singletonList(X),
+				option(ReificationProcessor.NATIVE_IMAGE_OPTION, "com.example/service"),
+				option(ReificationProcessor.HOLDERS_OPTION, true)
+		);
+		assertThat(compilation).succeededWithoutWarnings();
+		
+		assertEquals(
+				lines(
+						"[",
+						"  {",
+						"    \"name\": \"x.X$Reified$X$Long\",",
+						"    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]",
+						"  },",
+						"  {",
+						"    \"name\": \"x.X$Reified$X$String\",",
+						"    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]",
+						"  }",
+						"]",
+						""
+				),
+				resource(compilation, "reflect-config.json")
+		);
+	}
+	
+	@Test
+	public void constructorsOfNonInstantiableTypesNotConfigured() throws IOException {
+		JavaFileObject A = inputSource(
+				"A",
+				lines(
+						"public abstract class A<@Reify(String.class) T> {",
+						"    public abstract T newT();                     ",
+						"    public abstract void run();                   ",
+						"}                                                 "
+				)
+		);
+		JavaFileObject P = inputSource(
+				"p.P",
+				lines(
+						"package p;                                     ",
+						"public final class P<@Reify(String.class) T> {",
+						"    private P() {                              ",
+						"    }                                          ",
+						"    public static P<?> create() {              ",
+						"        return new P<>();                      ",
+						"    }                                          ",
+						"}                                              "
+				)
+		);
+		String expected = lines(
+				"[",
+				"  {",
+				"    \"name\": \"A$String\"",
+				"  },",
+				"  {",
+				"    \"name\": \"p.P$String\"",
+				"  }",
+				"]",
+				""
+		);
+		
+		Compilation compilation = compile(Arrays.asList(A, P), option(ReificationProcessor.NATIVE_IMAGE_OPTION, "com.example/service"));
+		assertThat(compilation).succeededWithoutWarnings();
+		assertEquals(expected, resource(compilation, "reflect-config.json"));
+		
+		// Types written from the cache are configured in the same way.
+		String cache = option(ReificationProcessor.CACHE_OPTION, temporaryFolder.getRoot().toPath().resolve("cache"));
+		for (int i = 0; i < 2; i++) {
+			compilation = compile(Arrays.asList(A, P), option(ReificationProcessor.NATIVE_IMAGE_OPTION, "com.example/service"), cache);
+			assertThat(compilation).succeededWithoutWarnings();
+			assertEquals(expected, resource(compilation, "reflect-config.json"));
+		}
+	}
+	
+	@Test
+	public void invalidCoordinates() {
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.NATIVE_IMAGE_OPTION, "service"))
+				.failsToCompile()
+				.withErrorContaining("must be of the form '<group>/<artifact>' but was 'service'");
+	}
+	
+	private static String resource(Compilation compilation, String name) throws IOException {
+		return compilation.generatedFile(CLASS_OUTPUT, "", DIRECTORY + name).get().getCharContent(true).toString();
+	}
+}
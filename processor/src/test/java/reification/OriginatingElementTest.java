@@ -0,0 +1,228 @@
+package reification;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static reification.TestFunctions.*;
+
+/**
+ * Gradle processes sources incrementally with "isolating" annotation processors if each generated file has exactly one
+ * originating element, which is the top-level type that the file is generated from. The supertypes that are consulted
+ * for abstract methods are tracked by Gradle itself, and must not be originating elements.
+ */
+public class OriginatingElementTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject Factory = inputSource(
+			"f.Factory",
+			lines(
+					"package f;                   ",
+					"public interface Factory<T> {",
+					"    T newT();                ",
+					"}                            "
+			)
+	);
+	
+	private final JavaFileObject B = inputSource(
+			"b.B",
+			lines(
+					"package b;                                          ",
+					"public abstract class B<T> implements f.Factory<T> {",
+					"    public abstract Class<T> classT();              ",
+					"}                                                   "
+			)
+	);
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                      ",
+					"public abstract class X<@Reify(String.class) T> extends b.B<T> {",
+					"}                                                               "
+			)
+	);
+	
+	private final JavaFileObject Y = inputSource(
+			"y.Y",
+			lines(
+					"package y;                                                                      ",
+					"public abstract class Y<@Reify(StringBuilder.class) T> implements f.Factory<T> {",
+					"}                                                                               "
+			)
+	);
+	
+	@Test
+	public void supertypesAreNotOriginatingElements() {
+		OriginatingElementRecorder recorder = new OriginatingElementRecorder();
+		
+		assertAboutSourcesProcessedWith(recorder, Arrays.asList(Factory, B, X)).compilesWithoutWarnings();
+		
+		assertEquals(Collections.singletonMap("x.X$String", Collections.singletonList("x.X")), recorder.originatingElements);
+	}
+	
+	@Test
+	public void eachFileOriginatesFromItsOwnType() {
+		OriginatingElementRecorder recorder = new OriginatingElementRecorder();
+		
+		assertAboutSourcesProcessedWith(recorder, Arrays.asList(Factory, B, X, Y), option(ReificationProcessor.PARALLELISM_OPTION, 2))
+				.compilesWithoutWarnings();
+		
+		Map<String, List<String>> expected = new HashMap<>();
+		expected.put("x.X$String", Collections.singletonList("x.X"));
+		expected.put("y.Y$StringBuilder", Collections.singletonList("y.Y"));
+		assertEquals(expected, recorder.originatingElements);
+	}
+	
+	@Test
+	public void cachedFileHasSameOriginatingElement() {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		List<JavaFileObject> sources = Arrays.asList(Factory, B, X);
+		
+		assertAboutProcessedSourcesThat(sources, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings();
+		
+		OriginatingElementRecorder recorder = new OriginatingElementRecorder();
+		assertAboutSourcesProcessedWith(recorder, sources, option(ReificationProcessor.CACHE_OPTION, cache))
+				.compilesWithoutWarnings()
+				.withNoteContaining("Generation cache: 1 hits, 0 misses");
+		
+		assertEquals(Collections.singletonMap("x.X$String", Collections.singletonList("x.X")), recorder.originatingElements);
+	}
+	
+	/**
+	 * Runs the processor with a filer that records the originating elements of every created file by its name.
+	 */
+	private static class OriginatingElementRecorder extends AbstractProcessor {
+		private final Processor processor = new ReificationProcessor();
+		
+		final Map<String, List<String>> originatingElements = new HashMap<>();
+		
+		@Override
+		public synchronized void init(ProcessingEnvironment processingEnv) {
+			super.init(processingEnv);
+			processor.init(new RecordingProcessingEnvironment(processingEnv));
+		}
+		
+		@Override
+		public Set<String> getSupportedOptions() {
+			return processor.getSupportedOptions();
+		}
+		
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return processor.getSupportedAnnotationTypes();
+		}
+		
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return processor.getSupportedSourceVersion();
+		}
+		
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			return processor.process(annotations, roundEnv);
+		}
+		
+		private void record(CharSequence name, Element[] elements) {
+			List<String> names = Arrays.stream(elements)
+					.map(e -> ((TypeElement) e).getQualifiedName().toString())
+					.collect(Collectors.toList());
+			if (originatingElements.put(name.toString(), names) != null) {
+				throw new IllegalStateException(String.format("File '%s' was created more than once", name));
+			}
+		}
+		
+		private class RecordingProcessingEnvironment implements ProcessingEnvironment {
+			private final ProcessingEnvironment processingEnv;
+			private final Filer filer;
+			
+			RecordingProcessingEnvironment(ProcessingEnvironment processingEnv) {
+				this.processingEnv = processingEnv;
+				this.filer = new RecordingFiler(processingEnv.getFiler());
+			}
+			
+			@Override
+			public Map<String, String> getOptions() {
+				return processingEnv.getOptions();
+			}
+			
+			@Override
+			public Messager getMessager() {
+				return processingEnv.getMessager();
+			}
+			
+			@Override
+			public Filer getFiler() {
+				return filer;
+			}
+			
+			@Override
+			public Elements getElementUtils() {
+				return processingEnv.getElementUtils();
+			}
+			
+			@Override
+			public Types getTypeUtils() {
+				return processingEnv.getTypeUtils();
+			}
+			
+			@Override
+			public SourceVersion getSourceVersion() {
+				return processingEnv.getSourceVersion();
+			}
+			
+			@Override
+			public Locale getLocale() {
+				return processingEnv.getLocale();
+			}
+		}
+		
+		private class RecordingFiler implements Filer {
+			private final Filer filer;
+			
+			RecordingFiler(Filer filer) {
+				this.filer = filer;
+			}
+			
+			@Override
+			public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) throws IOException {
+				record(name, originatingElements);
+				return filer.createSourceFile(name, originatingElements);
+			}
+			
+			@Override
+			public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+				record(name, originatingElements);
+				return filer.createClassFile(name, originatingElements);
+			}
+			
+			@Override
+			public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+				record(pkg + "/" + relativeName, originatingElements);
+				return filer.createResource(location, pkg, relativeName, originatingElements);
+			}
+			
+			@Override
+			public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+				return filer.getResource(location, pkg, relativeName);
+			}
+		}
+	}
+}
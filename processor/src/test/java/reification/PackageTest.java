@@ -58,4 +58,13 @@ public class PackageTest {
 		
 		assertCompilesAndGenerates(X, X$JFrame);
 	}
+	
+	@Test
+	public void packageInfoRoot() {
+		JavaFileObject packageInfo = inputSource("x.package-info", "package x;");
+		JavaFileObject X = inputSource("x.X", "package x; interface X<@Reify(String.class) T> {}");
+		JavaFileObject X$String = generatedSource("x.X$String", "package x; public interface X$String extends X<String> {}");
+		
+		assertCompilesAndGenerates(Arrays.asList(packageInfo, X), X$String);
+	}
 }
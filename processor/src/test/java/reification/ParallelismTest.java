@@ -0,0 +1,59 @@
+package reification;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+
+import static reification.TestFunctions.*;
+
+public class ParallelismTest {
+	
+	@Test
+	public void multipleTypesRenderedInParallel() {
+		JavaFileObject X = inputSource("X", "abstract class X<@Reify(String.class) T> { abstract T newT(); }");
+		JavaFileObject Y = inputSource("Y", "interface Y<@Reify(Integer.class) T> { Class<T> classT(); }");
+		JavaFileObject Z = inputSource("Z", "class Z<@Reify(StringBuilder.class) T> {}");
+		
+		JavaFileObject X$String = generatedSource(
+				"X$String",
+				lines(
+						"public class X$String extends X<String> {",
+						"    @Override                            ",
+						"    String newT() {                      ",
+						"        return new String();             ",
+						"    }                                    ",
+						"}                                        "
+				)
+		);
+		JavaFileObject Y$Integer = generatedSource(
+				"Y$Integer",
+				lines(
+						"public interface Y$Integer extends Y<Integer> {",
+						"    @Override                                  ",
+						"    default Class<Integer> classT() {          ",
+						"        return Integer.class;                  ",
+						"    }                                          ",
+						"}                                              "
+				)
+		);
+		JavaFileObject Z$StringBuilder = generatedSource(
+				"Z$StringBuilder",
+				"public class Z$StringBuilder extends Z<StringBuilder> {}"
+		);
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(X, Y, Z), option(ReificationProcessor.PARALLELISM_OPTION, 4))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String, Y$Integer, Z$StringBuilder);
+	}
+	
+	@Test
+	public void invalidParallelism() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T> {}");
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.PARALLELISM_OPTION, 0))
+				.failsToCompile()
+				.withErrorContaining(ReificationProcessor.PARALLELISM_OPTION);
+	}
+}
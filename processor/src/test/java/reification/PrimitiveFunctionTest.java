@@ -0,0 +1,271 @@
+package reification;
+
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static reification.TestFunctions.*;
+
+public class PrimitiveFunctionTest {
+	
+	@Test
+	public void primitiveVariantsGenerated() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"import java.util.Comparator;                                            ",
+						"import java.util.function.*;                                            ",
+						"class X<@Reify(int.class) T> {                                          ",
+						"    T value;                                                            ",
+						"    void forEach(Consumer<? super T> action) {                          ",
+						"        action.accept(value);                                           ",
+						"    }                                                                   ",
+						"    <R> R map(Function<? super T, ? extends R> mapper) {                ",
+						"        return mapper.apply(value);                                     ",
+						"    }                                                                   ",
+						"    boolean test(Predicate<T> predicate) {                              ",
+						"        return predicate.test(value);                                   ",
+						"    }                                                                   ",
+						"    T merge(T other, BinaryOperator<T> operator) {                      ",
+						"        return operator.apply(value, other);                            ",
+						"    }                                                                   ",
+						"    boolean less(T other, Comparator<T> comparator) {                   ",
+						"        return comparator.compare(value, other) < 0;                    ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$int = generatedSource(
+				"X$int",
+				lines(
+						"import java.util.Comparator;                                            ",
+						"import java.util.function.BinaryOperator;                               ",
+						"import java.util.function.Consumer;                                     ",
+						"import java.util.function.Function;                                     ",
+						"import java.util.function.IntBinaryOperator;                            ",
+						"import java.util.function.IntConsumer;                                  ",
+						"import java.util.function.IntFunction;                                  ",
+						"import java.util.function.IntPredicate;                                 ",
+						"import java.util.function.Predicate;                                    ",
+						"public class X$int {                                                    ",
+						"    int value;                                                          ",
+						"    void forEach(Consumer<? super Integer> action) {                    ",
+						"        forEachInt(action::accept);                                     ",
+						"    }                                                                   ",
+						"    void forEachInt(IntConsumer action) {                               ",
+						"        action.accept(value);                                           ",
+						"    }                                                                   ",
+						"    <R> R map(Function<? super Integer, ? extends R> mapper) {          ",
+						"        return mapInt(mapper::apply);                                   ",
+						"    }                                                                   ",
+						"    <R> R mapInt(IntFunction<? extends R> mapper) {                     ",
+						"        return mapper.apply(value);                                     ",
+						"    }                                                                   ",
+						"    boolean test(Predicate<Integer> predicate) {                        ",
+						"        return testInt(predicate::test);                                ",
+						"    }                                                                   ",
+						"    boolean testInt(IntPredicate predicate) {                           ",
+						"        return predicate.test(value);                                   ",
+						"    }                                                                   ",
+						"    int merge(int other, BinaryOperator<Integer> operator) {            ",
+						"        return mergeInt(other, operator::apply);                        ",
+						"    }                                                                   ",
+						"    int mergeInt(int other, IntBinaryOperator operator) {               ",
+						"        return operator.applyAsInt(value, other);                       ",
+						"    }                                                                   ",
+						"    boolean less(int other, Comparator<Integer> comparator) {           ",
+						"        return lessInt(other, comparator::compare);                     ",
+						"    }                                                                   ",
+						"    boolean lessInt(int other, IntBinaryOperator comparator) {          ",
+						"        return comparator.applyAsInt(value, other) < 0;                 ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void supplierOfLong() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(long.class) T> {                                     ",
+						"    default T orElse(java.util.function.Supplier<? extends T> other) {  ",
+						"        return other.get();                                             ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$long = generatedSource(
+				"X$long",
+				lines(
+						"import java.util.function.LongSupplier;                                 ",
+						"import java.util.function.Supplier;                                     ",
+						"public interface X$long {                                               ",
+						"    default long orElse(Supplier<? extends Long> other) {               ",
+						"        return orElseLong(other::get);                                  ",
+						"    }                                                                   ",
+						"    default long orElseLong(LongSupplier other) {                       ",
+						"        return other.getAsLong();                                       ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$long);
+	}
+	
+	@Test
+	public void functionsSupplyingReifiedType() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"import java.util.function.*;                                            ",
+						"class X<@Reify({double.class, boolean.class}) T> {                      ",
+						"    <U> T fold(U seed, Function<? super U, ? extends T> f) {            ",
+						"        return f.apply(seed);                                           ",
+						"    }                                                                   ",
+						"    <U> T combine(U a, String b, BiFunction<U, String, T> f) {          ",
+						"        return f.apply(a, b);                                           ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$double = generatedSource(
+				"X$double",
+				lines(
+						"import java.util.function.BiFunction;                                   ",
+						"import java.util.function.Function;                                     ",
+						"import java.util.function.ToDoubleBiFunction;                           ",
+						"import java.util.function.ToDoubleFunction;                             ",
+						"public class X$double {                                                 ",
+						"    <U> double fold(U seed, Function<? super U, ? extends Double> f) {  ",
+						"        return foldDouble(seed, f::apply);                              ",
+						"    }                                                                   ",
+						"    <U> double foldDouble(U seed, ToDoubleFunction<? super U> f) {      ",
+						"        return f.applyAsDouble(seed);                                   ",
+						"    }                                                                   ",
+						"    <U> double combine(U a, String b, BiFunction<U, String, Double> f) {",
+						"        return combineDouble(a, b, f::apply);                           ",
+						"    }                                                                   ",
+						"    <U> double combineDouble(U a, String b, ToDoubleBiFunction<U, String> f) {",
+						"        return f.applyAsDouble(a, b);                                   ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$boolean = generatedSource(
+				"X$boolean",
+				lines(
+						"import java.util.function.BiFunction;                                   ",
+						"import java.util.function.BiPredicate;                                  ",
+						"import java.util.function.Function;                                     ",
+						"import java.util.function.Predicate;                                    ",
+						"public class X$boolean {                                                ",
+						"    <U> boolean fold(U seed, Function<? super U, ? extends Boolean> f) {",
+						"        return foldBoolean(seed, f::apply);                             ",
+						"    }                                                                   ",
+						"    <U> boolean foldBoolean(U seed, Predicate<? super U> f) {           ",
+						"        return f.test(seed);                                            ",
+						"    }                                                                   ",
+						"    <U> boolean combine(U a, String b, BiFunction<U, String, Boolean> f) {",
+						"        return combineBoolean(a, b, f::apply);                          ",
+						"    }                                                                   ",
+						"    <U> boolean combineBoolean(U a, String b, BiPredicate<U, String> f) {",
+						"        return f.test(a, b);                                            ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$double, X$boolean);
+	}
+	
+	@Test
+	public void noPrimitiveVariants() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"import java.util.function.*;                                            ",
+						"class X<@Reify(int.class) T> {                                          ",
+						"    T value;                                                            ",
+						"    void passed(Consumer<T> action) {                                   ",
+						"        java.util.Collections.singleton(value).forEach(action);         ",
+						"    }                                                                   ",
+						"    void unrelated(Consumer<String> action) {                           ",
+						"        action.accept(\"\");                                            ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$int = generatedSource(
+				"X$int",
+				lines(
+						"import java.util.function.Consumer;                                     ",
+						"public class X$int {                                                    ",
+						"    int value;                                                          ",
+						"    void passed(Consumer<Integer> action) {                             ",
+						"        java.util.Collections.singleton(value).forEach(action);         ",
+						"    }                                                                   ",
+						"    void unrelated(Consumer<String> action) {                           ",
+						"        action.accept(\"\");                                            ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void primitiveVariantsCallable() {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public class X<@Reify(double.class) T> {                                ",
+						"    private T value;                                                    ",
+						"    public void update(java.util.function.UnaryOperator<T> operator) {  ",
+						"        value = operator.apply(value);                                  ",
+						"    }                                                                   ",
+						"    public void reset() {                                               ",
+						"        update(v -> value);                                             ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Y = inputSource(
+				"y.Y",
+				lines(
+						"package y;                                                              ",
+						"class Y {                                                               ",
+						"    void f(x.X$double x, java.util.function.UnaryOperator<Double> op) { ",
+						"        x.update(d -> d * 2);                                           ",
+						"        x.updateDouble(d -> d * 2);                                     ",
+						"        x.update(op);                                                   ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		Compilation compilation = compile(Arrays.asList(X, Y));
+		assertThat(compilation).succeededWithoutWarnings();
+	}
+}
@@ -0,0 +1,150 @@
+package reification;
+
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static reification.TestFunctions.*;
+
+public class ReproducibilityTest {
+	
+	private final JavaFileObject I = inputSource(
+			"i.I",
+			lines(
+					"package i;                     ",
+					"public interface I<T> {        ",
+					"    T newT(String s);          ",
+					"    Class<T> classT();         ",
+					"}                              "
+			)
+	);
+	
+	private final JavaFileObject B = inputSource(
+			"b.B",
+			lines(
+					"package b;                                         ",
+					"public abstract class B<T> implements i.I<T> {     ",
+					"    public abstract T newT();                      ",
+					"}                                                  "
+			)
+	);
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                                 ",
+					"public abstract class X<@Reify(StringBuilder.class) T> extends b.B<T> {    ",
+					"}                                                                          "
+			)
+	);
+	
+	private final JavaFileObject Y = inputSource(
+			"y.Y",
+			lines(
+					"package y;                                                                 ",
+					"public abstract class Y<@Reify(String.class) T> extends b.B<T> {           ",
+					"    public abstract T newT(char[] value);                                  ",
+					"}                                                                          "
+			)
+	);
+	
+	private final JavaFileObject Z = inputSource(
+			"Z",
+			lines(
+					"public interface Z<@Reify(StringBuilder.class) T> extends i.I<T> {",
+					"}                                                                 "
+			)
+	);
+	
+	// Non-ASCII characters are only used in member names, as file names cannot hold them on every platform. The input is
+	// escaped as well, so that it doesn't depend on the encoding that the compiler reads it with.
+	private final JavaFileObject U = inputSource(
+			"u.U",
+			lines(
+					"package u;                                                 ",
+					"public abstract class U<@Reify(StringBuilder.class) T> {   ",
+					"    public abstract T newT(String \\u00e9t\\u00e9);        ",
+					"}                                                          "
+			)
+	);
+	
+	private final List<JavaFileObject> sources = Arrays.asList(I, B, X, Y, Z, U);
+	
+	@Test
+	public void generatedSourcesIndependentOfOrderLocaleAndParallelism() {
+		Map<String, String> expectedDigests = digests(compileWith(sources, "1"));
+		assertEquals(4, expectedDigests.size());
+		
+		Locale defaultLocale = Locale.getDefault();
+		Random random = new Random(0);
+		try {
+			for (Locale locale : Arrays.asList(new Locale("tr", "TR"), new Locale("ar", "EG"), Locale.GERMANY)) {
+				Locale.setDefault(locale);
+				
+				List<JavaFileObject> shuffledSources = new ArrayList<>(sources);
+				Collections.shuffle(shuffledSources, random);
+				
+				assertEquals(expectedDigests, digests(compileWith(shuffledSources, "4")));
+			}
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+	
+	@Test
+	public void generatedSourcesAreCanonical() throws IOException {
+		Compilation compilation = compileWith(sources, "1");
+		for (JavaFileObject generatedSource : compilation.generatedSourceFiles()) {
+			String source = new String(bytes(generatedSource), "US-ASCII");
+			for (char c : source.toCharArray()) {
+				assertTrue(String.format("Unexpected character %04x in %s", (int) c, generatedSource.getName()), c < 0x80 && c != '\r');
+			}
+			assertTrue(source.startsWith("// Generated by the '@reification.Reify'-annotation processor from '"));
+		}
+		assertTrue(contents(compilation, "/SOURCE_OUTPUT/u/U$StringBuilder.java").contains("newT(String \\u00e9t\\u00e9)"));
+	}
+	
+	private static Compilation compileWith(List<JavaFileObject> sources, String parallelism) {
+		Compilation compilation = compile(sources, option(ReificationProcessor.PARALLELISM_OPTION, parallelism));
+		assertThat(compilation).succeeded();
+		return compilation;
+	}
+	
+	private static Map<String, String> digests(Compilation compilation) {
+		Map<String, String> digests = new HashMap<>();
+		for (JavaFileObject generatedSource : compilation.generatedSourceFiles()) {
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes(generatedSource));
+				digests.put(generatedSource.toUri().getPath(), Base64.getEncoder().encodeToString(digest));
+			} catch (IOException | NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return digests;
+	}
+	
+	private static String contents(Compilation compilation, String path) throws IOException {
+		for (JavaFileObject generatedSource : compilation.generatedSourceFiles()) {
+			if (generatedSource.toUri().getPath().equals(path)) {
+				return new String(bytes(generatedSource), "US-ASCII");
+			}
+		}
+		throw new AssertionError(String.format("No source '%s' was generated", path));
+	}
+	
+	private static byte[] bytes(JavaFileObject fileObject) throws IOException {
+		try (InputStream inputStream = fileObject.openInputStream()) {
+			return ByteStreams.toByteArray(inputStream);
+		}
+	}
+}
@@ -1,19 +1,585 @@
 package reification;
 
+import com.google.testing.compile.Compilation;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
 
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static org.junit.Assume.assumeFalse;
 import static reification.TestFunctions.*;
 
 public class SinglePrimitiveTypeTest {
 	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
 	@Test
 	public void classWithSingleInt() {
 		JavaFileObject X = inputSource("X", "class X<@Reify(int.class) T> {}");
+		JavaFileObject X$int = generatedSource("X$int", "public class X$int {}");
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void classWithPrimitiveStorage() {
+		assumeSuppressedWarningsNotReported();
+		
+		JavaFileObject Ring = inputSource(
+				"x.Ring",
+				lines(
+						"package x;                                                              ",
+						"import java.util.Arrays;                                                ",
+						"public class Ring<@Reify(int.class) T> {                                ",
+						"    private final T[] elements;                                         ",
+						"    private int size;                                                   ",
+						"    @SuppressWarnings(\"unchecked\")                                    ",
+						"    public Ring(int capacity) {                                         ",
+						"        elements = (T[]) new Object[capacity];                          ",
+						"    }                                                                   ",
+						"    public void add(T element) {                                        ",
+						"        elements[size++ % elements.length] = element;                   ",
+						"    }                                                                   ",
+						"    public T get(int index) {                                           ",
+						"        return elements[index % elements.length];                       ",
+						"    }                                                                   ",
+						"    public T[] toArray() {                                              ",
+						"        return Arrays.copyOf(elements, Math.min(size, elements.length));",
+						"    }                                                                   ",
+						"    public Ring<T> copy() {                                             ",
+						"        Ring<T> copy = new Ring<>(elements.length);                     ",
+						"        for (T element : toArray()) {                                   ",
+						"            copy.add(element);                                          ",
+						"        }                                                               ",
+						"        return copy;                                                    ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Ring$int = generatedSource(
+				"x.Ring$int",
+				lines(
+						"package x;                                                              ",
+						"import java.util.Arrays;                                                ",
+						"public class Ring$int {                                                 ",
+						"    private final int[] elements;                                       ",
+						"    private int size;                                                   ",
+						"    @SuppressWarnings(\"unchecked\")                                    ",
+						"    public Ring$int(int capacity) {                                     ",
+						"        elements = new int[capacity];                                   ",
+						"    }                                                                   ",
+						"    public void add(int element) {                                      ",
+						"        elements[size++ % elements.length] = element;                   ",
+						"    }                                                                   ",
+						"    public int get(int index) {                                         ",
+						"        return elements[index % elements.length];                       ",
+						"    }                                                                   ",
+						"    public int[] toArray() {                                            ",
+						"        return Arrays.copyOf(                                           ",
+						"                elements, Math.min(size, elements.length));             ",
+						"    }                                                                   ",
+						"    public Ring$int copy() {                                            ",
+						"        Ring$int copy = new Ring$int(elements.length);                  ",
+						"        for (int element : toArray()) {                                 ",
+						"            copy.add(element);                                          ",
+						"        }                                                               ",
+						"        return copy;                                                    ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(Ring)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(Ring$int);
+	}
+	
+	@Test
+	public void interfaceWithAutoImplementedMethods() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(double.class) T> {                                   ",
+						"    T get();                                                            ",
+						"    default T getOrNew() {                                              ",
+						"        return get();                                                   ",
+						"    }                                                                   ",
+						"    T newT();                                                           ",
+						"    Class<T> classT();                                                  ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$double = generatedSource(
+				"X$double",
+				lines(
+						"public interface X$double {                                             ",
+						"    double get();                                                       ",
+						"    default double getOrNew() {                                         ",
+						"        return get();                                                   ",
+						"    }                                                                   ",
+						"    default double newT() {                                             ",
+						"        return 0d;                                                      ",
+						"    }                                                                   ",
+						"    default Class<Double> classT() {                                    ",
+						"        return double.class;                                            ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$double);
+	}
+	
+	@Test
+	public void staticMembersImported() {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public final class X<@Reify(long.class) T> implements Runnable {        ",
+						"    static final int LIMIT = 3;                                         ",
+						"    private final java.util.List<T> values = new java.util.ArrayList<>();",
+						"    public void run() {                                                 ",
+						"        while (values.size() > LIMIT) {                                 ",
+						"            values.remove(0);                                           ",
+						"        }                                                               ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$long = generatedSource(
+				"x.X$long",
+				lines(
+						"package x;                                                              ",
+						"import static x.X.LIMIT;                                                ",
+						"import java.util.List;                                                  ",
+						"public class X$long implements Runnable {                               ",
+						"    private final List<Long> values = new java.util.ArrayList<>();",
+						"    public void run() {                                                 ",
+						"        while (values.size() > LIMIT) {                                 ",
+						"            values.remove(0);                                           ",
+						"        }                                                               ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$long);
+	}
+	
+	@Test
+	public void specializationUsable() {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public class X<@Reify(int.class) T> {                                   ",
+						"    private T value;                                                    ",
+						"    public T get() {                                                    ",
+						"        return value;                                                   ",
+						"    }                                                                   ",
+						"    public void set(T value) {                                          ",
+						"        this.value = value;                                             ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Y = inputSource(
+				"y.Y",
+				lines(
+						"package y;                                                              ",
+						"class Y {                                                               ",
+						"    int f(x.X$int x) {                                                  ",
+						"        x.set(1);                                                       ",
+						"        return x.get() + 1;                                             ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		Compilation compilation = compile(Arrays.asList(X, Y));
+		assertThat(compilation).succeededWithoutWarnings();
+	}
+	
+	@Test
+	public void specializationInWrappedEnvironment() throws IOException {
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public class X<@Reify(int.class) T> {                                   ",
+						"    private T value;                                                    ",
+						"    public T get() {                                                    ",
+						"        return value;                                                   ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$int = generatedSource(
+				"x.X$int",
+				lines(
+						"package x;                                                              ",
+						"public class X$int {                                                    ",
+						"    private int value;                                                  ",
+						"    public int get() {                                                  ",
+						"        return value;                                                   ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		Path sourcePath = temporaryFolder.getRoot().toPath();
+		Path sourceFile = sourcePath.resolve("x/X.java");
+		Files.createDirectories(sourceFile.getParent());
+		Files.write(sourceFile, X.getCharContent(true).toString().getBytes(StandardCharsets.UTF_8));
+		
+		assertAboutSourcesProcessedWith(new WrappedEnvironmentProcessor(), Collections.singletonList(X), "-sourcepath", sourcePath.toString())
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void specializationInWrappedEnvironmentWithoutSourcePath() {
+		assumeFalse("ECJ names the source file of an element in any environment", eclipseCompiler());
+		JavaFileObject X = inputSource("x.X", "package x; public class X<@Reify(int.class) T> {}");
+		
+		assertAboutSourcesProcessedWith(new WrappedEnvironmentProcessor(), Collections.singletonList(X))
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("requires the source of type 'x.X', which is not available");
+	}
+	
+	@Test
+	public void specializationInHolder() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(char.class) T> {}");
+		JavaFileObject X$Reified = generatedSource(
+				"X$Reified",
+				lines(
+						"public final class X$Reified {                                          ",
+						"    private X$Reified() {                                               ",
+						"    }                                                                   ",
+						"    public static class X$char {                                        ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.HOLDERS_OPTION, true))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Reified);
+	}
+	
+	@Test
+	public void multipleTypeParameters() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(int.class) T, U> {}");
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("with multiple type variables is " + Message.NOT_YET_IMPLEMENTED);
+	}
+	
+	@Test
+	public void superclassWithTypeParameter() {
+		JavaFileObject Y = inputSource(
+				"x.Y",
+				lines(
+						"package x;                                                              ",
+						"public abstract class Y<T> extends Z implements Cloneable, java.util.function.Supplier<T> {",
+						"    public T get() {                                                    ",
+						"        return null;                                                    ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject Z = inputSource("x.Z", "package x; public abstract class Z implements Runnable {}");
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                                                              ",
+						"public class X<@Reify(int.class) T> extends Y<T> implements java.io.Closeable {",
+						"    public void run() {                                                 ",
+						"    }                                                                   ",
+						"    public void close() {                                               ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$int = generatedSource(
+				"x.X$int",
+				lines(
+						"package x;                                                              ",
+						"import java.io.Closeable;                                               ",
+						"public class X$int extends Z implements Closeable, Cloneable {          ",
+						"    public void run() {                                                 ",
+						"    }                                                                   ",
+						"    public void close() {                                               ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(X, Y, Z))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void memberType() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(int.class) T> { class Y {} }");
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("with member type 'Y' is " + Message.NOT_YET_IMPLEMENTED);
+	}
+	
+	@Test
+	public void overloadsOfSameArity() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"import java.util.*;                                             ",
+						"class X<@Reify(int.class) T> {                                  ",
+						"    String m(T value) {                                         ",
+						"        return \"T\";                                            ",
+						"    }                                                           ",
+						"    String m(String value) {                                    ",
+						"        return \"String\";                                       ",
+						"    }                                                           ",
+						"    String m(java.util.List<T> values, String... more) {        ",
+						"        return \"List\";                                         ",
+						"    }                                                           ",
+						"    String m(Set<String> values, int more[]) {                  ",
+						"        return \"Set\";                                          ",
+						"    }                                                           ",
+						"}                                                               "
+				)
+		);
+		JavaFileObject X$int = generatedSource(
+				"X$int",
+				lines(
+						"import java.util.List;                                          ",
+						"import java.util.Set;                                           ",
+						"public class X$int {                                            ",
+						"    String m(int value) {                                       ",
+						"        return \"T\";                                            ",
+						"    }                                                           ",
+						"    String m(String value) {                                    ",
+						"        return \"String\";                                       ",
+						"    }                                                           ",
+						"    String m(List<Integer> values, String... more) {            ",
+						"        return \"List\";                                         ",
+						"    }                                                           ",
+						"    String m(Set<String> values, int[] more) {                  ",
+						"        return \"Set\";                                          ",
+						"    }                                                           ",
+						"}                                                               "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X)
+				.compilesWithoutError()
+				.and()
+				.generatesSources(X$int);
+	}
+	
+	@Test
+	public void shadowingMethodTypeParameter() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"class X<@Reify(int.class) T> {                  ",
+						"    <T> T identity(T value) {                   ",
+						"        return value;                           ",
+						"    }                                           ",
+						"}                                               "
+				)
+		);
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("with type variable 'T' shadowed in '")
+				.and()
+				.withErrorContaining("identity(T)");
+	}
+	
+	@Test
+	public void shadowingVariables() {
+		String[] declarations = {
+				"int T = 0; return T;",
+				"for (String T : new String[0]) { return T.length(); } return 0;",
+				"java.util.function.IntSupplier s = () -> { int[] T = {}; return T.length; }; return s.getAsInt();",
+				"java.util.function.IntUnaryOperator f = T -> T; return f.applyAsInt(0);",
+				"java.util.function.IntBinaryOperator f = (T, U) -> U; return f.applyAsInt(0, 1);",
+				"return new Object() { public <T> T n(T t) { return t; } }.n(0);",
+				"return new Object() { public <U, T extends U> U n(T t) { return t; } }.<Object, Integer>n(0).hashCode();",
+				"class L<T> { T t; } return new L<String>().t.length();"
+		};
+		for (String declaration : declarations) {
+			JavaFileObject X = inputSource(
+					"X",
+					lines(
+							"class X<@Reify(int.class) T> {                  ",
+							"    T value;                                    ",
+							"    int m() {                                   ",
+							"        " + declaration,
+							"    }                                           ",
+							"}                                               "
+					)
+			);
+			assertAboutProcessedSourceThat(X)
+					.failsToCompile()
+					.withErrorCount(1)
+					.withErrorContaining("with type variable 'T' shadowed in '")
+					.and()
+					.withErrorContaining("m()");
+		}
+	}
+	
+	@Test
+	public void shadowingField() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"class X<@Reify(int.class) T> {                  ",
+						"    String T;                                   ",
+						"}                                               "
+				)
+		);
+		assertAboutProcessedSourceThat(X)
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("with type variable 'T' shadowed in 'T' is " + Message.NOT_SUPPORTED);
+	}
+	
+	@Test
+	public void typeParameterNotShadowed() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"import java.util.*;                                                  ",
+						"class X<@Reify(int.class) T> {                                       ",
+						"    <U extends Comparable<U>> T m(U u, Map<U, T> map, T[] values) {  ",
+						"        T[] copy = values;                                           ",
+						"        List<T> list = new ArrayList<T>(map.values());               ",
+						"        T[] n = new Object() { public <V> T[] n(V v) { return copy; } }.n(u);",
+						"        return n.length < list.size() ? copy[0] : map.get(u);        ",
+						"    }                                                                ",
+						"}                                                                    "
+				)
+		);
 		assertAboutProcessedSourceThat(X)
+				.compilesWithoutError();
+	}
+	
+	@Test
+	public void classFiles() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(int.class) T> {}");
+		assertAboutProcessedSourceThat(X, option(ReificationProcessor.CLASS_FILES_OPTION, true))
 				.failsToCompile()
 				.withErrorCount(1)
-				.withErrorContaining(Message.NOT_YET_IMPLEMENTED);
+				.withErrorContaining("is " + Message.NOT_SUPPORTED + " with option");
+	}
+	
+	/**
+	 * Runs the processor in an environment that delegates to the one of the compiler, as the ones of build tools (like
+	 * Gradle) do.
+	 */
+	private static class WrappedEnvironmentProcessor extends AbstractProcessor {
+		private final Processor processor = new ReificationProcessor();
+		
+		@Override
+		public synchronized void init(ProcessingEnvironment processingEnv) {
+			super.init(processingEnv);
+			processor.init(new WrappedProcessingEnvironment(processingEnv));
+		}
+		
+		@Override
+		public Set<String> getSupportedOptions() {
+			return processor.getSupportedOptions();
+		}
+		
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return processor.getSupportedAnnotationTypes();
+		}
+		
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return processor.getSupportedSourceVersion();
+		}
+		
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			return processor.process(annotations, roundEnv);
+		}
+	}
+	
+	private static class WrappedProcessingEnvironment implements ProcessingEnvironment {
+		private final ProcessingEnvironment delegate;
+		
+		WrappedProcessingEnvironment(ProcessingEnvironment delegate) {
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public Map<String, String> getOptions() {
+			return delegate.getOptions();
+		}
+		
+		@Override
+		public Messager getMessager() {
+			return delegate.getMessager();
+		}
+		
+		@Override
+		public Filer getFiler() {
+			return delegate.getFiler();
+		}
+		
+		@Override
+		public Elements getElementUtils() {
+			return delegate.getElementUtils();
+		}
+		
+		@Override
+		public Types getTypeUtils() {
+			return delegate.getTypeUtils();
+		}
+		
+		@Override
+		public SourceVersion getSourceVersion() {
+			return delegate.getSourceVersion();
+		}
+		
+		@Override
+		public Locale getLocale() {
+			return delegate.getLocale();
+		}
 	}
 }
@@ -40,4 +40,12 @@ public class SingleReferenceTypeTest {
 		
 		assertCompilesAndGenerates(X, X$String);
 	}
+	
+	@Test
+	public void nestedTypeArgument() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(Character.UnicodeBlock.class) T> {}");
+		JavaFileObject X$UnicodeBlock = generatedSource("X$UnicodeBlock", "public class X$UnicodeBlock extends X<Character.UnicodeBlock> {}");
+		
+		assertCompilesAndGenerates(X, X$UnicodeBlock);
+	}
 }
@@ -0,0 +1,84 @@
+package reification;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static reification.TestFunctions.*;
+
+public class SpecializationTest {
+	
+	private final String specializationsOption = option(ReificationProcessor.SPECIALIZATIONS_OPTION, true);
+	
+	@Test
+	public void abstractClassSpecialized() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"abstract class X<@Reify(StringBuilder.class) T> {                       ",
+						"    abstract T newT();                                                  ",
+						"    abstract Class<T> classT();                                         ",
+						"    String describe() {                                                 ",
+						"        T t = newT();                                                   ",
+						"        return t + \"\";                                                 ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$StringBuilder = generatedSource(
+				"X$StringBuilder",
+				lines(
+						"public class X$StringBuilder {                                          ",
+						"    StringBuilder newT() {                                              ",
+						"        return new StringBuilder();                                     ",
+						"    }                                                                   ",
+						"    Class<StringBuilder> classT() {                                     ",
+						"        return StringBuilder.class;                                     ",
+						"    }                                                                   ",
+						"    String describe() {                                                 ",
+						"        StringBuilder t = newT();                                       ",
+						"        return t + \"\";                                                 ",
+						"    }                                                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, specializationsOption)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$StringBuilder);
+	}
+	
+	@Test
+	public void abstractMethodsKept() {
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"abstract class X<@Reify(Integer.class) T> implements Runnable {         ",
+						"    abstract T newT(int value);                                         ",
+						"}                                                                       "
+				)
+		);
+		JavaFileObject X$Integer = generatedSource(
+				"X$Integer",
+				lines(
+						"public abstract class X$Integer implements Runnable {                   ",
+						"    abstract Integer newT(int value);                                   ",
+						"}                                                                       "
+				)
+		);
+		
+		assertAboutProcessedSourceThat(X, specializationsOption)
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$Integer);
+	}
+	
+	@Test
+	public void classFilesRejected() {
+		JavaFileObject X = inputSource("X", "class X<@Reify(String.class) T> {}");
+		assertAboutProcessedSourceThat(X, specializationsOption, option(ReificationProcessor.CLASS_FILES_OPTION, true))
+				.failsToCompile()
+				.withErrorContaining("cannot be combined with option");
+	}
+}
@@ -1,28 +1,137 @@
 package reification;
 
+import com.google.testing.compile.Compilation;
 import com.google.testing.compile.CompileTester;
+import com.google.testing.compile.Compiler;
 import com.google.testing.compile.JavaFileObjects;
 
+import javax.annotation.processing.Processor;
 import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertAbout;
-import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
 import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static org.junit.Assume.assumeFalse;
 
 public class TestFunctions {
 	
-	public static CompileTester assertAboutProcessedSourceThat(JavaFileObject fileObject) {
-		// Check that file compiles without warnings when annotation processing is not performed.
-		assertAbout(javaSource()).that(fileObject).compilesWithoutWarnings();
-		
-		return assertAbout(javaSource()).that(fileObject).processedWith(new ReificationProcessor());
+	/**
+	 * System property selecting the compiler to run the tests against: 'javac' (the default) or 'ecj'.
+	 */
+	public static final String COMPILER_PROPERTY = "reification.test.compiler";
+	
+	public static CompileTester assertAboutProcessedSourceThat(JavaFileObject fileObject, String... compilerOptions) {
+		return assertAboutProcessedSourcesThat(Collections.singletonList(fileObject), compilerOptions);
+	}
+	
+	public static CompileTester assertAboutProcessedSourcesThat(Iterable<JavaFileObject> fileObjects, String... compilerOptions) {
+		return assertAboutSourcesProcessedWith(new ReificationProcessor(), fileObjects, compilerOptions);
 	}
 	
-	public static CompileTester assertAboutProcessedSourcesThat(Iterable<JavaFileObject> fileObjects) {
-		// Check that file compiles without warnings when annotation processing is not performed.
-		assertAbout(javaSources()).that(fileObjects).compilesWithoutWarnings();
+	public static CompileTester assertAboutSourcesProcessedWith(Processor processor, Iterable<JavaFileObject> fileObjects, String... compilerOptions) {
+		// Options for the processor are left out when annotation processing is not performed.
+		List<String> nonProcessorOptions = new ArrayList<>();
+		for (String compilerOption : compilerOptions) {
+			if (!compilerOption.startsWith("-A")) {
+				nonProcessorOptions.add(compilerOption);
+			}
+		}
 		
-		return assertAbout(javaSources()).that(fileObjects).processedWith(new ReificationProcessor());
+		String compiler = compiler();
+		switch (compiler) {
+			case "javac":
+				// Check that file compiles without warnings when annotation processing is not performed.
+				assertAbout(javaSources()).that(fileObjects).withCompilerOptions(nonProcessorOptions).compilesWithoutWarnings();
+				
+				return assertAbout(javaSources()).that(fileObjects)
+						.withCompilerOptions(compilerOptions)
+						.processedWith(processor);
+			case "ecj":
+				// ECJ only compiles sources that exist as files.
+				List<JavaFileObject> files = writeToFiles(fileObjects);
+				
+				// Check that file compiles without warnings when annotation processing is not performed.
+				nonProcessorOptions.add("-proc:none");
+				new CompilationTester(ecj(nonProcessorOptions.toArray(new String[0])), files).compilesWithoutWarnings();
+				
+				return new CompilationTester(ecj(compilerOptions).withProcessors(processor), files);
+			default:
+				throw new IllegalStateException(String.format("Unknown compiler '%s'", compiler));
+		}
+	}
+	
+	/**
+	 * Compiles the given sources with the processor, returning the result for inspection rather than asserting on it.
+	 */
+	public static Compilation compile(Iterable<JavaFileObject> fileObjects, String... compilerOptions) {
+		String compiler = compiler();
+		switch (compiler) {
+			case "javac":
+				return Compiler.javac()
+						.withOptions(Arrays.asList(compilerOptions))
+						.withProcessors(new ReificationProcessor())
+						.compile(fileObjects);
+			case "ecj":
+				return ecj(compilerOptions).withProcessors(new ReificationProcessor()).compile(writeToFiles(fileObjects));
+			default:
+				throw new IllegalStateException(String.format("Unknown compiler '%s'", compiler));
+		}
+	}
+	
+	/**
+	 * Skips the current test when running against ECJ, which reports warnings through the compiler API before filtering
+	 * out the ones that are suppressed with '@SuppressWarnings'.
+	 */
+	public static void assumeSuppressedWarningsNotReported() {
+		assumeFalse("ECJ reports suppressed warnings", eclipseCompiler());
+	}
+	
+	/**
+	 * Returns true when running against ECJ rather than javac.
+	 */
+	public static boolean eclipseCompiler() {
+		return compiler().equals("ecj");
+	}
+	
+	private static String compiler() {
+		return System.getProperty(COMPILER_PROPERTY, "javac");
+	}
+	
+	private static Compiler ecj(String... compilerOptions) {
+		// Compile at the language level of the processor, without the optional warnings that javac doesn't report by
+		// default either.
+		List<String> options = new ArrayList<>(Arrays.asList("-8", "-warn:-unusedImport,-typeHiding,-finalBound"));
+		options.addAll(Arrays.asList(compilerOptions));
+		return Compiler.compiler(new EclipseCompilerAdapter()).withOptions(options);
+	}
+	
+	private static List<JavaFileObject> writeToFiles(Iterable<JavaFileObject> fileObjects) {
+		try {
+			Path directory = Files.createTempDirectory("reification");
+			List<JavaFileObject> files = new ArrayList<>();
+			for (JavaFileObject fileObject : fileObjects) {
+				Path file = directory.resolve(fileObject.toUri().getPath().replaceFirst("^/", ""));
+				Files.createDirectories(file.getParent());
+				Files.write(file, fileObject.getCharContent(true).toString().getBytes(StandardCharsets.UTF_8));
+				file.toFile().deleteOnExit();
+				files.add(JavaFileObjects.forResource(file.toUri().toURL()));
+			}
+			return files;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	public static String option(String key, Object value) {
+		return String.format("-A%s=%s", key, value);
 	}
 	
 	public static JavaFileObject inputSource(String fullyQualifiedName, String source) {
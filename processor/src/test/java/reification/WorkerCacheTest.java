@@ -0,0 +1,185 @@
+package reification;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static reification.TestFunctions.*;
+
+public class WorkerCacheTest {
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	private final JavaFileObject X = inputSource(
+			"x.X",
+			lines(
+					"package x;                                                      ",
+					"public abstract class X<@Reify(String.class) T> extends b.B<T> {",
+					"}                                                               "
+			)
+	);
+	
+	private final JavaFileObject X$String = generatedSource(
+			"x.X$String",
+			lines(
+					"package x;                               ",
+					"public class X$String extends X<String> {",
+					"    @Override                            ",
+					"    public String newT() {               ",
+					"        return new String();             ",
+					"    }                                    ",
+					"}                                        "
+			)
+	);
+	
+	private final JavaFileObject X$StringWithClassT = generatedSource(
+			"x.X$String",
+			lines(
+					"package x;                               ",
+					"public class X$String extends X<String> {",
+					"    @Override                            ",
+					"    public Class<String> classT() {      ",
+					"        return String.class;             ",
+					"    }                                    ",
+					"                                         ",
+					"    @Override                            ",
+					"    public String newT() {               ",
+					"        return new String();             ",
+					"    }                                    ",
+					"}                                        "
+			)
+	);
+	
+	@Before
+	public void clearWorkerCache() {
+		WorkerCache.clear();
+	}
+	
+	@Test
+	public void classpathSupertypeReusedAcrossCompilations() throws IOException {
+		File classpath = compileToClasspath(
+				"package b;                   ",
+				"public abstract class B<T> { ",
+				"    public abstract T newT();",
+				"}                            "
+		);
+		
+		assertAboutProcessedSourceThat(X, options(classpath))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Worker cache: 0 hits");
+		
+		// `B` is looked up in the cache, so `Object` doesn't need to be resolved.
+		assertAboutProcessedSourceThat(X, options(classpath))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Worker cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void changedClasspathSupertypeInvalidated() throws IOException {
+		File classpath = compileToClasspath(
+				"package b;                   ",
+				"public abstract class B<T> { ",
+				"    public abstract T newT();",
+				"}                            "
+		);
+		
+		assertAboutProcessedSourceThat(X, options(classpath))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String);
+		
+		compileTo(
+				classpath,
+				"package b;                            ",
+				"public abstract class B<T> {          ",
+				"    public abstract Class<T> classT();",
+				"    public abstract T newT();         ",
+				"}                                     "
+		);
+		
+		// `B` misses and is resolved again, while `Object` still hits.
+		assertAboutProcessedSourceThat(X, options(classpath))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$StringWithClassT)
+				.withNoteContaining("Worker cache: 1 hits, 1 misses");
+	}
+	
+	@Test
+	public void sourceSupertypeNotCached() {
+		JavaFileObject B = inputSource(
+				"b.B",
+				lines(
+						"package b;                   ",
+						"public abstract class B<T> { ",
+						"    public abstract T newT();",
+						"}                            "
+				)
+		);
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(B, X), option(ReificationProcessor.WORKER_CACHE_OPTION, 100))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Worker cache: 0 hits, 1 misses");
+		
+		// Only `Object` is looked up (and hit), as `B` has no origin.
+		assertAboutProcessedSourcesThat(Arrays.asList(B, X), option(ReificationProcessor.WORKER_CACHE_OPTION, 100))
+				.compilesWithoutWarnings()
+				.and()
+				.generatesSources(X$String)
+				.withNoteContaining("Worker cache: 1 hits, 0 misses");
+	}
+	
+	@Test
+	public void invalidWorkerCacheSize() {
+		JavaFileObject Y = inputSource("Y", "abstract class Y<@Reify(String.class) T> {}");
+		
+		assertAboutProcessedSourceThat(Y, option(ReificationProcessor.WORKER_CACHE_OPTION, 0))
+				.failsToCompile()
+				.withErrorContaining("Option 'reification.workerCache' must be a positive integer but was '0'");
+	}
+	
+	private File compileToClasspath(String... sourceLines) throws IOException {
+		File directory = temporaryFolder.newFolder();
+		compileTo(directory, sourceLines);
+		return directory;
+	}
+	
+	private void compileTo(File directory, String... sourceLines) throws IOException {
+		File source = new File(temporaryFolder.newFolder(), "B.java");
+		Files.write(source.toPath(), lines(sourceLines).getBytes(StandardCharsets.UTF_8));
+		
+		// Keep the modification time apart from the one of the previous version.
+		File classFile = new File(directory, "b/B.class");
+		long lastModified = classFile.lastModified();
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", directory.getPath(), source.getPath());
+		assertEquals(0, result);
+		if (lastModified != 0) {
+			classFile.setLastModified(lastModified + 1000);
+		}
+	}
+	
+	private static String[] options(File classpath) {
+		return new String[]{
+				"-classpath",
+				classpath.getPath() + File.pathSeparator + System.getProperty("java.class.path"),
+				option(ReificationProcessor.WORKER_CACHE_OPTION, 100)
+		};
+	}
+}
@@ -61,6 +61,8 @@ public class ImplementedMethodsTest {
 	
 	@Test
 	public void classMethodWithTypeParameter() {
+		assumeSuppressedWarningsNotReported();
+		
 		JavaFileObject X = inputSource(
 				"X",
 				lines(
@@ -72,6 +74,7 @@ public class ImplementedMethodsTest {
 		JavaFileObject X$String = generatedSource(
 				"X$String",
 				lines(
+						"@SuppressWarnings(\"unchecked\")         ",
 						"public class X$String extends X<String> {",
 						"    @Override                            ",
 						"    Class<String> classT() {             ",
@@ -86,6 +89,8 @@ public class ImplementedMethodsTest {
 	
 	@Test
 	public void classMethodWithShadowingTypeParameter() {
+		assumeSuppressedWarningsNotReported();
+		
 		JavaFileObject X = inputSource(
 				"X",
 				lines(
@@ -97,6 +102,7 @@ public class ImplementedMethodsTest {
 		JavaFileObject X$String = generatedSource(
 				"X$String",
 				lines(
+						"@SuppressWarnings(\"unchecked\")         ",
 						"public class X$String extends X<String> {",
 						"    @Override                            ",
 						"    Class<String> classT() {             ",
@@ -111,6 +117,8 @@ public class ImplementedMethodsTest {
 	
 	@Test
 	public void classMethodWithShadowingTypeParameterWithinBounds() {
+		assumeSuppressedWarningsNotReported();
+		
 		JavaFileObject X = inputSource(
 				"X",
 				lines(
@@ -122,6 +130,7 @@ public class ImplementedMethodsTest {
 		JavaFileObject X$String = generatedSource(
 				"X$String",
 				lines(
+						"@SuppressWarnings(\"unchecked\")         ",
 						"public class X$String extends X<String> {",
 						"    @Override                            ",
 						"    Class<String> classT() {             ",
@@ -136,6 +145,8 @@ public class ImplementedMethodsTest {
 	
 	@Test
 	public void classMethodWithShadowingTypeParameterOutsideBounds() {
+		assumeSuppressedWarningsNotReported();
+		
 		// Not sure why this is valid Java, but apparently it is.
 		JavaFileObject X = inputSource(
 				"X",
@@ -148,6 +159,7 @@ public class ImplementedMethodsTest {
 		JavaFileObject X$String = generatedSource(
 				"X$String",
 				lines(
+						"@SuppressWarnings(\"unchecked\")         ",
 						"public class X$String extends X<String> {",
 						"    @Override                            ",
 						"    Class<String> classT() {             ",
@@ -568,6 +580,243 @@ public class ImplementedMethodsTest {
 		assertCompilesAndGenerates(Arrays.asList(U, X), X$String);
 	}
 	
+	@Test
+	public void newInstanceMethodWithSubtypeParameter() {
+		JavaFileObject U = inputSource("U", "public class U { U(CharSequence s) {} }");
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {",
+						"    T newT(String s);           ",
+						"}                               "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"X$U",
+				lines(
+						"public interface X$U extends X<U> {",
+						"    @Override                      ",
+						"    default U newT(String s) {     ",
+						"        return new U(s);           ",
+						"    }                              ",
+						"}                                  "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
+	@Test
+	public void newInstanceMethodWithBoxedParameter() {
+		JavaFileObject U = inputSource("U", "public class U { U(Integer i) {} }");
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {",
+						"    T newT(int i);              ",
+						"}                               "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"X$U",
+				lines(
+						"public interface X$U extends X<U> {",
+						"    @Override                      ",
+						"    default U newT(int i) {        ",
+						"        return new U(i);           ",
+						"    }                              ",
+						"}                                  "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
+	@Test
+	public void newInstanceMethodWithVariableArityConstructor() {
+		JavaFileObject U = inputSource("U", "public class U { U(int i, String... s) {} }");
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {       ",
+						"    T newT(int i);                     ",
+						"    T newT(int i, String a, String b); ",
+						"}                                      "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"X$U",
+				lines(
+						"public interface X$U extends X<U> {              ",
+						"    @Override                                    ",
+						"    default U newT(int i) {                      ",
+						"        return new U(i);                         ",
+						"    }                                            ",
+						"                                                 ",
+						"    @Override                                    ",
+						"    default U newT(int i, String a, String b) {  ",
+						"        return new U(i, a, b);                   ",
+						"    }                                            ",
+						"}                                                "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
+	@Test
+	public void newInstanceMethodWithMostSpecificConstructor() {
+		JavaFileObject U = inputSource(
+				"U",
+				lines(
+						"public class U {                         ",
+						"    U(Object o) throws Exception {}      ",
+						"    U(CharSequence s) {}                 ",
+						"    U(Integer i) throws Exception {}     ",
+						"}                                        "
+				)
+		);
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {",
+						"    T newT(String s);           ",
+						"}                               "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"X$U",
+				lines(
+						"public interface X$U extends X<U> {",
+						"    @Override                      ",
+						"    default U newT(String s) {     ",
+						"        return new U(s);           ",
+						"    }                              ",
+						"}                                  "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
+	@Test
+	public void newInstanceMethodWithAmbiguousConstructors() {
+		JavaFileObject U = inputSource(
+				"U",
+				lines(
+						"public class U {                      ",
+						"    U(CharSequence s, Object o) {}    ",
+						"    U(Object o, CharSequence s) {}    ",
+						"}                                     "
+				)
+		);
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {    ",
+						"    T newT(String a, String b);     ",
+						"}                                   "
+				)
+		);
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(U, X))
+				.failsToCompile()
+				.withErrorContaining("Ambiguous constructors");
+	}
+	
+	@Test
+	public void newInstanceMethodWithDifferentlyParameterizedParameter() {
+		JavaFileObject U = inputSource("U", "public class U { U(java.util.List<String> l) {} }");
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {              ",
+						"    T newT(java.util.List<Integer> l);        ",
+						"}                                             "
+				)
+		);
+		
+		assertAboutProcessedSourcesThat(Arrays.asList(U, X))
+				.failsToCompile()
+				.withErrorCount(1)
+				.withErrorContaining("Could not resolve constructor of type 'U'");
+	}
+	
+	@Test
+	public void newInstanceMethodWithInferredParameter() {
+		JavaFileObject U = inputSource("U", "public class U { <E> U(java.util.List<E> l) {} }");
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"interface X<@Reify(U.class) T> {              ",
+						"    T newT(java.util.List<Integer> l);        ",
+						"}                                             "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"X$U",
+				lines(
+						"import java.util.List;                        ",
+						"public interface X$U extends X<U> {           ",
+						"    @Override                                 ",
+						"    default U newT(List<Integer> l) {         ",
+						"        return new U(l);                      ",
+						"    }                                         ",
+						"}                                             "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
+	@Test
+	public void newInstanceMethodWithInaccessibleConstructor() {
+		JavaFileObject U = inputSource(
+				"u.U",
+				lines(
+						"package u;                   ",
+						"public class U {             ",
+						"    public U(Object o) {}    ",
+						"    U(String s) {}           ",
+						"    protected U(Integer i) {}",
+						"}                            "
+				)
+		);
+		JavaFileObject X = inputSource(
+				"x.X",
+				lines(
+						"package x;                          ",
+						"interface X<@Reify(u.U.class) T> {  ",
+						"    T newT(String s);               ",
+						"    T newT(Integer i);              ",
+						"}                                   "
+				)
+		);
+		JavaFileObject X$U = generatedSource(
+				"x.X$U",
+				lines(
+						"package x;                                 ",
+						"                                           ",
+						"import u.U;                                ",
+						"                                           ",
+						"public interface X$U extends X<U> {        ",
+						"    @Override                              ",
+						"    default U newT(String s) {             ",
+						"        return new U(s);                   ",
+						"    }                                      ",
+						"                                           ",
+						"    @Override                              ",
+						"    default U newT(Integer i) {            ",
+						"        return new U(i);                   ",
+						"    }                                      ",
+						"}                                          "
+				)
+		);
+		
+		// Only the public constructor is accessible from the package of the generated type.
+		assertCompilesAndGenerates(Arrays.asList(U, X), X$U);
+	}
+	
 	@Test
 	public void classAndMultipleNewInstanceMethods() {
 		JavaFileObject X = inputSource(
@@ -611,11 +860,42 @@ public class ImplementedMethodsTest {
 		assertCompilesAndGenerates(X, X$String);
 	}
 	
+	@Test
+	public void redeclaredInheritedNewInstanceMethod() {
+		JavaFileObject I = inputSource(
+				"I",
+				lines(
+						"interface I<T> {",
+						"    T newT();   ",
+						"}               "
+				)
+		);
+		JavaFileObject X = inputSource(
+				"X",
+				lines(
+						"abstract class X<@Reify(String.class) T> implements I<T> {",
+						"    public abstract T newT();                             ",
+						"}                                                         "
+				)
+		);
+		JavaFileObject X$String = generatedSource(
+				"X$String",
+				lines(
+						"public class X$String extends X<String> {",
+						"    @Override                            ",
+						"    public String newT() {               ",
+						"        return new String();             ",
+						"    }                                    ",
+						"}                                        "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(I, X), X$String);
+	}
+	
 	// TODO Add test with indirectly inherited abstract methods, incl.
 	//      - collisions (might not be our problem, though)
 	//      - overloading (for 'newInstance' only).
-	//      - both interface and superclass
-	//      - abstract but also implemented.
 	//      - class remains abstract if there are extra abstract methods.
 	
 }
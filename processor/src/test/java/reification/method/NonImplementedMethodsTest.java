@@ -3,6 +3,7 @@ package reification.method;
 import org.junit.Test;
 
 import javax.tools.JavaFileObject;
+import java.util.Arrays;
 
 import static reification.TestFunctions.generatedSource;
 import static reification.TestFunctions.inputSource;
@@ -77,5 +78,21 @@ public class NonImplementedMethodsTest {
 		assertCompilesAndGenerates(X, X$String);
 	}
 	
+	@Test
+	public void interfaceMethodImplementedBySuperclass() {
+		JavaFileObject I = inputSource("I", "interface I { int f(); }");
+		JavaFileObject B = inputSource("B", "class B { public int f() { return 0; } }");
+		JavaFileObject X = inputSource("X", "abstract class X<@Reify(String.class) T> extends B implements I {}");
+		JavaFileObject X$String = generatedSource(
+				"X$String",
+				lines(
+						"public class X$String extends X<String> {",
+						"}                                        "
+				)
+		);
+		
+		assertCompilesAndGenerates(Arrays.asList(I, B, X), X$String);
+	}
+	
 	// TODO Test that inherited abstract methods are not auto-implemented (and make the code work that way).
 }
@@ -0,0 +1,410 @@
+package reification;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.*;
+import java.util.*;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Reifies generic types at run time for type arguments that aren't known at compile time. Like the types generated by
+ * the '@Reify'-annotation processor, the reified subtype of a generic type `X<T>` implements the abstract methods
+ * `T newT(...)` by invoking the matching constructor of the type argument and `Class<T> classT()` by returning the type
+ * argument. It mirrors the (accessible) constructors of `X` as public constructors. The subtype is spun as bytecode on
+ * the first request for each pair of generic type and type argument and cached for as long as it's in use. The subtype
+ * keeps both types from being unloaded, but the cache only references it weakly: once it's unreachable, it may be
+ * unloaded along with either type and is spun again on the next request.
+ * <p>
+ * Where available (Java 15+), the subtype is defined as a hidden class in the package of the generic type, such that it
+ * may access the package-private members of that package. Otherwise, or if the type argument isn't visible from the
+ * class loader of the generic type, it's defined by a class loader of its own, which only allows access to public and
+ * protected members.
+ */
+public final class RuntimeReification {
+	private static final Method PRIVATE_LOOKUP_IN;
+	private static final Method HAS_FULL_PRIVILEGE_ACCESS;
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object NO_CLASS_OPTIONS;
+	
+	static {
+		Method privateLookupIn = null;
+		Method hasFullPrivilegeAccess = null;
+		Method defineHiddenClass = null;
+		Object noClassOptions = null;
+		try {
+			Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			noClassOptions = Array.newInstance(classOption, 0);
+			privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+			hasFullPrivilegeAccess = MethodHandles.Lookup.class.getMethod("hasFullPrivilegeAccess");
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, noClassOptions.getClass());
+		} catch (ReflectiveOperationException e) {
+			// Hidden classes aren't supported by this JVM.
+		}
+		PRIVATE_LOOKUP_IN = privateLookupIn;
+		HAS_FULL_PRIVILEGE_ACCESS = hasFullPrivilegeAccess;
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		NO_CLASS_OPTIONS = noClassOptions;
+	}
+	
+	// Keyed by the type argument and then weakly by the generic type, while the reified types (which reference both) are
+	// only held weakly, so that the cache keeps neither the type argument nor the generic type from being unloaded.
+	private static final ClassValue<Map<Class<?>, WeakReference<Class<?>>>> REIFIED_TYPES = new ClassValue<Map<Class<?>, WeakReference<Class<?>>>>() {
+		@Override
+		protected Map<Class<?>, WeakReference<Class<?>>> computeValue(Class<?> typeArgument) {
+			return new WeakHashMap<>();
+		}
+	};
+	
+	private RuntimeReification() {
+	}
+	
+	/**
+	 * Returns the subtype of the given generic type that is reified with the given type argument, spinning it if it hasn't
+	 * been requested before.
+	 *
+	 * @throws IllegalArgumentException if the generic type doesn't have exactly one type parameter or can't be extended,
+	 *                                  if the type argument is primitive, or if the generic type has abstract methods
+	 *                                  that can't be implemented
+	 */
+	public static <T> Class<? extends T> reify(Class<T> genericType, Class<?> typeArgument) {
+		Objects.requireNonNull(genericType, "genericType");
+		Objects.requireNonNull(typeArgument, "typeArgument");
+		Map<Class<?>, WeakReference<Class<?>>> reifiedTypes = REIFIED_TYPES.get(typeArgument);
+		synchronized (reifiedTypes) {
+			WeakReference<Class<?>> reference = reifiedTypes.get(genericType);
+			Class<?> reifiedType = reference == null ? null : reference.get();
+			if (reifiedType == null) {
+				reifiedType = reifiedType(genericType, typeArgument);
+				reifiedTypes.put(genericType, new WeakReference<>(reifiedType));
+			}
+			return reifiedType.asSubclass(genericType);
+		}
+	}
+	
+	/**
+	 * Returns whether reified types are defined as hidden classes by this JVM.
+	 */
+	public static boolean isHiddenClassesSupported() {
+		return DEFINE_HIDDEN_CLASS != null;
+	}
+	
+	private static Class<?> reifiedType(Class<?> genericType, Class<?> typeArgument) {
+		if (genericType.isPrimitive() || genericType.isArray() || genericType.isAnnotation() || Modifier.isFinal(genericType.getModifiers())) {
+			throw new IllegalArgumentException(String.format("Cannot reify final type '%s'", genericType.getName()));
+		}
+		if (genericType.getTypeParameters().length != 1) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot reify type '%s' with %d type parameters",
+					genericType.getName(),
+					genericType.getTypeParameters().length
+			));
+		}
+		if (typeArgument.isPrimitive()) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot reify type '%s' with primitive type '%s'",
+					genericType.getName(),
+					typeArgument.getName()
+			));
+		}
+		
+		MethodHandles.Lookup lookup = hiddenClassLookup(genericType, typeArgument);
+		if (lookup == null && !Modifier.isPublic(genericType.getModifiers())) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot reify non-public type '%s' outside of its package",
+					genericType.getName()
+			));
+		}
+		byte[] bytes = generate(genericType, typeArgument, lookup != null);
+		if (lookup == null) {
+			return new DefiningClassLoader(genericType, typeArgument).define(name(genericType, typeArgument), bytes);
+		}
+		try {
+			return ((MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, bytes, true, NO_CLASS_OPTIONS)).lookupClass();
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(String.format("Cannot define hidden class '%s'", name(genericType, typeArgument)), e);
+		}
+	}
+	
+	/**
+	 * Returns a lookup that can define hidden classes in the package of the generic type, or null if hidden classes
+	 * aren't supported or the type argument isn't visible from there.
+	 */
+	private static MethodHandles.Lookup hiddenClassLookup(Class<?> genericType, Class<?> typeArgument) {
+		if (DEFINE_HIDDEN_CLASS == null || !isVisible(typeArgument, genericType.getClassLoader())) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, genericType, MethodHandles.lookup());
+			return (Boolean) HAS_FULL_PRIVILEGE_ACCESS.invoke(lookup) ? lookup : null;
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+	
+	private static boolean isVisible(Class<?> type, ClassLoader classLoader) {
+		try {
+			return Class.forName(type.getName(), false, classLoader) == type;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+	
+	private static String name(Class<?> genericType, Class<?> typeArgument) {
+		return genericType.getName() + '$' + typeArgument.getSimpleName().replace("[]", "Array");
+	}
+	
+	private static byte[] generate(Class<?> genericType, Class<?> typeArgument, boolean samePackage) {
+		String typeParameterName = genericType.getTypeParameters()[0].getName();
+		String superName = genericType.isInterface() ? Type.getInternalName(Object.class) : Type.getInternalName(genericType);
+		String[] interfaceNames = genericType.isInterface() ? new String[]{Type.getInternalName(genericType)} : null;
+		String signature = genericType.isInterface()
+				? Type.getDescriptor(Object.class) + signature(genericType, typeArgument)
+				: signature(genericType, typeArgument);
+		
+		ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		classWriter.visit(
+				V1_8,
+				ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+				name(genericType, typeArgument).replace('.', '/'),
+				signature,
+				superName,
+				interfaceNames
+		);
+		
+		if (genericType.isInterface()) {
+			MethodVisitor methodVisitor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+			methodVisitor.visitCode();
+			methodVisitor.visitVarInsn(ALOAD, 0);
+			methodVisitor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+			methodVisitor.visitInsn(RETURN);
+			methodVisitor.visitMaxs(0, 0);
+			methodVisitor.visitEnd();
+		} else {
+			for (Constructor<?> constructor : genericType.getDeclaredConstructors()) {
+				if (!isAccessible(constructor.getModifiers(), genericType, genericType, samePackage, true)) {
+					continue;
+				}
+				String descriptor = Type.getConstructorDescriptor(constructor);
+				MethodVisitor methodVisitor = classWriter.visitMethod(
+						ACC_PUBLIC | (constructor.getModifiers() & ACC_VARARGS),
+						"<init>",
+						descriptor,
+						null,
+						exceptionNames(constructor.getExceptionTypes())
+				);
+				methodVisitor.visitCode();
+				methodVisitor.visitVarInsn(ALOAD, 0);
+				loadParameters(methodVisitor, constructor.getParameterTypes());
+				methodVisitor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", descriptor, false);
+				methodVisitor.visitInsn(RETURN);
+				methodVisitor.visitMaxs(0, 0);
+				methodVisitor.visitEnd();
+			}
+		}
+		
+		for (Method method : abstractMethods(genericType)) {
+			if (!isAccessible(method.getModifiers(), method.getDeclaringClass(), genericType, samePackage, true)) {
+				throw new IllegalArgumentException(String.format(
+						"Cannot reify type '%s' with package-private abstract method '%s' outside of its package",
+						genericType.getName(),
+						method.getName()
+				));
+			}
+			MethodVisitor methodVisitor = classWriter.visitMethod(
+					method.getModifiers() & (ACC_PUBLIC | ACC_PROTECTED | ACC_VARARGS),
+					method.getName(),
+					Type.getMethodDescriptor(method),
+					null,
+					null
+			);
+			methodVisitor.visitCode();
+			if (method.getName().equals("class" + typeParameterName) && method.getParameterCount() == 0 && method.getReturnType().isAssignableFrom(Class.class)) {
+				methodVisitor.visitLdcInsn(Type.getType(typeArgument));
+			} else if (method.getName().equals("new" + typeParameterName) && method.getReturnType().isAssignableFrom(typeArgument)) {
+				Constructor<?> constructor = constructor(genericType, typeArgument, method, samePackage);
+				methodVisitor.visitTypeInsn(NEW, Type.getInternalName(typeArgument));
+				methodVisitor.visitInsn(DUP);
+				loadParameters(methodVisitor, method.getParameterTypes());
+				methodVisitor.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(typeArgument), "<init>", Type.getConstructorDescriptor(constructor), false);
+			} else {
+				throw new IllegalArgumentException(String.format(
+						"Cannot reify type '%s' with '%s': abstract method '%s' is not supported",
+						genericType.getName(),
+						typeArgument.getName(),
+						method.getName()
+				));
+			}
+			methodVisitor.visitInsn(ARETURN);
+			methodVisitor.visitMaxs(0, 0);
+			methodVisitor.visitEnd();
+		}
+		
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+	
+	private static String signature(Class<?> genericType, Class<?> typeArgument) {
+		return 'L' + Type.getInternalName(genericType) + '<' + Type.getDescriptor(typeArgument) + ">;";
+	}
+	
+	private static String[] exceptionNames(Class<?>[] exceptionTypes) {
+		if (exceptionTypes.length == 0) {
+			return null;
+		}
+		String[] exceptionNames = new String[exceptionTypes.length];
+		for (int i = 0; i < exceptionTypes.length; i++) {
+			exceptionNames[i] = Type.getInternalName(exceptionTypes[i]);
+		}
+		return exceptionNames;
+	}
+	
+	private static void loadParameters(MethodVisitor methodVisitor, Class<?>[] parameterTypes) {
+		int index = 1;
+		for (Class<?> parameterType : parameterTypes) {
+			Type type = Type.getType(parameterType);
+			methodVisitor.visitVarInsn(type.getOpcode(ILOAD), index);
+			index += type.getSize();
+		}
+	}
+	
+	/**
+	 * Returns the methods of the given type (and its supertypes) that are abstract, by overriding signature, where classes
+	 * take precedence over interfaces and subtypes over supertypes.
+	 */
+	private static Collection<Method> abstractMethods(Class<?> type) {
+		Map<String, Method> methods = new LinkedHashMap<>();
+		List<Class<?>> interfaces = new ArrayList<>();
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			addMethods(c, methods);
+			interfaces.addAll(Arrays.asList(c.getInterfaces()));
+		}
+		for (int i = 0; i < interfaces.size(); i++) {
+			addMethods(interfaces.get(i), methods);
+			interfaces.addAll(Arrays.asList(interfaces.get(i).getInterfaces()));
+		}
+		
+		List<Method> abstractMethods = new ArrayList<>();
+		for (Method method : methods.values()) {
+			if (Modifier.isAbstract(method.getModifiers())) {
+				abstractMethods.add(method);
+			}
+		}
+		return abstractMethods;
+	}
+	
+	private static void addMethods(Class<?> type, Map<String, Method> methods) {
+		for (Method method : type.getDeclaredMethods()) {
+			if (!Modifier.isStatic(method.getModifiers()) && !Modifier.isPrivate(method.getModifiers())) {
+				methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the most specific accessible constructor of the type argument that accepts the parameters of the given
+	 * method, preferring a constructor with exactly the same parameter types.
+	 */
+	private static Constructor<?> constructor(Class<?> genericType, Class<?> typeArgument, Method method, boolean samePackage) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		boolean instantiable = !typeArgument.isInterface()
+				&& !typeArgument.isArray()
+				&& !Modifier.isAbstract(typeArgument.getModifiers())
+				&& isAccessible(typeArgument.getModifiers(), typeArgument, genericType, samePackage, false);
+		
+		List<Constructor<?>> applicable = new ArrayList<>();
+		for (Constructor<?> constructor : instantiable ? typeArgument.getDeclaredConstructors() : new Constructor<?>[0]) {
+			if (!isAccessible(constructor.getModifiers(), typeArgument, genericType, samePackage, false)) {
+				continue;
+			}
+			if (Arrays.equals(constructor.getParameterTypes(), parameterTypes)) {
+				return constructor;
+			}
+			if (isAssignable(parameterTypes, constructor.getParameterTypes())) {
+				applicable.add(constructor);
+			}
+		}
+		
+		for (Constructor<?> constructor : applicable) {
+			boolean mostSpecific = true;
+			for (Constructor<?> other : applicable) {
+				mostSpecific &= isAssignable(constructor.getParameterTypes(), other.getParameterTypes());
+			}
+			if (mostSpecific) {
+				return constructor;
+			}
+		}
+		throw new IllegalArgumentException(String.format(
+				"Cannot reify type '%s' with '%s': %s for method '%s'",
+				genericType.getName(),
+				typeArgument.getName(),
+				applicable.isEmpty() ? "no accessible constructor" : "ambiguous constructors",
+				method.getName()
+		));
+	}
+	
+	private static boolean isAssignable(Class<?>[] fromTypes, Class<?>[] toTypes) {
+		if (fromTypes.length != toTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < fromTypes.length; i++) {
+			if (fromTypes[i] != toTypes[i] && (toTypes[i].isPrimitive() || !toTypes[i].isAssignableFrom(fromTypes[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns whether a member (or type) with the given modifiers of the given declaring type is accessible from a reified
+	 * type of the given generic type. Protected members are only accessible outside of the package if they're inherited.
+	 */
+	private static boolean isAccessible(int modifiers, Class<?> declaringType, Class<?> genericType, boolean samePackage, boolean inherited) {
+		if (Modifier.isPublic(modifiers) || (inherited && Modifier.isProtected(modifiers))) {
+			return true;
+		}
+		return !Modifier.isPrivate(modifiers)
+				&& samePackage
+				&& declaringType.getClassLoader() == genericType.getClassLoader()
+				&& packageName(declaringType).equals(packageName(genericType));
+	}
+	
+	private static String packageName(Class<?> type) {
+		String name = type.getName();
+		return name.substring(0, Math.max(name.lastIndexOf('.'), 0));
+	}
+	
+	/**
+	 * Class loader defining a single reified type, which resolves the type argument to itself (even if the parent has a
+	 * type by the same name) and any other types from its parent or else the class loader of the type argument.
+	 */
+	private static final class DefiningClassLoader extends ClassLoader {
+		private final Class<?> typeArgument;
+		
+		DefiningClassLoader(Class<?> genericType, Class<?> typeArgument) {
+			super(genericType.getClassLoader());
+			this.typeArgument = typeArgument;
+		}
+		
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+		
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.equals(typeArgument.getName())) {
+				return typeArgument;
+			}
+			return super.loadClass(name, resolve);
+		}
+		
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			return Class.forName(name, false, typeArgument.getClassLoader());
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package reification;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class RuntimeReificationTest {
+	
+	public static abstract class Factory<T> {
+		private final String name;
+		
+		public Factory() {
+			this("default");
+		}
+		
+		protected Factory(String name) {
+			this.name = name;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public abstract T newT();
+		
+		public abstract T newT(String value);
+		
+		public abstract Class<T> classT();
+	}
+	
+	public interface Supplying<T> extends Supplier<T> {
+		T newT();
+		
+		@Override
+		default T get() {
+			return newT();
+		}
+	}
+	
+	public static abstract class Unsupported<T> {
+		public abstract T create();
+	}
+	
+	public static abstract class Pair<K, V> {
+	}
+	
+	public static class Argument {
+		public final Object value;
+		
+		public Argument() {
+			this("none");
+		}
+		
+		public Argument(String value) {
+			this.value = value;
+		}
+		
+		public Argument(Object value) {
+			this.value = value;
+		}
+	}
+	
+	@Test
+	public void methodsImplemented() throws ReflectiveOperationException {
+		Factory<StringBuilder> factory = RuntimeReification.reify(Factory.class, StringBuilder.class).newInstance();
+		
+		assertEquals(StringBuilder.class, factory.newT().getClass());
+		assertEquals("x", factory.newT("x").toString());
+		assertEquals(StringBuilder.class, factory.classT());
+		assertEquals("default", factory.getName());
+	}
+	
+	@Test
+	public void mostSpecificConstructorInvoked() throws ReflectiveOperationException {
+		Factory<Argument> factory = RuntimeReification.reify(Factory.class, Argument.class).newInstance();
+		
+		assertEquals("none", factory.newT().value);
+		assertEquals("x", factory.newT("x").value);
+	}
+	
+	@Test
+	public void constructorsMirrored() throws ReflectiveOperationException {
+		Class<? extends Factory> type = RuntimeReification.reify(Factory.class, StringBuilder.class);
+		
+		assertEquals("named", type.getDeclaredConstructor(String.class).newInstance("named").getName());
+	}
+	
+	@Test
+	public void interfaceImplemented() throws ReflectiveOperationException {
+		Supplying<ArrayList> supplying = RuntimeReification.reify(Supplying.class, ArrayList.class).newInstance();
+		
+		assertEquals(new ArrayList<>(), supplying.get());
+	}
+	
+	@Test
+	public void typeArgumentRecorded() {
+		Class<?> type = RuntimeReification.reify(Factory.class, String.class);
+		
+		ParameterizedType superclass = (ParameterizedType) type.getGenericSuperclass();
+		assertEquals(Factory.class, superclass.getRawType());
+		assertArrayEquals(new Object[]{String.class}, superclass.getActualTypeArguments());
+	}
+	
+	@Test
+	public void typesCached() {
+		Class<?> type = RuntimeReification.reify(Factory.class, String.class);
+		
+		assertSame(type, RuntimeReification.reify(Factory.class, String.class));
+		assertNotSame(type, RuntimeReification.reify(Factory.class, StringBuilder.class));
+	}
+	
+	@Test
+	public void hiddenClassDefined() throws ReflectiveOperationException {
+		assumeTrue(RuntimeReification.isHiddenClassesSupported());
+		Class<?> type = RuntimeReification.reify(Factory.class, Argument.class);
+		
+		assertTrue((Boolean) Class.class.getMethod("isHidden").invoke(type));
+		assertEquals(Factory.class.getPackage().getName(), type.getPackage().getName());
+	}
+	
+	@Test
+	public void invisibleTypeArgument() throws IOException, ReflectiveOperationException {
+		URL classes = Argument.class.getProtectionDomain().getCodeSource().getLocation();
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes}, null)) {
+			Class<?> argumentType = classLoader.loadClass(Argument.class.getName());
+			Factory<?> factory = RuntimeReification.reify(Factory.class, argumentType).newInstance();
+			
+			assertEquals(argumentType, factory.newT().getClass());
+			assertEquals(argumentType, factory.classT());
+			assertNotEquals(Factory.class.getClassLoader(), factory.getClass().getClassLoader());
+		}
+	}
+	
+	@Test
+	public void typesUnloaded() throws IOException, ReflectiveOperationException, InterruptedException {
+		assertUnloaded(reifiedFromClassLoader(true));
+		assertUnloaded(reifiedFromClassLoader(false));
+	}
+	
+	private static WeakReference<ClassLoader> reifiedFromClassLoader(boolean genericType) throws IOException, ReflectiveOperationException {
+		URL classes = Factory.class.getProtectionDomain().getCodeSource().getLocation();
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes}, null)) {
+			Class<?> type = classLoader.loadClass(genericType ? Factory.class.getName() : Argument.class.getName());
+			Class<?> reifiedType = genericType
+					? RuntimeReification.reify(type, StringBuilder.class)
+					: RuntimeReification.reify(Factory.class, type);
+			assertNotNull(reifiedType.newInstance());
+			return new WeakReference<>(classLoader);
+		}
+	}
+	
+	private static void assertUnloaded(WeakReference<ClassLoader> classLoader) throws InterruptedException {
+		for (int i = 0; i < 100 && classLoader.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull("class loader still reachable", classLoader.get());
+	}
+	
+	@Test
+	public void unsupportedMethod() {
+		try {
+			RuntimeReification.reify(Unsupported.class, String.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("abstract method 'create' is not supported"));
+		}
+	}
+	
+	@Test
+	public void missingConstructor() {
+		try {
+			RuntimeReification.reify(Factory.class, List.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("no accessible constructor for method 'newT'"));
+		}
+	}
+	
+	@Test
+	public void invalidTypes() {
+		try {
+			RuntimeReification.reify(Pair.class, String.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("with 2 type parameters"));
+		}
+		try {
+			RuntimeReification.reify(Factory.class, int.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("primitive type 'int'"));
+		}
+	}
+	
+	@Test
+	public void classMethodDeclared() throws ReflectiveOperationException {
+		Method method = RuntimeReification.reify(Factory.class, String.class).getDeclaredMethod("classT");
+		
+		assertEquals(Class.class, method.getReturnType());
+	}
+}